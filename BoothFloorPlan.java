@@ -1,17 +1,32 @@
 import javax.swing.border.Border;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.List;
 import javax.swing.*;
 import java.awt.event.*;
+import java.time.LocalTime;
 
 public class BoothFloorPlan extends JFrame {
+    private static final long serialVersionUID = 1L;
     private JPanel mainPanel;
     private JPanel shapePanel;
+    private JLabel statusLabel;
+    private JCheckBoxMenuItem cachedRenderingItem;
+    private JCheckBoxMenuItem performanceOverlayItem;
+    private final PlanRenderer renderer = new PlanRenderer(); // Offscreen layer of the unselected booths
     private FloorPlanController controller;
     private String planName;
     private CustomRectangle draggingShape;
     private int offsetX, offsetY;
+    private Point marqueeStart, marqueeEnd; // Corners of the selection rectangle being dragged out, in world
+    private boolean marqueeAdds; // Whether the rectangle adds to the selection rather than replacing it
+    private final Viewport viewport = new Viewport(); // Pan and zoom of the drawing area
+    private int panX, panY;
+    private int planWidth, planHeight; // How far the loaded plan reaches from the origin
+    private static final double ZOOM_STEP = 1.25;
 
     public BoothFloorPlan() {
         this(null);
@@ -26,11 +41,18 @@ public class BoothFloorPlan extends JFrame {
         setSize(600, 400);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeJournal();
+            }
+        });
 
         //Creates GUI sections
         setupMenuBar();
         setupShapePanel();
         setupMainPanel();
+        setupStatusBar();
         
         //buttons
         addShapeButtons();
@@ -44,29 +66,54 @@ public class BoothFloorPlan extends JFrame {
             loadFloorPlan(planName);
         }
 
-        //Listens for user to select Shape in drawing area
+        //Listens for user to select Shape in drawing area, right or middle button drags pan the view.
+        //Shift or Ctrl click adds a booth to the selection or takes it out, dragging on empty space selects
+        //the booths in a rectangle, and dragging a selected booth moves the whole selection.
         mainPanel.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
-                CustomRectangle clickedShape = controller.getShapeAt(e.getX(), e.getY());
-                controller.selectShape(clickedShape);
-                if (clickedShape != null) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    panX = e.getX();
+                    panY = e.getY();
+                    return;
+                }
+                int worldX = worldX(e), worldY = worldY(e);
+                boolean adding = e.isShiftDown() || e.isControlDown();
+                CustomRectangle clickedShape = controller.getShapeAt(worldX, worldY);
+                if (clickedShape != null && adding) {
+                    controller.toggleSelection(clickedShape);
+                } else if (clickedShape != null) {
                     draggingShape = clickedShape;
-                    offsetX = e.getX() - draggingShape.x;//Updates x,y when dragged
-                    offsetY = e.getY() - draggingShape.y;
-                    draggingShape.startDragging(draggingShape.x, draggingShape.y);
-                } else if (draggingShape != null) {
-                    draggingShape.setSelected(false); // Deselect if no shape is clicked
-                    draggingShape = null;
+                    offsetX = worldX - draggingShape.x;//Updates x,y when dragged
+                    offsetY = worldY - draggingShape.y;
+                    controller.beginDrag(draggingShape);
+                } else {
+                    if (!adding) {
+                        controller.selectShape(null); // Deselect if no shape is clicked
+                    }
+                    marqueeStart = marqueeEnd = new Point(worldX, worldY);
+                    marqueeAdds = adding;
                 }
                 mainPanel.repaint(); // Update the panel to reflect changes
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
                 if (draggingShape != null) {
-                    draggingShape.stopDragging();
+                    controller.endDrag(draggingShape);
                     draggingShape = null;
+                    if (controller.isSelectionZoned()) { // Redraw the outline of the zone around its new bounds
+                        renderer.invalidate();
+                        mainPanel.repaint();
+                    }
+                } else if (marqueeStart != null) {
+                    Rectangle area = marqueeArea();
+                    controller.selectArea(area.x, area.y, area.width, area.height, marqueeAdds);
+                    marqueeStart = marqueeEnd = null;
+                    mainPanel.repaint();
                 }
             }
         });
@@ -74,29 +121,180 @@ public class BoothFloorPlan extends JFrame {
         mainPanel.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (draggingShape != null) {
-                    int newX = e.getX() - offsetX;
-                    int newY = e.getY() - offsetY;
-                    draggingShape.dragTo(newX, newY);
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    viewport.pan(e.getX() - panX, e.getY() - panY);
+                    panX = e.getX();
+                    panY = e.getY();
+                    mainPanel.repaint();
+                } else if (draggingShape != null) {
+                    int newX = worldX(e) - offsetX;
+                    int newY = worldY(e) - offsetY;
+                    Rectangle dirty = controller.getSelectionBounds();
+                    if (controller.dragShapeTo(draggingShape, newX, newY)) {
+                        dirty.add(controller.getSelectionBounds());
+                        mainPanel.repaint(viewport.toScreen(dirty)); // Only where the booths were and are now
+                    }
+                } else if (marqueeStart != null) {
+                    marqueeEnd = new Point(worldX(e), worldY(e));
                     mainPanel.repaint();
                 }
             }
         });
+
+        //Mouse wheel zooms around the cursor
+        mainPanel.addMouseWheelListener(e -> {
+            viewport.zoomAt(e.getX(), e.getY(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
+            mainPanel.repaint();
+        });
+    }
+
+    //World area between the corners of the selection rectangle
+    private Rectangle marqueeArea() {
+        Rectangle area = new Rectangle(marqueeStart);
+        area.add(marqueeEnd);
+        return area;
     }
+
+    private int worldX(MouseEvent e) {
+        return (int) Math.floor(viewport.toWorldX(e.getX()));
+    }
+
+    private int worldY(MouseEvent e) {
+        return (int) Math.floor(viewport.toWorldY(e.getY()));
+    }
+
+    //New booths go between the plan origin and the far edge of the loaded plan, or of the drawing area at
+    //full size when that is larger. Panning and zooming leave the hall alone, so the placement engine keeps
+    //the free space it has worked out instead of starting over.
+    private int hallWidth() {
+        return Math.max(planWidth, mainPanel.getWidth());
+    }
+
+    private int hallHeight() {
+        return Math.max(planHeight, mainPanel.getHeight());
+    }
+
+    //Zooms around the middle of the drawing area
+    private void zoom(double factor) {
+        viewport.zoomAt(mainPanel.getWidth() / 2.0, mainPanel.getHeight() / 2.0, factor);
+        mainPanel.repaint();
+    }
+
     //Creates menu bar with File Menu
     private void setupMenuBar() {
         JMenuBar menuBar = new JMenuBar();
         JMenu fileMenu = new JMenu("File");
         JMenuItem saveItem = new JMenuItem("Save");
+        JMenuItem importItem = new JMenuItem("Import Booths...");
+        JMenuItem exportItem = new JMenuItem("Export as SVG or PDF...");
         JMenuItem exitItem = new JMenuItem("Exit");
         saveItem.addActionListener(e -> saveFloorPlan());
-        exitItem.addActionListener(e -> System.exit(0));
+        importItem.addActionListener(e -> importBooths());
+        exportItem.addActionListener(e -> exportPlan());
+        exitItem.addActionListener(e -> {
+            closeJournal();
+            System.exit(0);
+        });
         fileMenu.add(saveItem);
+        fileMenu.add(importItem);
+        fileMenu.add(exportItem);
         fileMenu.add(exitItem);
         menuBar.add(fileMenu);
+
+        JMenu editMenu = new JMenu("Edit");
+        JMenuItem undoItem = new JMenuItem("Undo");
+        JMenuItem redoItem = new JMenuItem("Redo");
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut));
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcut));
+        undoItem.addActionListener(e -> undoOrRedo(true));
+        redoItem.addActionListener(e -> undoOrRedo(false));
+        JMenuItem zoneItem = new JMenuItem("Group into Zone...");
+        zoneItem.addActionListener(e -> groupIntoZone());
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
+        editMenu.add(zoneItem);
+        menuBar.add(editMenu);
+
+        JMenu viewMenu = new JMenu("View");
+        cachedRenderingItem = new JCheckBoxMenuItem("Cached Rendering", true);
+        cachedRenderingItem.addActionListener(e -> {
+            renderer.invalidate();
+            mainPanel.repaint();
+        });
+        viewMenu.add(cachedRenderingItem);
+        JMenu snapMenu = new JMenu("Snap to Grid");
+        ButtonGroup snapGroup = new ButtonGroup();
+        for (int grid : new int[] {0, 5, 10, 25, 50}) {
+            JRadioButtonMenuItem gridItem = new JRadioButtonMenuItem(grid == 0 ? "Off" : grid + " px",
+                    grid == controller.getSnapGrid());
+            gridItem.addActionListener(e -> controller.setSnapGrid(grid));
+            snapGroup.add(gridItem);
+            snapMenu.add(gridItem);
+        }
+        viewMenu.add(snapMenu);
+        //Metrics are collected while the overlay shows them, and after that only if they were on at launch
+        performanceOverlayItem = new JCheckBoxMenuItem("Performance Overlay");
+        performanceOverlayItem.addActionListener(e -> {
+            PlanMetrics.setEnabled(performanceOverlayItem.isSelected() || Boolean.getBoolean("booth.metrics"));
+            mainPanel.repaint();
+        });
+        viewMenu.add(performanceOverlayItem);
+        viewMenu.addSeparator();
+        JMenuItem zoomInItem = new JMenuItem("Zoom In");
+        JMenuItem zoomOutItem = new JMenuItem("Zoom Out");
+        JMenuItem resetViewItem = new JMenuItem("Reset View");
+        zoomInItem.addActionListener(e -> zoom(ZOOM_STEP));
+        zoomOutItem.addActionListener(e -> zoom(1 / ZOOM_STEP));
+        resetViewItem.addActionListener(e -> {
+            viewport.reset();
+            mainPanel.repaint();
+        });
+        viewMenu.add(zoomInItem);
+        viewMenu.add(zoomOutItem);
+        viewMenu.add(resetViewItem);
+        menuBar.add(viewMenu);
         setJMenuBar(menuBar);
     }
 
+    //Frame and draw times, placement work and booth count in the corner of the drawing area. The frame
+    //shown is the previous one, this one is still being painted.
+    private void drawPerformanceOverlay(Graphics g) {
+        String[] lines = {
+                String.format("Frame %.1f ms (p99 %.1f ms)", PlanMetrics.FRAME.getLastMicros() / 1000,
+                        PlanMetrics.FRAME.getP99Micros() / 1000),
+                String.format("Draw %.1f ms (p99 %.1f ms)", PlanMetrics.DRAW.getLastMicros() / 1000,
+                        PlanMetrics.DRAW.getP99Micros() / 1000),
+                String.format("Placements %d, %d attempts", PlanMetrics.PLACEMENT.getCount(),
+                        PlanMetrics.getPlacementAttempts()),
+                String.format("Booths %d", controller.getFloorPlan().size())
+        };
+        FontMetrics metrics = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        Insets insets = mainPanel.getInsets();
+        int x = insets.left + 4, y = insets.top + 4, lineHeight = metrics.getHeight();
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(x, y, width + 12, lines.length * lineHeight + 8);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], x + 6, y + 4 + i * lineHeight + metrics.getAscent());
+        }
+    }
+
+    //Undoes or redoes the latest edit, not while a booth is being dragged since the drag is not an edit yet
+    private void undoOrRedo(boolean undo) {
+        if (draggingShape != null) {
+            return;
+        }
+        boolean changed = undo ? controller.undo() : controller.redo();
+        statusLabel.setText(changed ? " " : undo ? "Nothing to undo." : "Nothing to redo.");
+        mainPanel.repaint();
+    }
+
     //Creates shape panel
     private void setupShapePanel() {
         shapePanel = new JPanel();
@@ -114,8 +312,32 @@ public class BoothFloorPlan extends JFrame {
         mainPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
+                long start = PlanMetrics.start();
                 super.paintComponent(g);
-                controller.drawFloorPlan(g);
+                if (cachedRenderingItem.isSelected()) {
+                    renderer.render(g, controller.getFloorPlan(), controller.getSelection(), viewport,
+                            getWidth(), getHeight(), getBackground(), getGraphicsConfiguration());
+                } else {
+                    Graphics2D world = (Graphics2D) g.create();
+                    viewport.apply(world);
+                    if (viewport.isDetailed()) {
+                        controller.drawFloorPlan(world);
+                    } else {
+                        controller.getFloorPlan().drawDensity(world, viewport.visibleWorld(getWidth(), getHeight()), viewport.getScale());
+                    }
+                    world.dispose();
+                }
+                if (marqueeStart != null) {
+                    Rectangle marquee = viewport.toScreen(marqueeArea());
+                    g.setColor(new Color(0, 120, 215, 40));
+                    g.fillRect(marquee.x, marquee.y, marquee.width, marquee.height);
+                    g.setColor(new Color(0, 120, 215));
+                    g.drawRect(marquee.x, marquee.y, marquee.width, marquee.height);
+                }
+                PlanMetrics.FRAME.stop(start);
+                if (performanceOverlayItem.isSelected()) {
+                    drawPerformanceOverlay(g);
+                }
             }
         };
         Border mainPanelBorder = BorderFactory.createCompoundBorder(
@@ -125,6 +347,13 @@ public class BoothFloorPlan extends JFrame {
         add(mainPanel, BorderLayout.CENTER);
     }
 
+    //Creates status bar under the drawing area for background work such as saving
+    private void setupStatusBar() {
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
     //Adds shape selction options to shape panel
     private void addShapeButtons() {
         addShapeButton("Large", 100, 60, Color.BLUE);
@@ -136,7 +365,7 @@ public class BoothFloorPlan extends JFrame {
     private void addShapeButton(String name, int width, int height, Color color) {
         JButton button = new JButton(name);
         button.addActionListener(e -> {
-            boolean added = controller.addShape(width, height, color, mainPanel.getWidth(), mainPanel.getHeight());
+            boolean added = controller.addShape(width, height, color, hallWidth(), hallHeight());
             if (!added) {
                 JOptionPane.showMessageDialog(this, "No space available for new shape", "Warning", JOptionPane.WARNING_MESSAGE);
             }
@@ -145,14 +374,87 @@ public class BoothFloorPlan extends JFrame {
         shapePanel.add(button);
     }
 
-    //Creates delete button in shape panel and allows deletion of single booth
+    //Reads booths from an exhibitor CSV and packs them into the drawing area in one batch
+    private void importBooths() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            List<BoothRequest> requests = BoothRequest.readCsv(chooser.getSelectedFile().toPath());
+            FloorPlanController.BatchResult result = controller.addShapes(requests, hallWidth(), hallHeight());
+            mainPanel.repaint();
+            JOptionPane.showMessageDialog(this, "Placed " + result.getPlaced().size() + " of " + requests.size() + " booths.",
+                    "Import Booths", result.getUnplaced().isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error importing booths: " + ex.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    //Writes the plan as SVG or PDF pages on the plan I/O thread, from a snapshot so editing can go on meanwhile
+    private void exportPlan() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("SVG or PDF", "svg", "pdf"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path chosen = chooser.getSelectedFile().toPath();
+        String name = chosen.getFileName().toString().toLowerCase();
+        Path target = name.endsWith(PlanExporter.SVG_EXTENSION) || name.endsWith(PlanExporter.PDF_EXTENSION) ? chosen
+                : chosen.resolveSibling(chosen.getFileName() + PlanExporter.PDF_EXTENSION);
+        String size = JOptionPane.showInputDialog(this,
+                "Page size in plan units, such as 1000x800, or empty for a single page:", "");
+        if (size == null) {
+            return;
+        }
+        int[] page = {0, 0};
+        if (!size.trim().isEmpty()) {
+            String[] parts = size.trim().toLowerCase().split("x");
+            try {
+                page = new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                page = new int[] {-1, -1};
+            }
+            if (parts.length != 2 || page[0] <= 0 || page[1] <= 0) {
+                JOptionPane.showMessageDialog(this, "Page size must look like 1000x800.", "Export Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+        int pageWidth = page[0], pageHeight = page[1];
+        PlanSnapshot snapshot = controller.getFloorPlan().snapshot();
+        statusLabel.setText("Exporting " + target.getFileName() + "...");
+        PlanSaver.execute(() -> {
+            String status;
+            try {
+                int pages = PlanExporter.export(snapshot, target, pageWidth, pageHeight);
+                status = "Exported " + pages + (pages == 1 ? " page" : " pages") + " to " + target.getFileName() + ".";
+            } catch (IOException | IllegalArgumentException e) {
+                status = "Export failed: " + e.getMessage();
+            }
+            String result = status;
+            SwingUtilities.invokeLater(() -> statusLabel.setText(result));
+        });
+    }
+
+    //Asks for a name and groups the selected booths into a zone of that name
+    private void groupIntoZone() {
+        if (controller.getSelection().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Select the booths of the zone first.", "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String name = JOptionPane.showInputDialog(this, "Enter a name for the zone, such as a hall or aisle:");
+        if (name != null && !name.trim().isEmpty()) {
+            Zone zone = controller.createZone(name.trim());
+            statusLabel.setText("Zone " + zone.getName() + " holds " + zone.size() + " booths.");
+            mainPanel.repaint();
+        }
+    }
+
+    //Creates delete button in shape panel and allows deletion of the selected booths
     private void addDeleteButton() {
         JButton deleteButton = new JButton("Delete");
         deleteButton.addActionListener(e -> {
-            CustomRectangle selectedShape = controller.getSelectedShape();
-            if (selectedShape != null) {
-                controller.getFloorPlan().remove(selectedShape); // Remove the selected shape
-                controller.selectShape(null); // Deselect shape after deletion
+            if (controller.deleteSelection()) { // Remove and deselect the selected shapes
                 mainPanel.repaint();
             } else {
                 JOptionPane.showMessageDialog(this, "No shape selected for deletion.", "Warning", JOptionPane.WARNING_MESSAGE);
@@ -181,26 +483,47 @@ public class BoothFloorPlan extends JFrame {
         shapePanel.add(saveButton);
     }
 
-    //Method to save file
+    //Method to save file, the write happens in the background and the status bar reports when it is done
     private void saveFloorPlan() {
+        saveFloorPlan(null);
+    }
+
+    //Saves the file and then runs afterSave on the event thread
+    private void saveFloorPlan(Runnable afterSave) {
         if (planName == null) {
             planName = JOptionPane.showInputDialog(this, "Enter a name for the floor plan:");
         }
         if (planName != null && !planName.isEmpty()) {
-            try {
-                File folder = new File("saved_plans");
-                if (!folder.exists()) {
-                    folder.mkdir();
+            PlanJournal journal = controller.getJournal();
+            if (journal == null) {
+                try {
+                    journal = PlanJournal.create(planName, controller.getFloorPlan());
+                    useJournal(journal);
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(this, "Error saving floor plan.", "Save Error", JOptionPane.ERROR_MESSAGE);
+                    if (afterSave != null) {
+                        afterSave.run();
+                    }
+                    return;
                 }
-                FileOutputStream fileOut = new FileOutputStream("saved_plans/" + planName + ".ser");
-                ObjectOutputStream out = new ObjectOutputStream(fileOut);
-                out.writeObject(controller.getFloorPlan());
-                out.close();
-                fileOut.close();
-                JOptionPane.showMessageDialog(this, "Floor plan saved successfully.", "Save Successful", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException i) {
-                JOptionPane.showMessageDialog(this, "Error saving floor plan.", "Save Error", JOptionPane.ERROR_MESSAGE);
             }
+            //A save is a journal compaction: the snapshot absorbs every edit journaled so far
+            statusLabel.setText("Saving " + planName + "...");
+            long start = PlanMetrics.start();
+            journal.compact(error -> {
+                PlanMetrics.SAVE.stop(start);
+                if (error == null) {
+                    statusLabel.setText("Floor plan saved successfully at " + LocalTime.now().withNano(0) + ".");
+                } else {
+                    statusLabel.setText("Save failed.");
+                    JOptionPane.showMessageDialog(this, "Error saving floor plan.", "Save Error", JOptionPane.ERROR_MESSAGE);
+                }
+                if (afterSave != null) {
+                    afterSave.run();
+                }
+            });
+        } else if (afterSave != null) {
+            afterSave.run();
         }
     }
 
@@ -214,6 +537,7 @@ public class BoothFloorPlan extends JFrame {
 
     //Method to navigate back to Landing Page
     private void returnToLandingPage() {
+        closeJournal();
         SwingUtilities.invokeLater(() -> {
             LandingPage landingPage = new LandingPage();
             landingPage.setVisible(true);
@@ -229,25 +553,54 @@ public class BoothFloorPlan extends JFrame {
                 JOptionPane.YES_NO_CANCEL_OPTION);
     
         if (option == JOptionPane.YES_OPTION) {
-            saveFloorPlan();
-            returnToLandingPage();
+            saveFloorPlan(this::returnToLandingPage);
         } else if (option == JOptionPane.NO_OPTION) {
+            if (controller.getJournal() != null) {
+                controller.getJournal().discard(); // Drop the autosaved edits the user chose not to keep
+            }
             returnToLandingPage();
         }
         // If CANCEL_OPTION, do nothing and stay on the current page
     }
 
-    //Method to load existing file and paint shape images on drawing area
+    private void useJournal(PlanJournal journal) {
+        journal.setOnFailure(this::autosaveFailed);
+        controller.setJournal(journal);
+    }
+
+    //The journal stopped after a failed write, edits since the last save are only kept by saving again
+    private void autosaveFailed(IOException error) {
+        statusLabel.setText("Autosave failed.");
+        JOptionPane.showMessageDialog(this, "Error autosaving floor plan: " + error.getMessage()
+                        + "\nChanges are no longer autosaved until the plan is saved.", "Autosave Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    //Writes out autosaved edits that are still buffered, leaving them to be recovered next time
+    private void closeJournal() {
+        if (controller.getJournal() != null) {
+            controller.getJournal().close();
+            controller.setJournal(null);
+        }
+    }
+
+    //Method to load existing file, replay any autosaved edits and paint shape images on drawing area
     private void loadFloorPlan(String planName) {
         try {
-            FileInputStream fileIn = new FileInputStream("saved_plans/" + planName + ".ser");
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            FloorPlan loadedPlan = (FloorPlan) in.readObject();
-            in.close();
-            fileIn.close();
+            long start = PlanMetrics.start();
+            FloorPlan loadedPlan = PlanJournal.load(planName);
+            PlanJournal journal = PlanJournal.open(planName, loadedPlan);
+            PlanMetrics.LOAD.stop(start);
             controller.setFloorPlan(loadedPlan);
+            useJournal(journal);
+            Rectangle bounds = loadedPlan.getExtent();
+            planWidth = bounds == null ? 0 : Math.max(0, bounds.x + bounds.width);
+            planHeight = bounds == null ? 0 : Math.max(0, bounds.y + bounds.height);
+            if (journal.getRecoveredCount() > 0) {
+                statusLabel.setText("Recovered " + journal.getRecoveredCount() + " unsaved changes.");
+            }
             mainPanel.repaint();
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error loading floor plan.", "Load Error", JOptionPane.ERROR_MESSAGE);
         }
     }
@@ -260,244 +613,3 @@ public class BoothFloorPlan extends JFrame {
         });
     }
 }
-
-
-// Controller Pattern
-class FloorPlanController {
-    private FloorPlan floorPlan;
-    private RectangleFactory rectangleFactory;
-    private Random random;
-    private CustomRectangle selectedShape; // Track the currently selected shape
-
-    public FloorPlanController() {
-        this.floorPlan = new FloorPlan();
-        this.rectangleFactory = new RectangleFactory();
-        this.random = new Random();
-    }
-
-    //Calls nonoverlapping to find space and adds new shape image to drawing area
-    public boolean addShape(int width, int height, Color color, int maxWidth, int maxHeight) {
-        CustomRectangle newShape = generateNonOverlappingShape(width, height, color, maxWidth, maxHeight);
-        if (newShape != null) {
-            floorPlan.add(newShape);
-            return true;
-        }
-        return false;
-    }
-
-    //Method to clear all images from drawing area
-    public void clearFloorPlan() {
-        floorPlan.clear();
-        selectedShape = null; 
-    }
-
-    //Sends Floorplan to GUI
-    public void drawFloorPlan(Graphics g) {
-        floorPlan.draw(g);
-    }
-
-    //Method to find unoccupied space in drawing area
-    private CustomRectangle generateNonOverlappingShape(int width, int height, Color color, int maxWidth, int maxHeight) {
-        int maxAttempts = 100;
-        for (int i = 0; i < maxAttempts; i++) {
-            int x = random.nextInt(maxWidth - width + 1);
-            int y = random.nextInt(maxHeight - height + 1);
-            CustomRectangle newShape = rectangleFactory.getRectangle(width, height, color);
-            newShape.setPosition(x, y);
-            if (!floorPlan.overlapsWithExistingShapes(newShape)) {
-                return newShape;
-            }
-        }
-        return null;
-    }
-
-    //gets Floorplan
-    public FloorPlan getFloorPlan() {
-        return floorPlan;
-    }
-
-    //sets Floorplan
-    public void setFloorPlan(FloorPlan floorPlan) {
-        this.floorPlan = floorPlan;
-    }
-
-    //Selects shape at certain coordinate
-    public CustomRectangle getShapeAt(int x, int y) {
-        for (Shape shape : floorPlan) {
-            if (shape instanceof CustomRectangle) {
-                CustomRectangle rect = (CustomRectangle) shape;
-                if (x >= rect.x && x <= rect.x + rect.width && y >= rect.y && y <= rect.y + rect.height) {
-                    return rect;
-                }
-            }
-        }
-        return null;
-    }
-
-    //Method to change status of selected shape
-    public void selectShape(CustomRectangle shape) {
-        if (selectedShape != null) {
-            selectedShape.setSelected(false);
-        }
-        selectedShape = shape;
-        if (selectedShape != null) {
-            selectedShape.setSelected(true);
-        }
-    }
-
-    //getter
-    public CustomRectangle getSelectedShape() {
-        return selectedShape;
-    }
-}
-
-//////////////////////////////////////////////////////////////// Expert Pattern
-interface Shape extends Iterable<Shape> {
-    void draw(Graphics g);
-    boolean intersects(Shape other);
-    void setPosition(int x, int y);
-}
-
-//Makes shape serializeable for saving and loading data
-class CustomRectangle implements Shape, Serializable {
-    private static final long serialVersionUID = 1L;
-    public int x, y;
-    int width;
-    int height;
-    Color color;
-    private boolean dragging;
-    private boolean selected = false; // Add a selected flag
-
-    public CustomRectangle(int width, int height, Color color) {
-        this.width = width;
-        this.height = height;
-        this.color = color;
-    }
-
-    @Override
-    public void setPosition(int x, int y) {
-        this.x = x;
-        this.y = y;
-    }
-
-    public void startDragging(int startX, int startY) {
-        dragging = true;
-        this.x = startX;
-        this.y = startY;
-    }
-
-    public void dragTo(int newX, int newY) {
-        if (dragging) {
-            this.x = newX;
-            this.y = newY;
-        }
-    }
-
-    public void stopDragging() {
-        dragging = false;
-    }
-
-    public void setSelected(boolean selected) {
-        this.selected = selected;
-    }
-
-    public boolean isSelected() {
-        return selected;
-    }
-
-    //Draws a highlighted border when image is selected
-    @Override
-    public void draw(Graphics g) {
-        g.setColor(color);
-        g.fillRect(x, y, width, height);
-        if (selected) {
-            g.setColor(Color.RED);
-            g.drawRect(x - 2, y - 2, width + 4, height + 4); 
-        }
-        g.setColor(Color.BLACK);
-        g.drawRect(x, y, width, height);
-    }
-
-    //Checks if objects intersect
-    @Override
-    public boolean intersects(Shape other) {
-        if (other instanceof CustomRectangle) {
-            CustomRectangle otherRect = (CustomRectangle) other;
-            return !(this.x + this.width <= otherRect.x || 
-                     otherRect.x + otherRect.width <= this.x || 
-                     this.y + this.height <= otherRect.y || 
-                     otherRect.y + otherRect.height <= this.y);
-        }
-        return false;
-    }
-
-    ////////////////////////////////////////////////////////////////////Iterator pattern
-    @Override
-    public Iterator<Shape> iterator() {
-        return Collections.emptyIterator();
-    }
-}
-
-////////////////////////////////////////////////////////////////////////Composite Pattern
-class FloorPlan implements Shape, Serializable {
-    private static final long serialVersionUID = 1L;
-    private final ArrayList<Shape> components = new ArrayList<>();
-
-    @Override
-    public void draw(Graphics g) {
-        for (Shape component : components) {
-            component.draw(g);
-        }
-    }
-
-    public void remove(CustomRectangle shape) {
-        components.remove(shape);
-    }
-
-    @Override
-    public boolean intersects(Shape other) {
-        for (Shape component : components) {
-            if (component.intersects(other)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    @Override
-    public void setPosition(int x, int y) {
-        // Not applicable for FloorPlan
-    }
-
-    public void add(Shape component) {
-        components.add(component);
-    }
-
-    public void clear() {
-        components.clear();
-    }
-
-    public boolean overlapsWithExistingShapes(Shape newShape) {
-        return intersects(newShape);
-    }
-
-    /////////////////////////////////////////////////////////////////////////////////Iterator Pattern
-    @Override
-    public Iterator<Shape> iterator() {
-        return components.iterator();
-    }
-}
-
-///////////////////////////////////////////////////////////////////////////////////// Flyweight pattern
-class RectangleFactory {
-    private final HashMap<String, CustomRectangle> rectangles = new HashMap<>();
-
-    public CustomRectangle getRectangle(int width, int height, Color color) {
-        String key = width + "x" + height + color.getRGB();
-        if (!rectangles.containsKey(key)) {
-            rectangles.put(key, new CustomRectangle(width, height, color));
-        }
-        CustomRectangle prototype = rectangles.get(key);
-        return new CustomRectangle(prototype.width, prototype.height, prototype.color);
-    }
-}
\ No newline at end of file
@@ -0,0 +1,56 @@
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+//One booth to be placed by FloorPlanController.addShapes
+class BoothRequest {
+    final int width;
+    final int height;
+    final Color color;
+
+    public BoothRequest(int width, int height, Color color) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Booth size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.color = color;
+    }
+
+    //Reads exhibitor rows of the form width,height,#RRGGBB, blank lines and lines starting with # are skipped
+    public static List<BoothRequest> readCsv(Path file) throws IOException {
+        List<BoothRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 3) {
+                    throw new IOException("Line " + lineNumber + ": expected width,height,color");
+                }
+                try {
+                    requests.add(new BoothRequest(Integer.parseInt(fields[0].trim()),
+                            Integer.parseInt(fields[1].trim()), Color.decode(fields[2].trim())));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " #" + String.format("%06X", color.getRGB() & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,325 @@
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+//////////////////////////////////////////////////////////////////////////////// Compact booth storage
+//Booths stored as rows of primitive columns instead of one object each: x, y, the id of the booth's shared
+//BoothType and a materialized bit, 12 bytes a booth plus a share of the cell index. Rows are in drawing order,
+//so a row's number is the booth's order in the FloorPlan. Drawing, overlap checks and saving read the columns
+//directly; a CustomRectangle is only created for a row once the editor needs the booth as an object. A row
+//never changes once added, only its materialized bit does.
+class BoothTable implements PlanSource {
+    static final int MATERIALIZED = 1; // The booth is held by the FloorPlan as a CustomRectangle
+    static final int CELL_SIZE = 64;
+    static final int UNINDEXED_ROWS = 1024; // Rows appended past the index that are scanned rather than indexed
+
+    private int size;
+    private int[] x;
+    private int[] y;
+    private int[] type;
+    private final BitSet materialized = new BitSet();
+    private int unloaded;
+
+    //Rows grouped by the cell holding their top-left corner. Rows appended since the index was built are scanned
+    //one by one, until there are enough of them to be worth building it again on the next query.
+    //Cell c holds rows entries[cellFirst[c]..cellFirst[c + 1]), and is found through an open addressing table
+    //from cell key to cell number + 1, where 0 marks an empty slot.
+    private long[] slotKeys;
+    private int[] slotCells;
+    private int cells = -1; // -1 until the index is built
+    private int indexed; // Rows the index covers, from the first
+    private int[] cellFirst;
+    private int[] entries;
+    private int maxBoothWidth;
+    private int maxBoothHeight;
+    private int[] found = new int[16]; // Scratch space for queries
+
+    public BoothTable(int capacity) {
+        capacity = Math.max(capacity, 16);
+        x = new int[capacity];
+        y = new int[capacity];
+        type = new int[capacity];
+    }
+
+    //Appends a booth after all others and returns its row
+    public int add(int boothX, int boothY, BoothType boothType, int boothFlags) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            type = Arrays.copyOf(type, capacity);
+        }
+        x[size] = boothX;
+        y[size] = boothY;
+        type[size] = boothType.id;
+        if ((boothFlags & MATERIALIZED) != 0) {
+            materialized.set(size);
+        } else {
+            unloaded++;
+        }
+        maxBoothWidth = Math.max(maxBoothWidth, boothType.width);
+        maxBoothHeight = Math.max(maxBoothHeight, boothType.height);
+        return size++;
+    }
+
+    @Override
+    public int recordCount() {
+        return size;
+    }
+
+    @Override
+    public int unloadedCount() {
+        return unloaded;
+    }
+
+    @Override
+    public Rectangle bounds() {
+        Rectangle bounds = null;
+        for (int row = 0; row < size; row++) {
+            BoothType boothType = RectangleFactory.getType(type[row]);
+            Rectangle booth = new Rectangle(x[row], y[row], boothType.width, boothType.height);
+            bounds = bounds == null ? booth : bounds.union(booth);
+        }
+        return bounds;
+    }
+
+    //Materializes the unread booths overlapping or touching the area, in drawing order
+    @Override
+    public List<CustomRectangle> load(int areaX, int areaY, int width, int height) {
+        int[] rows = rowsIn(areaX - 1, areaY - 1, width + 2, height + 2);
+        List<CustomRectangle> booths = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            booths.add(materialize(row));
+        }
+        return booths;
+    }
+
+    @Override
+    public List<CustomRectangle> loadAll() {
+        List<CustomRectangle> booths = new ArrayList<>(unloaded);
+        for (int row = 0; row < size && unloaded > 0; row++) {
+            if (!materialized.get(row)) {
+                booths.add(materialize(row));
+            }
+        }
+        return booths;
+    }
+
+    //Unread rows whose booth overlaps the area, in drawing order
+    public int[] rowsIn(int areaX, int areaY, int width, int height) {
+        int count = find(areaX, areaY, width, height, false);
+        int[] rows = Arrays.copyOf(found, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    //Whether any unread booth overlaps the area, edges touching do not count
+    public boolean intersects(int areaX, int areaY, int width, int height) {
+        return find(areaX, areaY, width, height, true) > 0;
+    }
+
+    //Visits the unread booths overlapping the area without reading them into objects
+    public void forEachIn(int areaX, int areaY, int width, int height, Visitor visitor) {
+        int count = find(areaX, areaY, width, height, false);
+        for (int i = 0; i < count; i++) {
+            int row = found[i];
+            visitor.visit(x[row], y[row], RectangleFactory.getType(type[row]));
+        }
+    }
+
+    public void draw(Graphics g, int row) {
+        RectangleFactory.getType(type[row]).draw(g, x[row], y[row]);
+    }
+
+    //Visits the unread rows from one row up to but not including another, in drawing order
+    @Override
+    public void forEach(int from, int to, Visitor visitor) {
+        visit(x, y, type, materialized, from, Math.min(to, size), visitor);
+    }
+
+    //Rows never change, so the unread ones are the columns as they are now and a copy of the materialized bits
+    @Override
+    public Rows unread() {
+        int[] rowX = x, rowY = y, rowType = type;
+        int rows = size;
+        BitSet read = (BitSet) materialized.clone();
+        return (from, to, visitor) -> visit(rowX, rowY, rowType, read, from, Math.min(to, rows), visitor);
+    }
+
+    private static void visit(int[] x, int[] y, int[] type, BitSet read, int from, int to, Visitor visitor) {
+        for (int row = read.nextClearBit(from); row < to; row = read.nextClearBit(row + 1)) {
+            visitor.visit(x[row], y[row], RectangleFactory.getType(type[row]));
+        }
+    }
+
+    //Counts the unread booths into a density map, for booths that never existed as objects
+    public void addTo(DensityMap density) {
+        for (int row = 0; row < size; row++) {
+            if (!materialized.get(row)) {
+                BoothType boothType = RectangleFactory.getType(type[row]);
+                density.add(x[row], y[row], boothType.width, boothType.height);
+            }
+        }
+    }
+
+    private CustomRectangle materialize(int row) {
+        CustomRectangle rect = new CustomRectangle(RectangleFactory.getType(type[row]));
+        rect.setPosition(x[row], y[row]);
+        rect.order = row;
+        materialized.set(row);
+        unloaded--;
+        return rect;
+    }
+
+    //Collects unread rows overlapping the area into found and returns how many, or stops at the first one
+    private int find(int areaX, int areaY, int width, int height, boolean firstOnly) {
+        if (unloaded == 0) {
+            return 0;
+        }
+        index();
+        int count = 0;
+        //A booth is filed under its top-left corner, so it can reach into the area from up to one booth size away
+        int column0 = Math.floorDiv(areaX - maxBoothWidth, CELL_SIZE);
+        int row0 = Math.floorDiv(areaY - maxBoothHeight, CELL_SIZE);
+        int column1 = Math.floorDiv(areaX + width, CELL_SIZE);
+        int row1 = Math.floorDiv(areaY + height, CELL_SIZE);
+        if ((long) (column1 - column0 + 1) * (row1 - row0 + 1) > cells) {
+            for (int row = 0; row < size; row++) {
+                if (overlaps(row, areaX, areaY, width, height)) {
+                    count = keep(row, count);
+                    if (firstOnly) {
+                        return count;
+                    }
+                }
+            }
+            return count;
+        }
+        for (int column = column0; column <= column1; column++) {
+            for (int cellRow = row0; cellRow <= row1; cellRow++) {
+                int cell = cellOf(FloorPlanFormat.tileKey(column, cellRow));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = cellFirst[cell]; i < cellFirst[cell + 1]; i++) {
+                    if (overlaps(entries[i], areaX, areaY, width, height)) {
+                        count = keep(entries[i], count);
+                        if (firstOnly) {
+                            return count;
+                        }
+                    }
+                }
+            }
+        }
+        for (int row = indexed; row < size; row++) {
+            if (overlaps(row, areaX, areaY, width, height)) {
+                count = keep(row, count);
+                if (firstOnly) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int keep(int row, int count) {
+        if (count == found.length) {
+            found = Arrays.copyOf(found, count * 2);
+        }
+        found[count] = row;
+        return count + 1;
+    }
+
+    private boolean overlaps(int row, int areaX, int areaY, int width, int height) {
+        if (materialized.get(row)) {
+            return false;
+        }
+        BoothType boothType = RectangleFactory.getType(type[row]);
+        return !(x[row] + boothType.width <= areaX || areaX + width <= x[row]
+                || y[row] + boothType.height <= areaY || areaY + height <= y[row]);
+    }
+
+    //Groups rows by cell with a counting sort, keeping rows of a cell in drawing order
+    private void index() {
+        if (cells >= 0 && size - indexed <= Math.max(UNINDEXED_ROWS, indexed / 16)) {
+            return;
+        }
+        int capacity = 16;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+        slotKeys = new long[capacity];
+        slotCells = new int[capacity];
+        cells = 0;
+        int[] cellOfRow = new int[size];
+        int[] counts = new int[16];
+        for (int row = 0; row < size; row++) {
+            long key = FloorPlanFormat.tileKey(Math.floorDiv(x[row], CELL_SIZE), Math.floorDiv(y[row], CELL_SIZE));
+            int slot = slotOf(key);
+            if (slotCells[slot] == 0) {
+                slotKeys[slot] = key;
+                slotCells[slot] = ++cells;
+                if (cells == counts.length) {
+                    counts = Arrays.copyOf(counts, cells * 2);
+                }
+            }
+            cellOfRow[row] = slotCells[slot] - 1;
+            counts[cellOfRow[row]]++;
+        }
+        if (cells * 4 < capacity && capacity > 16) {
+            shrinkSlots();
+        }
+        cellFirst = new int[cells + 1];
+        for (int c = 0; c < cells; c++) {
+            cellFirst[c + 1] = cellFirst[c] + counts[c];
+        }
+        int[] next = Arrays.copyOf(cellFirst, cells);
+        entries = new int[size];
+        for (int row = 0; row < size; row++) {
+            entries[next[cellOfRow[row]]++] = row;
+        }
+        indexed = size;
+    }
+
+    //Booths usually share cells, so the table sized for one cell per row is mostly empty
+    private void shrinkSlots() {
+        long[] oldKeys = slotKeys;
+        int[] oldCells = slotCells;
+        int capacity = 16;
+        while (capacity < cells * 2) {
+            capacity *= 2;
+        }
+        slotKeys = new long[capacity];
+        slotCells = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCells[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                slotKeys[slot] = oldKeys[i];
+                slotCells[slot] = oldCells[i];
+            }
+        }
+    }
+
+    //Cell number for a key, -1 when no booth starts in that cell
+    private int cellOf(long key) {
+        return slotCells[slotOf(key)] - 1;
+    }
+
+    //Slot holding the key, or the empty slot where it would go
+    private int slotOf(long key) {
+        int mask = slotKeys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (slotCells[slot] != 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    //Receives booths as primitive values, without materializing them
+    interface Visitor {
+        void visit(int x, int y, BoothType type);
+    }
+}
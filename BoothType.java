@@ -0,0 +1,33 @@
+import java.awt.Color;
+import java.awt.Graphics;
+
+//////////////////////////////////////////////////////////////////////////////// Flyweight
+//Intrinsic state of a booth: everything except its position. One instance is shared by every booth of the
+//same size and color, handed out by RectangleFactory; the position is passed in when drawing.
+final class BoothType {
+    final int id; // Index in the RectangleFactory registry, stored in place of the type in BoothTable rows
+    final int width;
+    final int height;
+    final Color color;
+    final int argb;
+
+    BoothType(int id, int width, int height, Color color) {
+        this.id = id;
+        this.width = width;
+        this.height = height;
+        this.color = color;
+        this.argb = color != null ? color.getRGB() : 0;
+    }
+
+    public int getArgb() {
+        return argb;
+    }
+
+    //Draws a booth of this type with its top-left corner at x, y
+    public void draw(Graphics g, int x, int y) {
+        g.setColor(color);
+        g.fillRect(x, y, width, height);
+        g.setColor(Color.BLACK);
+        g.drawRect(x, y, width, height);
+    }
+}
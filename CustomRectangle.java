@@ -0,0 +1,141 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+
+//Makes shape serializeable for saving and loading data
+class CustomRectangle implements Shape, Serializable {
+    private static final long serialVersionUID = 1L;
+    //Serialized field by field as before size and color were shared, so old saved plans keep loading
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("x", int.class),
+            new ObjectStreamField("y", int.class),
+            new ObjectStreamField("width", int.class),
+            new ObjectStreamField("height", int.class),
+            new ObjectStreamField("color", Color.class),
+            new ObjectStreamField("dragging", boolean.class),
+            new ObjectStreamField("selected", boolean.class)
+    };
+    public int x, y;
+    BoothType type; // Size and color, shared with every booth that looks the same
+    private boolean dragging;
+    private boolean selected = false; // Add a selected flag
+    transient int order; // Position in the owning FloorPlan's drawing order
+    static final int PAINT_MARGIN = 2; // Selection border drawn around the booth
+
+    public CustomRectangle(BoothType type) {
+        this.type = type;
+    }
+
+    public CustomRectangle(int width, int height, Color color) {
+        this(RectangleFactory.getType(width, height, color));
+    }
+
+    public int getWidth() {
+        return type.width;
+    }
+
+    public int getHeight() {
+        return type.height;
+    }
+
+    public Color getColor() {
+        return type.color;
+    }
+
+    @Override
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void startDragging(int startX, int startY) {
+        dragging = true;
+        this.x = startX;
+        this.y = startY;
+    }
+
+    public void dragTo(int newX, int newY) {
+        if (dragging) {
+            this.x = newX;
+            this.y = newY;
+        }
+    }
+
+    public void stopDragging() {
+        dragging = false;
+    }
+
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    public void setSelected(boolean selected) {
+        this.selected = selected;
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    //Area touched by draw, including the selection border
+    public Rectangle getPaintBounds() {
+        return new Rectangle(x - PAINT_MARGIN, y - PAINT_MARGIN, type.width + 2 * PAINT_MARGIN + 1, type.height + 2 * PAINT_MARGIN + 1);
+    }
+
+    //Draws a highlighted border when image is selected
+    @Override
+    public void draw(Graphics g) {
+        type.draw(g, x, y);
+        if (selected) {
+            g.setColor(Color.RED);
+            g.drawRect(x - PAINT_MARGIN, y - PAINT_MARGIN, type.width + 2 * PAINT_MARGIN, type.height + 2 * PAINT_MARGIN);
+        }
+    }
+
+    //Checks if objects intersect
+    @Override
+    public boolean intersects(Shape other) {
+        if (other instanceof CustomRectangle) {
+            CustomRectangle otherRect = (CustomRectangle) other;
+            return !(this.x + this.getWidth() <= otherRect.x || 
+                     otherRect.x + otherRect.getWidth() <= this.x || 
+                     this.y + this.getHeight() <= otherRect.y || 
+                     otherRect.y + otherRect.getHeight() <= this.y);
+        }
+        return false;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("x", x);
+        fields.put("y", y);
+        fields.put("width", type.width);
+        fields.put("height", type.height);
+        fields.put("color", type.color);
+        fields.put("dragging", dragging);
+        fields.put("selected", selected);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        x = fields.get("x", 0);
+        y = fields.get("y", 0);
+        type = RectangleFactory.getType(fields.get("width", 0), fields.get("height", 0), (Color) fields.get("color", null));
+        dragging = fields.get("dragging", false);
+        selected = fields.get("selected", false);
+    }
+
+    ////////////////////////////////////////////////////////////////////Iterator pattern
+    @Override
+    public Iterator<Shape> iterator() {
+        return Collections.emptyIterator();
+    }
+}
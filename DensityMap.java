@@ -0,0 +1,154 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+//////////////////////////////////////////////////////////////////////////////// Level of detail
+//Booth area summed per cell over a pyramid of grid levels, each four times coarser than the last.
+//When the plan is zoomed far out, drawing picks the level whose cells are a few pixels wide and fills
+//one block per cell, so the cost depends on the screen size rather than on the number of booths.
+class DensityMap {
+    static final int BASE_CELL_SIZE = 64;
+    static final int LEVELS = 7;
+    static final int MIN_CELL_PIXELS = 8;
+
+    private static final Color[] SHADES = new Color[16];
+
+    static {
+        for (int i = 0; i < SHADES.length; i++) {
+            SHADES[i] = new Color(40, 70, 160, 40 + i * 215 / (SHADES.length - 1));
+        }
+    }
+
+    private final AreaTable[] levels = new AreaTable[LEVELS];
+    private long totalArea;
+
+    public DensityMap() {
+        clear();
+    }
+
+    public void add(CustomRectangle rect) {
+        add(rect.x, rect.y, rect.getWidth(), rect.getHeight());
+    }
+
+    public void add(int x, int y, int width, int height) {
+        update(x + width / 2, y + height / 2, (long) width * height);
+    }
+
+    //Must be called before the booth's position changes
+    public void remove(CustomRectangle rect) {
+        update(rect.x + rect.getWidth() / 2, rect.y + rect.getHeight() / 2, -(long) rect.getWidth() * rect.getHeight());
+    }
+
+    public void clear() {
+        totalArea = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            levels[level] = new AreaTable();
+        }
+    }
+
+    //Area of all booths counted, overlaps counted twice
+    public long totalArea() {
+        return totalArea;
+    }
+
+    //Draws density blocks for the visible world area, g must already map world to screen coordinates
+    public void draw(Graphics g, Rectangle visible, double scale) {
+        int level = 0;
+        while (level < LEVELS - 1 && cellSize(level) * scale < MIN_CELL_PIXELS) {
+            level++;
+        }
+        int cellSize = cellSize(level);
+        double cellArea = (double) cellSize * cellSize;
+        AreaTable table = levels[level];
+        int column0 = Math.floorDiv(visible.x, cellSize);
+        int row0 = Math.floorDiv(visible.y, cellSize);
+        int column1 = Math.floorDiv(visible.x + visible.width, cellSize);
+        int row1 = Math.floorDiv(visible.y + visible.height, cellSize);
+        for (int column = column0; column <= column1; column++) {
+            for (int row = row0; row <= row1; row++) {
+                long area = table.get(key(column, row));
+                if (area > 0) {
+                    int shade = (int) Math.min(SHADES.length - 1, area / cellArea * (SHADES.length - 1));
+                    g.setColor(SHADES[shade]);
+                    g.fillRect(column * cellSize, row * cellSize, cellSize, cellSize);
+                }
+            }
+        }
+    }
+
+    //A booth's area is counted in the cell holding its center on every level
+    private void update(int centerX, int centerY, long area) {
+        totalArea += area;
+        for (int level = 0; level < LEVELS; level++) {
+            int cellSize = cellSize(level);
+            levels[level].add(key(Math.floorDiv(centerX, cellSize), Math.floorDiv(centerY, cellSize)), area);
+        }
+    }
+
+    private static int cellSize(int level) {
+        return BASE_CELL_SIZE << (2 * level);
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    //Open addressing map from cell key to summed area, cells are never removed
+    private static final class AreaTable {
+        private long[] keys = new long[64];
+        private long[] areas = new long[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return areas[slot];
+                }
+            }
+            return 0;
+        }
+
+        void add(long key, long area) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    areas[slot] += area;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                add(key, area);
+                return;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            areas[slot] = area;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldAreas = areas;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            areas = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldKeys[i], oldAreas[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.Collection;
+import java.util.Map;
+
+//////////////////////////////////////////////////////////////////////////////// Edit history
+//Undo and redo for the editor. Edits are kept as deltas in a ring of primitive columns, the operation, the
+//booth type and where the booth was and went, so an entry costs the same on any size of plan. An edit of
+//several booths, a bulk insert, a group move or delete, also keeps the positions and types of its booths,
+//and a clear keeps the storage the plan let go of, so undoing a clear puts every booth back without copying
+//them. Past the depth limit the oldest edit is forgotten. Not thread-safe, the controller only touches it
+//under the floor plan's lock.
+class EditHistory {
+    static final int DEFAULT_DEPTH = 1000;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte MOVE = 3;
+    private static final byte ADD_ALL = 4;
+    private static final byte REMOVE_ALL = 5;
+    private static final byte MOVE_ALL = 6;
+    private static final byte CLEAR = 7;
+    private static final byte GROUP = 8;
+
+    private byte[] operations;
+    private int[] types; // BoothType ids, -1 for edits of many booths
+    private int[] x, y; // Where the booth is added or removed, where a move starts
+    private int[] toX, toY; // Where a move ends, how far a group moved
+    //Group edits: x, y, type id of each booth, from before a move. REMOVE: the zone the booth was in.
+    //CLEAR: what the plan held. GROUP: the Zone.Grouping.
+    private Object[] payloads;
+    private int first; // Ring slot of the oldest edit
+    private int count; // Edits held, undone ones included
+    private int done; // Edits applied, the rest can be redone
+
+    EditHistory(int depth) {
+        allocate(depth);
+    }
+
+    //Changes how many edits are kept. Edits that were undone are dropped, and so are the oldest ones that no
+    //longer fit.
+    public void setDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative: " + depth);
+        }
+        byte[] oldOperations = operations;
+        int[] oldTypes = types, oldX = x, oldY = y, oldToX = toX, oldToY = toY;
+        Object[] oldPayloads = payloads;
+        int oldFirst = first, kept = Math.min(done, depth), skipped = done - kept;
+        allocate(depth);
+        for (int i = 0; i < kept; i++) {
+            int from = (oldFirst + skipped + i) % oldOperations.length;
+            operations[i] = oldOperations[from];
+            types[i] = oldTypes[from];
+            x[i] = oldX[from];
+            y[i] = oldY[from];
+            toX[i] = oldToX[from];
+            toY[i] = oldToY[from];
+            payloads[i] = oldPayloads[from];
+        }
+        count = done = kept;
+    }
+
+    public int getDepth() {
+        return operations.length;
+    }
+
+    //Whether edits are kept at all, callers can skip gathering what a bulk edit would record
+    public boolean isRecording() {
+        return operations.length > 0;
+    }
+
+    public boolean canUndo() {
+        return done > 0;
+    }
+
+    public boolean canRedo() {
+        return done < count;
+    }
+
+    //Forgets every edit, for when the editor switches to another plan
+    public void clear() {
+        allocate(operations.length);
+    }
+
+    public void recordAdd(CustomRectangle shape) {
+        record(ADD, shape.type, shape.x, shape.y, 0, 0, null);
+    }
+
+    //Records a booth removed from the zone, null for a booth of the plan itself, so undoing puts it back there
+    public void recordRemove(CustomRectangle shape, Zone zone) {
+        record(REMOVE, shape.type, shape.x, shape.y, 0, 0, zone);
+    }
+
+    public void recordMove(CustomRectangle shape, int oldX, int oldY) {
+        record(MOVE, shape.type, oldX, oldY, shape.x, shape.y, null);
+    }
+
+    public void recordAddAll(Collection<CustomRectangle> added) {
+        if (isRecording() && !added.isEmpty()) {
+            record(ADD_ALL, null, 0, 0, 0, 0, booths(added, 0, 0));
+        }
+    }
+
+    //Records booths removed together, with the zones the zoned ones among them were in
+    public void recordRemoveAll(Collection<CustomRectangle> removed, Map<CustomRectangle, Zone> zones) {
+        if (!isRecording() || removed.isEmpty()) {
+            return;
+        }
+        Zone[] from = null;
+        if (!zones.isEmpty()) {
+            from = new Zone[removed.size()];
+            int i = 0;
+            for (CustomRectangle shape : removed) {
+                from[i++] = zones.get(shape);
+            }
+        }
+        record(REMOVE_ALL, null, 0, 0, 0, 0, new Removal(booths(removed, 0, 0), from));
+    }
+
+    //Records booths that were moved together by dx, dy
+    public void recordMoveAll(Collection<CustomRectangle> moved, int dx, int dy) {
+        if (isRecording() && !moved.isEmpty()) {
+            record(MOVE_ALL, null, 0, 0, dx, dy, booths(moved, -dx, -dy));
+        }
+    }
+
+    //Records a clear along with what the plan held before it, which the history keeps alive until the clear
+    //is forgotten
+    public void recordClear(FloorPlan.Contents cleared) {
+        record(CLEAR, null, 0, 0, 0, 0, cleared);
+    }
+
+    //Records booths grouped into a new zone, the grouping keeps the zones involved alive until it is forgotten
+    public void recordGroup(Zone.Grouping grouping) {
+        record(GROUP, null, 0, 0, 0, 0, grouping);
+    }
+
+    //Reverts the latest applied edit through the editor, false when there is none
+    public boolean undo(Editor editor) {
+        if (done == 0) {
+            return false;
+        }
+        int slot = slot(done - 1);
+        BoothType type = types[slot] >= 0 ? RectangleFactory.getType(types[slot]) : null;
+        switch (operations[slot]) {
+            case ADD:
+                editor.remove(x[slot], y[slot], type);
+                break;
+            case REMOVE:
+                editor.add(x[slot], y[slot], type, (Zone) payloads[slot]);
+                break;
+            case MOVE:
+                editor.move(type, toX[slot], toY[slot], x[slot], y[slot]);
+                break;
+            case ADD_ALL:
+                editor.removeAll((int[]) payloads[slot]);
+                break;
+            case REMOVE_ALL:
+                Removal removal = (Removal) payloads[slot];
+                editor.addAll(removal.booths, removal.zones);
+                break;
+            case MOVE_ALL:
+                editor.moveAll(shifted((int[]) payloads[slot], toX[slot], toY[slot]), -toX[slot], -toY[slot]);
+                break;
+            case GROUP:
+                editor.ungroup((Zone.Grouping) payloads[slot]);
+                break;
+            default:
+                editor.restore((FloorPlan.Contents) payloads[slot]);
+                payloads[slot] = null; // The plan holds it again
+                break;
+        }
+        done--;
+        return true;
+    }
+
+    //Applies the latest undone edit again through the editor, false when there is none
+    public boolean redo(Editor editor) {
+        if (done == count) {
+            return false;
+        }
+        int slot = slot(done);
+        BoothType type = types[slot] >= 0 ? RectangleFactory.getType(types[slot]) : null;
+        switch (operations[slot]) {
+            case ADD:
+                editor.add(x[slot], y[slot], type, null);
+                break;
+            case REMOVE:
+                editor.remove(x[slot], y[slot], type);
+                break;
+            case MOVE:
+                editor.move(type, x[slot], y[slot], toX[slot], toY[slot]);
+                break;
+            case ADD_ALL:
+                editor.addAll((int[]) payloads[slot], null);
+                break;
+            case REMOVE_ALL:
+                editor.removeAll(((Removal) payloads[slot]).booths);
+                break;
+            case MOVE_ALL:
+                editor.moveAll((int[]) payloads[slot], toX[slot], toY[slot]);
+                break;
+            case GROUP:
+                editor.group((Zone.Grouping) payloads[slot]);
+                break;
+            default:
+                payloads[slot] = editor.clear();
+                break;
+        }
+        done++;
+        return true;
+    }
+
+    //A new edit drops the undone ones, and the oldest edit once the history is full
+    private void record(byte operation, BoothType type, int x, int y, int toX, int toY, Object payload) {
+        int depth = operations.length;
+        if (depth == 0) {
+            return;
+        }
+        for (int i = done; i < count; i++) {
+            payloads[slot(i)] = null;
+        }
+        count = done;
+        if (count == depth) {
+            payloads[first] = null;
+            first = (first + 1) % depth;
+            count--;
+        }
+        int slot = slot(count);
+        operations[slot] = operation;
+        types[slot] = type != null ? type.id : -1;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.toX[slot] = toX;
+        this.toY[slot] = toY;
+        payloads[slot] = payload;
+        done = ++count;
+    }
+
+    //x, y and type id of each booth, offset by dx, dy
+    private static int[] booths(Collection<CustomRectangle> shapes, int dx, int dy) {
+        int[] booths = new int[shapes.size() * 3];
+        int i = 0;
+        for (CustomRectangle shape : shapes) {
+            booths[i++] = shape.x + dx;
+            booths[i++] = shape.y + dy;
+            booths[i++] = shape.type.id;
+        }
+        return booths;
+    }
+
+    private static int[] shifted(int[] booths, int dx, int dy) {
+        int[] shifted = booths.clone();
+        for (int i = 0; i < shifted.length; i += 3) {
+            shifted[i] += dx;
+            shifted[i + 1] += dy;
+        }
+        return shifted;
+    }
+
+    private int slot(int edit) {
+        return (first + edit) % operations.length;
+    }
+
+    private void allocate(int depth) {
+        operations = new byte[depth];
+        types = new int[depth];
+        x = new int[depth];
+        y = new int[depth];
+        toX = new int[depth];
+        toY = new int[depth];
+        payloads = new Object[depth];
+        first = count = done = 0;
+    }
+
+    //Booths of a group delete and the zone each was in, zones null when none was in a zone
+    private static final class Removal {
+        final int[] booths;
+        final Zone[] zones;
+
+        Removal(int[] booths, Zone[] zones) {
+            this.booths = booths;
+            this.zones = zones;
+        }
+    }
+
+    //What undo and redo act on. Booths are named by position and type, since the booth objects of an edit
+    //may have been compacted into rows since. Booths are added to the given zones, null meaning the plan itself.
+    interface Editor {
+        void add(int x, int y, BoothType type, Zone zone);
+        void remove(int x, int y, BoothType type);
+        void move(BoothType type, int fromX, int fromY, int toX, int toY);
+        void addAll(int[] booths, Zone[] zones);
+        void removeAll(int[] booths);
+        void moveAll(int[] booths, int dx, int dy);
+        FloorPlan.Contents clear();
+        void restore(FloorPlan.Contents contents);
+        void group(Zone.Grouping grouping);
+        void ungroup(Zone.Grouping grouping);
+    }
+}
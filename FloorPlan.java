@@ -0,0 +1,1196 @@
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+////////////////////////////////////////////////////////////////////////Composite Pattern
+//Every method locks the plan, and a change made of several calls, such as finding a free spot and adding a
+//booth there, holds the plan's lock around them. Threads other than the one editing the plan should not
+//walk it or read booth objects directly, but work on a snapshot(): it is taken once per change and shared by
+//every reader after that, holding the lock only to copy the booths held as objects, so saving or validating
+//in the background never holds up edits.
+class FloorPlan implements Shape, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final Comparator<CustomRectangle> DRAWING_ORDER = (a, b) -> Integer.compare(a.order, b.order);
+    private ArrayList<Shape> components = new ArrayList<>();
+    //Lookup structures rebuilt from components, never written to disk
+    private transient SpatialGrid index = new SpatialGrid();
+    private transient DensityMap density = new DensityMap();
+    private transient ArrayList<Shape> composites = new ArrayList<>();
+    private transient int nextOrder;
+    private transient ArrayList<FloorPlanListener> listeners = new ArrayList<>();
+    //Booths not held as objects yet: a lazily opened plan file, or compact rows (see BoothTable)
+    private transient PlanSource source;
+    //Booths read from the source since components was last put in drawing order, merged on the next full walk
+    private transient ArrayList<CustomRectangle> unmerged = new ArrayList<>();
+    //Booths as of the last change, or the PlanSnapshot.Capture one is being built from, null once the plan
+    //changed since. Changes to nested plans clear it without holding this plan's lock.
+    private transient AtomicReference<Object> snapshot = new AtomicReference<>();
+    //Area the plan's own booths cover, nested plans aside, null without booths. While boundsValid is set it
+    //holds every booth, grown edit by edit; it is only exact while boundsTight is set too, since a booth
+    //leaving the edge is not worth measuring the plan again for until exact bounds are asked for.
+    private transient Rectangle ownBounds;
+    private transient boolean boundsValid;
+    private transient boolean boundsTight;
+    //Passes changes inside nested plans, such as zones, on to this plan's listeners
+    private transient FloorPlanListener nestedListener = new NestedListener();
+
+    @Override
+    public void draw(Graphics g) {
+        draw(g, Collections.emptySet());
+    }
+
+    //Draws every shape except the skipped ones
+    public void draw(Graphics g, Set<? extends Shape> skip) {
+        long start = PlanMetrics.start();
+        drawContents(g, skip);
+        PlanMetrics.DRAW.stop(start);
+    }
+
+    //draw() without timing, which nested plans are drawn with so their time counts once, as part of this plan's
+    synchronized void drawContents(Graphics g, Set<? extends Shape> skip) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            walk(component -> {
+                if (component instanceof FloorPlan) {
+                    ((FloorPlan) component).drawContents(g, skip);
+                } else if (!skip.contains(component)) {
+                    component.draw(g);
+                }
+            }, (x, y, type) -> type.draw(g, x, y));
+            return;
+        }
+        //Only booths whose painted area reaches into the clip are drawn, in their usual order
+        int margin = CustomRectangle.PAINT_MARGIN + 1;
+        int areaX = clip.x - margin, areaY = clip.y - margin;
+        int areaWidth = clip.width + 2 * margin, areaHeight = clip.height + 2 * margin;
+        BoothTable table = source instanceof BoothTable ? (BoothTable) source : null;
+        int[] rows = table != null ? table.rowsIn(areaX, areaY, areaWidth, areaHeight) : new int[0];
+        int next = 0;
+        for (CustomRectangle rect : objectsIn(areaX, areaY, areaWidth, areaHeight)) {
+            while (next < rows.length && rows[next] < rect.order) {
+                table.draw(g, rows[next++]);
+            }
+            if (!skip.contains(rect)) {
+                rect.draw(g);
+            }
+        }
+        while (next < rows.length) {
+            table.draw(g, rows[next++]);
+        }
+        //Zones entirely outside the clip, their outline included, are skipped without looking at their booths
+        int zoneMargin = margin + Zone.OUTLINE_MARGIN;
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan) {
+                FloorPlan nested = (FloorPlan) composite;
+                if (nested.reaches(clip.x - zoneMargin, clip.y - zoneMargin, clip.width + 2 * zoneMargin,
+                        clip.height + 2 * zoneMargin)) {
+                    nested.drawContents(g, skip);
+                }
+            } else if (!skip.contains(composite)) {
+                composite.draw(g);
+            }
+        }
+    }
+
+    //Draws aggregated booth density instead of individual booths, for far zoomed out views
+    public void drawDensity(Graphics g, Rectangle visible, double scale) {
+        long start = PlanMetrics.start();
+        drawDensityContents(g, visible, scale);
+        PlanMetrics.DRAW.stop(start);
+    }
+
+    synchronized void drawDensityContents(Graphics g, Rectangle visible, double scale) {
+        if (!(source instanceof BoothTable)) {
+            materialize(visible.x, visible.y, visible.width, visible.height);
+        }
+        density.draw(g, visible, scale);
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan
+                    && ((FloorPlan) composite).reaches(visible.x, visible.y, visible.width, visible.height)) {
+                ((FloorPlan) composite).drawDensityContents(g, visible, scale);
+            }
+        }
+    }
+
+    //Booths overlapping the area, nested plans' booths included, each plan's in drawing order
+    public synchronized List<CustomRectangle> shapesIn(int x, int y, int width, int height) {
+        materialize(x, y, width, height);
+        List<CustomRectangle> found = objectsIn(x, y, width, height);
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(x, y, width, height)) {
+                found.addAll(((FloorPlan) composite).shapesIn(x, y, width, height));
+            }
+        }
+        return found;
+    }
+
+    //Removes a booth of this plan or of the nested plan holding it, false when no plan holds it
+    public synchronized boolean remove(CustomRectangle shape) {
+        if (components.remove(shape) || unmerged.remove(shape)) {
+            snapshot.set(null);
+            index.remove(shape);
+            density.remove(shape);
+            if (onEdge(shape.x, shape.y, shape.getWidth(), shape.getHeight())) {
+                boundsTight = false;
+            }
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeRemoved(shape);
+            }
+            return true;
+        }
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(shape.x, shape.y, shape.getWidth(),
+                    shape.getHeight()) && ((FloorPlan) composite).remove(shape)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Removes several booths with one pass over each plan holding some of them, rather than a search of the
+    //plan per booth. Returns the booths that were removed, in the order given; booths no plan holds are left out.
+    public synchronized List<CustomRectangle> removeAll(Collection<CustomRectangle> shapes) {
+        Set<CustomRectangle> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(shapes);
+        removePending(pending);
+        List<CustomRectangle> removed = new ArrayList<>(shapes.size() - pending.size());
+        for (CustomRectangle shape : shapes) {
+            if (!pending.contains(shape)) {
+                removed.add(shape);
+            }
+        }
+        return removed;
+    }
+
+    //Takes the booths this plan and its nested plans hold out of pending as they are removed
+    private void removePending(Set<CustomRectangle> pending) {
+        List<CustomRectangle> removed = new ArrayList<>();
+        Predicate<Shape> held = component -> component instanceof CustomRectangle && pending.remove(component)
+                && removed.add((CustomRectangle) component);
+        components.removeIf(held);
+        unmerged.removeIf(held);
+        for (CustomRectangle shape : removed) {
+            index.remove(shape);
+            density.remove(shape);
+            if (onEdge(shape.x, shape.y, shape.getWidth(), shape.getHeight())) {
+                boundsTight = false;
+            }
+        }
+        if (!removed.isEmpty()) {
+            snapshot.set(null);
+            for (CustomRectangle shape : removed) {
+                for (FloorPlanListener listener : listeners) {
+                    listener.shapeRemoved(shape);
+                }
+            }
+        }
+        for (int i = 0; i < composites.size() && !pending.isEmpty(); i++) {
+            if (composites.get(i) instanceof FloorPlan) {
+                FloorPlan nested = (FloorPlan) composites.get(i);
+                synchronized (nested) {
+                    nested.removePending(pending);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean intersects(Shape other) {
+        if (other instanceof CustomRectangle) {
+            CustomRectangle rect = (CustomRectangle) other;
+            return intersects(rect.x, rect.y, rect.getWidth(), rect.getHeight(), rect);
+        }
+        materializeAll();
+        mergeLoaded();
+        for (Shape component : components) {
+            if (component.intersects(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Whether any shape overlaps the area, edges touching do not count
+    public synchronized boolean intersects(int x, int y, int width, int height) {
+        return intersects(x, y, width, height, null);
+    }
+
+    @Override
+    public void setPosition(int x, int y) {
+        // Not applicable for FloorPlan
+    }
+
+    //Adds several shapes at once, listeners still hear about each one
+    public synchronized void addAll(Collection<? extends Shape> shapes) {
+        components.ensureCapacity(components.size() + shapes.size());
+        for (Shape shape : shapes) {
+            add(shape);
+        }
+    }
+
+    public synchronized void add(Shape component) {
+        snapshot.set(null);
+        components.add(component);
+        register(component);
+        if (component instanceof CustomRectangle) {
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeAdded((CustomRectangle) component);
+            }
+        }
+    }
+
+    //Moves a booth of this plan, or of the nested plan holding it, and keeps the index in sync. False when no
+    //plan holds the booth.
+    public synchronized boolean move(CustomRectangle shape, int x, int y) {
+        int oldX = shape.x;
+        int oldY = shape.y;
+        if (index.remove(shape)) {
+            snapshot.set(null);
+            density.remove(shape);
+            shape.setPosition(x, y);
+            index.insert(shape);
+            density.add(shape);
+            if (onEdge(oldX, oldY, shape.getWidth(), shape.getHeight())) {
+                boundsTight = false;
+            }
+            if (boundsValid) {
+                ownBounds = include(ownBounds, x, y, shape.getWidth(), shape.getHeight());
+            }
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeMoved(shape, oldX, oldY);
+            }
+            return true;
+        }
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(oldX, oldY, shape.getWidth(),
+                    shape.getHeight()) && ((FloorPlan) composite).move(shape, x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Moves the booths together by dx, dy, unless one of them would then overlap a booth outside the group.
+    //Booths in the way are found with one range query over the area the group moves into, compact rows
+    //and zones reaching into it included, and are checked against the whole moved group in a single sweep
+    //along x rather than with a query per booth.
+    public synchronized boolean moveAll(Collection<CustomRectangle> group, int dx, int dy) {
+        if (group.isEmpty() || (dx == 0 && dy == 0)) {
+            return true;
+        }
+        Set<CustomRectangle> members = Collections.newSetFromMap(new IdentityHashMap<>());
+        members.addAll(group);
+        Boxes boxes = gather(members, dx, dy, dx, dy);
+        if (!fits(members, boxes, dx, dy)) {
+            return false;
+        }
+        for (CustomRectangle rect : members) {
+            move(rect, rect.x + dx, rect.y + dy);
+        }
+        return true;
+    }
+
+    //Moves the booths together toward dx, dy as far as they can go without overlapping a booth outside the
+    //group, and returns how far they moved. A group blocked along one axis slides along the other, and stops
+    //where it touches the booth in the way. Booths in the way are found once, with one range query over the
+    //area the group sweeps, so a drag step costs the same on any size of plan. Booths the group already
+    //overlaps where it starts, as in plans saved before overlaps were checked, are not in the way, so such a
+    //group can still be pulled apart from them.
+    public synchronized Point slideAll(Collection<CustomRectangle> group, int dx, int dy) {
+        if (group.isEmpty() || (dx == 0 && dy == 0)) {
+            return new Point();
+        }
+        Set<CustomRectangle> members = Collections.newSetFromMap(new IdentityHashMap<>());
+        members.addAll(group);
+        int count = members.size();
+        Boxes boxes = gather(members, 0, 0, dx, dy);
+        BitSet overlapped = new BitSet();
+        overlapsAcross(boxes.data, count, boxes.size, overlapped);
+        boxes.removeAll(overlapped);
+        int[] moved = {dx, dy};
+        if (!fits(members, boxes, dx, dy)) {
+            //Stopped along one axis first and then along the other, whichever way ends up closer
+            int xFirst = clamp(boxes, count, dx, 0, true);
+            int yFirst = clamp(boxes, count, dy, 0, false);
+            int[] alongX = {xFirst, clamp(boxes, count, dy, xFirst, false)};
+            int[] alongY = {clamp(boxes, count, dx, yFirst, true), yFirst};
+            if (distance(alongY, dx, dy) < distance(alongX, dx, dy)) {
+                int[] closer = alongY;
+                alongY = alongX;
+                alongX = closer;
+            }
+            if (fits(members, boxes, alongX[0], alongX[1])) {
+                moved = alongX;
+            } else if (fits(members, boxes, alongY[0], alongY[1])) {
+                moved = alongY;
+            } else {
+                return new Point(); // Blocked by a shape other than a booth, nowhere to slide to
+            }
+        }
+        for (CustomRectangle rect : members) {
+            move(rect, rect.x + moved[0], rect.y + moved[1]);
+        }
+        return new Point(moved[0], moved[1]);
+    }
+
+    //The members where they are, then every other booth in the area the members cover when moved by from
+    //and when moved by to, and everything in between
+    private Boxes gather(Set<CustomRectangle> members, int fromDx, int fromDy, int toDx, int toDy) {
+        Boxes boxes = new Boxes(2 * members.size());
+        int areaX = Integer.MAX_VALUE, areaY = Integer.MAX_VALUE;
+        int areaRight = Integer.MIN_VALUE, areaBottom = Integer.MIN_VALUE;
+        for (CustomRectangle rect : members) {
+            boxes.add(rect.x, rect.y, rect.getWidth(), rect.getHeight());
+            areaX = Math.min(areaX, rect.x + Math.min(fromDx, toDx));
+            areaY = Math.min(areaY, rect.y + Math.min(fromDy, toDy));
+            areaRight = Math.max(areaRight, rect.x + rect.getWidth() + Math.max(fromDx, toDx));
+            areaBottom = Math.max(areaBottom, rect.y + rect.getHeight() + Math.max(fromDy, toDy));
+        }
+        collectAround(areaX, areaY, areaRight - areaX, areaBottom - areaY, members, boxes);
+        return boxes;
+    }
+
+    //Whether the members, the first boxes, can move by dx, dy without overlapping anything they do not
+    //overlap already
+    private boolean fits(Set<CustomRectangle> members, Boxes boxes, int dx, int dy) {
+        int count = members.size();
+        boxes.shift(count, dx, dy);
+        boolean overlaps = overlapsAcross(boxes.data, count, boxes.size, null);
+        boxes.shift(count, -dx, -dy);
+        if (overlaps) {
+            return false;
+        }
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan) {
+                continue; // Gathered with the boxes
+            }
+            for (CustomRectangle rect : members) {
+                CustomRectangle probe = new CustomRectangle(rect.type);
+                probe.setPosition(rect.x + dx, rect.y + dy);
+                if (composite.intersects(probe) && !composite.intersects(rect)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    //How far the first boxes can go by up to d along one axis, offset by other along the other axis, before
+    //one of them touches a box ahead of it. Boxes overlapping or behind where they start are not in the way.
+    private static int clamp(Boxes boxes, int first, int d, int other, boolean alongX) {
+        int[] b = boxes.data;
+        int along = alongX ? 0 : 1, across = 1 - along;
+        long limit = d;
+        for (int i = 4 * first; i < 4 * boxes.size; i += 4) {
+            long start = b[i + along], end = start + b[i + along + 2];
+            long low = b[i + across], high = low + b[i + across + 2];
+            for (int m = 0; m < 4 * first; m += 4) {
+                long memberLow = (long) b[m + across] + other, memberHigh = memberLow + b[m + across + 2];
+                if (memberHigh <= low || high <= memberLow) {
+                    continue; // Passes beside it
+                }
+                long memberStart = b[m + along], memberEnd = memberStart + b[m + along + 2];
+                if (d > 0 && start >= memberEnd) {
+                    limit = Math.min(limit, start - memberEnd);
+                } else if (d < 0 && end <= memberStart) {
+                    limit = Math.max(limit, end - memberStart);
+                }
+            }
+        }
+        return (int) limit;
+    }
+
+    private static long distance(int[] moved, int dx, int dy) {
+        long x = (long) dx - moved[0], y = (long) dy - moved[1];
+        return x * x + y * y;
+    }
+
+    //Visits the booths in the area, of this plan and of the nested plans reaching into it, except the members
+    private synchronized void collectAround(int x, int y, int width, int height, Set<CustomRectangle> members,
+            BoothTable.Visitor visitor) {
+        if (source instanceof BoothTable) {
+            ((BoothTable) source).forEachIn(x, y, width, height, visitor);
+        } else {
+            materialize(x, y, width, height);
+        }
+        index.query(x, y, width, height, rect -> {
+            if (!members.contains(rect)) {
+                visitor.visit(rect.x, rect.y, rect.type);
+            }
+        });
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(x, y, width, height)) {
+                ((FloorPlan) composite).collectAround(x, y, width, height, members, visitor);
+            }
+        }
+    }
+
+    //Whether any of the first boxes overlaps any of the others, edges touching do not count. Boxes are
+    //sorted by x, and each is only compared with the boxes starting before its right edge. With a set to fill,
+    //every other box overlapping one of the first is marked in it instead of stopping at the first overlap.
+    private static boolean overlapsAcross(int[] boxes, int first, int total, BitSet overlapped) {
+        long[] order = new long[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = (long) boxes[4 * i] << 32 | i;
+        }
+        Arrays.sort(order);
+        for (int i = 0; i < total; i++) {
+            int a = (int) order[i];
+            long right = (long) boxes[4 * a] + boxes[4 * a + 2];
+            for (int j = i + 1; j < total && boxes[4 * (int) order[j]] < right; j++) {
+                int b = (int) order[j];
+                if ((a < first) != (b < first) && boxes[4 * b + 1] < (long) boxes[4 * a + 1] + boxes[4 * a + 3]
+                        && boxes[4 * a + 1] < (long) boxes[4 * b + 1] + boxes[4 * b + 3]) {
+                    if (overlapped == null) {
+                        return true;
+                    }
+                    overlapped.set(Math.max(a, b));
+                }
+            }
+        }
+        return overlapped != null && !overlapped.isEmpty();
+    }
+
+    public synchronized void clear() {
+        detach();
+    }
+
+    //Empties the plan by handing its storage over rather than clearing it, so it takes the same time on any
+    //size of plan and restore() can put everything back
+    synchronized Contents detach() {
+        Object last = snapshot.get();
+        Contents contents = new Contents(components, unmerged, source, index, density, composites, nextOrder,
+                last instanceof PlanSnapshot ? (PlanSnapshot) last : null);
+        components = new ArrayList<>();
+        unmerged = new ArrayList<>();
+        source = null;
+        index = new SpatialGrid();
+        density = new DensityMap();
+        composites = new ArrayList<>();
+        nextOrder = 0;
+        snapshot.set(null);
+        ownBounds = null;
+        boundsValid = boundsTight = true;
+        for (FloorPlanListener listener : listeners) {
+            listener.planCleared();
+        }
+        return contents;
+    }
+
+    //Puts back what detach() took out, in place of whatever the plan holds now
+    synchronized void restore(Contents contents) {
+        components = contents.components;
+        unmerged = contents.unmerged;
+        source = contents.source;
+        index = contents.index;
+        density = contents.density;
+        composites = contents.composites;
+        nextOrder = contents.nextOrder;
+        snapshot.set(contents.snapshot);
+        boundsValid = boundsTight = false;
+        for (FloorPlanListener listener : listeners) {
+            listener.planRestored();
+        }
+    }
+
+    public synchronized void addListener(FloorPlanListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(FloorPlanListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean overlapsWithExistingShapes(Shape newShape) {
+        return intersects(newShape);
+    }
+
+    //Finds a booth by its exact position, size and color, in this plan or a nested one
+    public synchronized CustomRectangle findBooth(int x, int y, int width, int height, int argb) {
+        materialize(x, y, width, height);
+        CustomRectangle[] found = new CustomRectangle[1];
+        index.query(x, y, width, height, rect -> {
+            if (found[0] == null && rect.x == x && rect.y == y && rect.getWidth() == width && rect.getHeight() == height
+                    && rect.getColor().getRGB() == argb) {
+                found[0] = rect;
+            }
+        });
+        for (int i = 0; found[0] == null && i < composites.size(); i++) {
+            Shape composite = composites.get(i);
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(x, y, width, height)) {
+                found[0] = ((FloorPlan) composite).findBooth(x, y, width, height, argb);
+            }
+        }
+        return found[0];
+    }
+
+    //Returns the booth under the point that is drawn on top. Nested plans are drawn after the plan's own
+    //booths, so they are asked first, the last one first.
+    public synchronized CustomRectangle shapeAt(int x, int y) {
+        for (int i = composites.size() - 1; i >= 0; i--) {
+            Shape composite = composites.get(i);
+            if (composite instanceof FloorPlan && ((FloorPlan) composite).reaches(x, y, 1, 1)) {
+                CustomRectangle found = ((FloorPlan) composite).shapeAt(x, y);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        materialize(x, y, 1, 1);
+        return index.topmostAt(x, y);
+    }
+
+    //The innermost zone holding the booth, null for a booth of the plan itself or of no plan
+    public synchronized Zone zoneOf(CustomRectangle shape) {
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan
+                    && ((FloorPlan) composite).reaches(shape.x, shape.y, shape.getWidth(), shape.getHeight())) {
+                FloorPlan nested = (FloorPlan) composite;
+                Zone inner = nested.zoneOf(shape);
+                if (inner != null) {
+                    return inner;
+                }
+                if (nested instanceof Zone && nested.holds(shape)) {
+                    return (Zone) nested;
+                }
+            }
+        }
+        return null;
+    }
+
+    //Every zone of the plan and of its nested plans, in the order forEachBooth() enters them. The journal names
+    //a zone by its place in this list, which the plan read back from a snapshot has in the same order.
+    synchronized List<Zone> zones() {
+        List<Zone> zones = new ArrayList<>();
+        collectZones(zones);
+        return zones;
+    }
+
+    private synchronized void collectZones(List<Zone> zones) {
+        for (Shape composite : composites) {
+            if (composite instanceof Zone) {
+                zones.add((Zone) composite);
+            }
+            if (composite instanceof FloorPlan) {
+                ((FloorPlan) composite).collectZones(zones);
+            }
+        }
+    }
+
+    //Zones without a booth, the zones inside a zone before the zone holding them
+    synchronized List<Zone> emptyZones() {
+        List<Zone> empty = new ArrayList<>();
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan) {
+                FloorPlan nested = (FloorPlan) composite;
+                empty.addAll(nested.emptyZones());
+                if (nested instanceof Zone && nested.size() == 0) {
+                    empty.add((Zone) nested);
+                }
+            }
+        }
+        return empty;
+    }
+
+    //The plan holding the zone directly, this one or a nested one, null when none does
+    synchronized FloorPlan parentOf(Zone zone) {
+        for (Shape composite : composites) {
+            if (composite == zone) {
+                return this;
+            }
+            FloorPlan parent = composite instanceof FloorPlan ? ((FloorPlan) composite).parentOf(zone) : null;
+            if (parent != null) {
+                return parent;
+            }
+        }
+        return null;
+    }
+
+    //Takes an empty zone out of the plan holding it directly, false when this plan does not hold it or the zone
+    //still has booths
+    synchronized boolean removeZone(Zone zone) {
+        if (zone.size() > 0 || !composites.remove(zone)) {
+            return false;
+        }
+        components.remove(zone);
+        zone.removeListener(nestedListener);
+        snapshot.set(null);
+        return true;
+    }
+
+    //Whether the booth is one of this plan's own booths
+    private synchronized boolean holds(CustomRectangle shape) {
+        boolean[] held = {false};
+        index.query(shape.x, shape.y, Math.max(shape.getWidth(), 1), Math.max(shape.getHeight(), 1), rect -> {
+            if (rect == shape) {
+                held[0] = true;
+            }
+        });
+        return held[0];
+    }
+
+    //Area covered by the booths of the plan and its nested plans, null when there are none. The plan's own
+    //booths are measured once and then followed edit by edit, nested plans keep their own bounds.
+    public synchronized Rectangle getBounds() {
+        if (!boundsTight) {
+            measureBounds();
+        }
+        Rectangle bounds = ownBounds == null ? null : new Rectangle(ownBounds);
+        for (Shape composite : composites) {
+            Rectangle nested = composite instanceof FloorPlan ? ((FloorPlan) composite).getBounds() : null;
+            if (nested != null) {
+                bounds = include(bounds, nested.x, nested.y, nested.width, nested.height);
+            }
+        }
+        return bounds;
+    }
+
+    //Area every booth of the plan and its nested plans lies in, without reading the booths a plan file still
+    //holds: the bounds the file records stand in for those. Can be larger than getBounds() once booths read
+    //from the file were moved or deleted.
+    public synchronized Rectangle getExtent() {
+        if (source == null || source instanceof BoothTable) {
+            return getBounds();
+        }
+        Rectangle extent = source.bounds();
+        for (Shape component : components) {
+            if (component instanceof CustomRectangle) {
+                CustomRectangle rect = (CustomRectangle) component;
+                extent = include(extent, rect.x, rect.y, rect.getWidth(), rect.getHeight());
+            }
+        }
+        for (CustomRectangle rect : unmerged) {
+            extent = include(extent, rect.x, rect.y, rect.getWidth(), rect.getHeight());
+        }
+        for (Shape composite : composites) {
+            Rectangle nested = composite instanceof FloorPlan ? ((FloorPlan) composite).getExtent() : null;
+            if (nested != null) {
+                extent = include(extent, nested.x, nested.y, nested.width, nested.height);
+            }
+        }
+        return extent;
+    }
+
+    //Whether a booth of the plan or its nested plans could reach into the area, edges touching included.
+    //Lets a plan holding this one skip it, booths and all, for queries elsewhere.
+    synchronized boolean reaches(int x, int y, int width, int height) {
+        if (!boundsValid) {
+            measureBounds();
+        }
+        if (ownBounds != null && ownBounds.x <= (long) x + width && x <= (long) ownBounds.x + ownBounds.width
+                && ownBounds.y <= (long) y + height && y <= (long) ownBounds.y + ownBounds.height) {
+            return true;
+        }
+        for (Shape composite : composites) {
+            if (!(composite instanceof FloorPlan) || ((FloorPlan) composite).reaches(x, y, width, height)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Booths of the plan, the booths of nested plans included
+    public synchronized int size() {
+        int size = components.size() - composites.size() + unmerged.size()
+                + (source == null ? 0 : source.unloadedCount());
+        for (Shape composite : composites) {
+            size += composite instanceof FloorPlan ? ((FloorPlan) composite).size() : 1;
+        }
+        return size;
+    }
+
+    //Visits every booth in drawing order, including booths of nested shapes. Booths not held as objects, compact
+    //rows or records of a plan file, are passed straight from there, so a large plan is saved or measured
+    //without objects.
+    public synchronized void forEachBooth(BoothTable.Visitor visitor) {
+        forEachBooth(visitor, null);
+    }
+
+    //Visits every booth like forEachBooth(), telling zones where each zone's booths start and end
+    synchronized void forEachBooth(BoothTable.Visitor visitor, Zone.Visitor zones) {
+        walk(component -> visitNested(component, visitor, zones), visitor);
+    }
+
+    //Copy of the booths in drawing order that is safe to read on any thread while the plan is edited. The copy
+    //is kept until the plan or a nested plan changes, unless it changed while the copy was being read.
+    public PlanSnapshot snapshot() {
+        PlanSnapshot.Capture capture;
+        synchronized (this) {
+            Object last = snapshot.get();
+            if (last instanceof PlanSnapshot) {
+                return (PlanSnapshot) last;
+            }
+            capture = capture(null);
+            snapshot.set(capture);
+        }
+        PlanSnapshot taken = capture.build();
+        snapshot.compareAndSet(capture, taken);
+        return taken;
+    }
+
+    //Copies the booths held as objects and marks the ones the source still holds, nested plans included
+    private synchronized PlanSnapshot.Capture capture(String zoneName) {
+        mergeLoaded();
+        int[] booths = new int[4 * components.size()];
+        int held = 0;
+        for (Shape component : components) {
+            if (component instanceof CustomRectangle) {
+                CustomRectangle rect = (CustomRectangle) component;
+                booths[4 * held] = rect.x;
+                booths[4 * held + 1] = rect.y;
+                booths[4 * held + 2] = rect.type.id;
+                booths[4 * held + 3] = rect.order;
+                held++;
+            }
+        }
+        List<PlanSnapshot.Capture> nested = new ArrayList<>();
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan) {
+                String name = composite instanceof Zone ? ((Zone) composite).getName() : null;
+                nested.add(((FloorPlan) composite).capture(name));
+            }
+        }
+        return new PlanSnapshot.Capture(booths, held, source == null ? null : source.unread(),
+                source == null ? 0 : source.recordCount(), size(), nested, zoneName);
+    }
+
+    //Moves every booth the editor is not holding on to, the selected or dragged one, into compact rows.
+    //Booth objects handed out before are no longer part of the plan afterwards.
+    public synchronized void compact() {
+        if (source != null && !(source instanceof BoothTable)) {
+            materializeAll();
+        }
+        BoothTable table = new BoothTable(size());
+        ArrayList<Shape> kept = new ArrayList<>();
+        walk(component -> {
+            if (component instanceof CustomRectangle && !((CustomRectangle) component).isSelected()
+                    && !((CustomRectangle) component).isDragging()) {
+                CustomRectangle rect = (CustomRectangle) component;
+                table.add(rect.x, rect.y, rect.type, 0);
+            } else {
+                if (component instanceof CustomRectangle) {
+                    CustomRectangle rect = (CustomRectangle) component;
+                    rect.order = table.add(rect.x, rect.y, rect.type, BoothTable.MATERIALIZED);
+                }
+                kept.add(component);
+            }
+        }, (x, y, type) -> table.add(x, y, type, 0));
+        components.clear();
+        components.addAll(kept);
+        index.clear();
+        for (Shape component : kept) {
+            if (component instanceof CustomRectangle) {
+                index.insert((CustomRectangle) component);
+            }
+        }
+        nextOrder = table.recordCount();
+        source = table.unloadedCount() > 0 ? table : null;
+    }
+
+    //Area the plan's own booths cover, without reading booths a plan file still holds, which are left out
+    public synchronized long boothArea() {
+        return density.totalArea();
+    }
+
+    //Moves booths just added into compact rows like compact() does, at the cost of the booths added since the
+    //plan was last compacted rather than of the whole plan. Other booth objects stay part of the plan, and so
+    //do the given ones the editor holds on to, or all of them while booths are still read from a plan file.
+    public synchronized void compactAdded(Collection<CustomRectangle> added) {
+        if (added.isEmpty() || (source != null && !(source instanceof BoothTable))) {
+            return;
+        }
+        Set<CustomRectangle> moving = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CustomRectangle rect : added) {
+            if (!rect.isSelected() && !rect.isDragging()) {
+                moving.add(rect);
+            }
+        }
+        //Rows must stay in drawing order, so booths added after the table was made are appended in theirs
+        BoothTable table;
+        int first = components.size();
+        if (source == null) {
+            mergeLoaded();
+            table = new BoothTable(first);
+            first = 0;
+        } else {
+            table = (BoothTable) source;
+            while (first > 0 && (!(components.get(first - 1) instanceof CustomRectangle)
+                    || ((CustomRectangle) components.get(first - 1)).order >= table.recordCount())) {
+                first--;
+            }
+        }
+        List<Shape> tail = components.subList(first, components.size());
+        ArrayList<Shape> kept = new ArrayList<>();
+        for (Shape component : tail) {
+            if (component instanceof CustomRectangle) {
+                CustomRectangle rect = (CustomRectangle) component;
+                if (moving.contains(rect)) {
+                    table.add(rect.x, rect.y, rect.type, 0);
+                    index.remove(rect);
+                    continue;
+                }
+                rect.order = table.add(rect.x, rect.y, rect.type, BoothTable.MATERIALIZED);
+            }
+            kept.add(component);
+        }
+        tail.clear();
+        components.addAll(kept);
+        nextOrder = table.recordCount();
+        if (table.unloadedCount() > 0) {
+            source = table;
+        }
+    }
+
+    //Reads booths lazily from a plan source instead of holding them all as objects up front
+    synchronized void setSource(PlanSource source) {
+        snapshot.set(null);
+        boundsValid = boundsTight = false;
+        this.source = source;
+        nextOrder = Math.max(nextOrder, source.recordCount());
+        if (source instanceof BoothTable) {
+            ((BoothTable) source).addTo(density);
+        }
+    }
+
+    //Shapes in drawing order, with booths the source still holds passed as rows where they fall in that order.
+    //Nested shapes such as zones come after the plan's own booths, the way draw() paints them.
+    private void walk(Consumer<Shape> shapes, BoothTable.Visitor rows) {
+        mergeLoaded();
+        PlanSource unread = source;
+        int row = 0;
+        for (Shape component : components) {
+            if (!(component instanceof CustomRectangle)) {
+                continue;
+            }
+            if (unread != null) {
+                int order = ((CustomRectangle) component).order;
+                unread.forEach(row, order, rows);
+                row = Math.max(row, order);
+            }
+            shapes.accept(component);
+        }
+        if (unread != null) {
+            unread.forEach(row, unread.recordCount(), rows);
+        }
+        for (Shape composite : composites) {
+            shapes.accept(composite);
+        }
+    }
+
+    private static void visitNested(Shape shape, BoothTable.Visitor visitor, Zone.Visitor zones) {
+        if (shape instanceof CustomRectangle) {
+            CustomRectangle rect = (CustomRectangle) shape;
+            visitor.visit(rect.x, rect.y, rect.type);
+        } else if (shape instanceof Zone && zones != null) {
+            zones.enter((Zone) shape);
+            ((Zone) shape).forEachBooth(visitor, zones);
+            zones.exit((Zone) shape);
+        } else if (shape instanceof FloorPlan) {
+            ((FloorPlan) shape).forEachBooth(visitor, zones);
+        } else {
+            for (Shape component : shape) {
+                visitNested(component, visitor, zones);
+            }
+        }
+    }
+
+    //Booth objects already held that overlap the area, in drawing order
+    private List<CustomRectangle> objectsIn(int x, int y, int width, int height) {
+        if (!(source instanceof BoothTable)) {
+            materialize(x, y, width, height);
+        }
+        List<CustomRectangle> found = new ArrayList<>();
+        index.query(x, y, width, height, found::add);
+        found.sort(DRAWING_ORDER);
+        return found;
+    }
+
+    private boolean intersects(int x, int y, int width, int height, CustomRectangle probe) {
+        if (source instanceof BoothTable) {
+            if (((BoothTable) source).intersects(x, y, width, height)) {
+                return true;
+            }
+        } else {
+            materialize(x, y, width, height);
+        }
+        if (index.intersects(x, y, width, height, null)) {
+            return true;
+        }
+        for (Shape composite : composites) {
+            if (composite instanceof FloorPlan) {
+                FloorPlan nested = (FloorPlan) composite;
+                if (nested.reaches(x, y, width, height) && nested.intersects(x, y, width, height, null)) {
+                    return true;
+                }
+                continue;
+            }
+            if (probe == null) {
+                probe = new CustomRectangle(new BoothType(-1, width, height, null));
+                probe.setPosition(x, y);
+            }
+            if (composite.intersects(probe)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Reads the unread booths that could touch the area
+    private void materialize(int x, int y, int width, int height) {
+        if (source != null) {
+            merge(source.load(x, y, width, height), source instanceof BoothTable);
+            if (source.unloadedCount() == 0) {
+                source = null;
+            }
+        }
+    }
+
+    private void materializeAll() {
+        if (source != null) {
+            PlanSource remaining = source;
+            source = null;
+            merge(remaining.loadAll(), remaining instanceof BoothTable);
+        }
+    }
+
+    //Indexes freshly read booths. Compact rows are already counted in the density map, booths read from
+    //a file are counted now. Putting them into components in drawing order waits for the next full walk,
+    //so reading a few booths at a time does not rebuild the whole list each time.
+    private void merge(List<CustomRectangle> loaded, boolean counted) {
+        for (CustomRectangle rect : loaded) {
+            index.insert(rect);
+            if (!counted) {
+                density.add(rect);
+            }
+        }
+        unmerged.addAll(loaded);
+    }
+
+    //Merges the booths read from the source into components by their position in the drawing order
+    private void mergeLoaded() {
+        if (unmerged.isEmpty()) {
+            return;
+        }
+        unmerged.sort(DRAWING_ORDER);
+        ArrayList<Shape> merged = new ArrayList<>(components.size() + unmerged.size());
+        int next = 0;
+        for (Shape component : components) {
+            if (component instanceof CustomRectangle) {
+                int order = ((CustomRectangle) component).order;
+                while (next < unmerged.size() && unmerged.get(next).order < order) {
+                    merged.add(unmerged.get(next++));
+                }
+            }
+            merged.add(component);
+        }
+        while (next < unmerged.size()) {
+            merged.add(unmerged.get(next++));
+        }
+        components.clear();
+        components.addAll(merged);
+        unmerged.clear();
+    }
+
+    private void register(Shape component) {
+        if (component instanceof CustomRectangle) {
+            CustomRectangle rect = (CustomRectangle) component;
+            rect.order = nextOrder++;
+            index.insert(rect);
+            density.add(rect);
+            if (boundsValid) {
+                ownBounds = include(ownBounds, rect.x, rect.y, rect.getWidth(), rect.getHeight());
+            }
+        } else {
+            composites.add(component);
+            if (component instanceof FloorPlan) {
+                ((FloorPlan) component).addListener(nestedListener);
+            }
+        }
+    }
+
+    private void measureBounds() {
+        Rectangle[] measured = new Rectangle[1];
+        walk(component -> {
+            if (component instanceof CustomRectangle) {
+                CustomRectangle rect = (CustomRectangle) component;
+                measured[0] = include(measured[0], rect.x, rect.y, rect.getWidth(), rect.getHeight());
+            }
+        }, (x, y, type) -> measured[0] = include(measured[0], x, y, type.width, type.height));
+        ownBounds = measured[0];
+        boundsValid = boundsTight = true;
+    }
+
+    //Whether a booth there touches the edge of the plan's own bounds, so they may shrink once it is gone
+    private boolean onEdge(int x, int y, int width, int height) {
+        return !boundsValid || ownBounds == null || x == ownBounds.x || y == ownBounds.y
+                || x + width == ownBounds.x + ownBounds.width || y + height == ownBounds.y + ownBounds.height;
+    }
+
+    private static Rectangle include(Rectangle bounds, int x, int y, int width, int height) {
+        if (bounds == null) {
+            return new Rectangle(x, y, width, height);
+        }
+        bounds.add(new Rectangle(x, y, width, height));
+        return bounds;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        materializeAll();
+        mergeLoaded();
+        out.defaultWriteObject();
+    }
+
+    //Rebuilds the transient index after loading a saved plan
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        index = new SpatialGrid();
+        density = new DensityMap();
+        composites = new ArrayList<>();
+        listeners = new ArrayList<>();
+        unmerged = new ArrayList<>();
+        snapshot = new AtomicReference<>();
+        nestedListener = new NestedListener();
+        for (Shape component : components) {
+            register(component);
+        }
+    }
+
+    //Everything a plan held when it was detached, opaque to anyone but the plan
+    static final class Contents {
+        private final ArrayList<Shape> components;
+        private final ArrayList<CustomRectangle> unmerged;
+        private final PlanSource source;
+        private final SpatialGrid index;
+        private final DensityMap density;
+        private final ArrayList<Shape> composites;
+        private final int nextOrder;
+        private final PlanSnapshot snapshot;
+
+        private Contents(ArrayList<Shape> components, ArrayList<CustomRectangle> unmerged, PlanSource source,
+                         SpatialGrid index, DensityMap density, ArrayList<Shape> composites, int nextOrder,
+                         PlanSnapshot snapshot) {
+            this.components = components;
+            this.unmerged = unmerged;
+            this.source = source;
+            this.index = index;
+            this.density = density;
+            this.composites = composites;
+            this.nextOrder = nextOrder;
+            this.snapshot = snapshot;
+        }
+    }
+
+    //Tells this plan's listeners about booths changing in a nested plan. Nested plans are edited through the
+    //plan holding them or under its lock, so this runs with that lock held.
+    private class NestedListener implements FloorPlanListener {
+        @Override
+        public void shapeAdded(CustomRectangle shape) {
+            snapshot.set(null);
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeAdded(shape);
+            }
+        }
+
+        @Override
+        public void shapeRemoved(CustomRectangle shape) {
+            snapshot.set(null);
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeRemoved(shape);
+            }
+        }
+
+        @Override
+        public void shapeMoved(CustomRectangle shape, int oldX, int oldY) {
+            snapshot.set(null);
+            for (FloorPlanListener listener : listeners) {
+                listener.shapeMoved(shape, oldX, oldY);
+            }
+        }
+
+        //Only the nested plan's booths are gone, not this plan's
+        @Override
+        public void planCleared() {
+            planRestored();
+        }
+
+        @Override
+        public void planRestored() {
+            snapshot.set(null);
+            for (FloorPlanListener listener : listeners) {
+                listener.planRestored();
+            }
+        }
+    }
+
+    //x, y, width and height of booths in one array, the members of a moved group first, then the booths
+    //around them
+    private static final class Boxes implements BoothTable.Visitor {
+        int[] data;
+        int size; // Boxes held
+
+        Boxes(int capacity) {
+            data = new int[4 * Math.max(capacity, 4)];
+        }
+
+        void add(int x, int y, int width, int height) {
+            if (4 * size + 4 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int i = 4 * size++;
+            data[i] = x;
+            data[i + 1] = y;
+            data[i + 2] = width;
+            data[i + 3] = height;
+        }
+
+        @Override
+        public void visit(int x, int y, BoothType type) {
+            add(x, y, type.width, type.height);
+        }
+
+        //Drops the boxes whose index is set, keeping the others in order
+        void removeAll(BitSet removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.get(i)) {
+                    System.arraycopy(data, 4 * i, data, 4 * kept++, 4);
+                }
+            }
+            size = kept;
+        }
+
+        //Offsets the first boxes
+        void shift(int first, int dx, int dy) {
+            for (int i = 0; i < 4 * first; i += 4) {
+                data[i] += dx;
+                data[i + 1] += dy;
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////Iterator Pattern
+    //Iterates over a copy of the shapes, so the plan can change while the iteration goes on
+    @Override
+    public synchronized Iterator<Shape> iterator() {
+        materializeAll();
+        mergeLoaded();
+        return new ArrayList<>(components).iterator();
+    }
+}
@@ -0,0 +1,639 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Controller Pattern
+//Every edit holds the floor plan's lock from finding the spot to journaling the change, so edits made on
+//other threads, such as a background import, cannot slip in between.
+class FloorPlanController {
+    static final int DEFAULT_SNAP_GRID = 10;
+
+    private FloorPlan floorPlan;
+    private RectangleFactory rectangleFactory;
+    private PlacementEngine placementEngine;
+    //Selected booths in the order they were selected, the last one is the primary selection
+    private final LinkedHashSet<CustomRectangle> selection = new LinkedHashSet<>();
+    private PlanJournal journal; // Records edits for autosave, null until the plan has a name
+    private final EditHistory history = new EditHistory(EditHistory.DEFAULT_DEPTH);
+    private final EditHistory.Editor historyEditor = new HistoryEditor();
+    private int dragStartX, dragStartY; // Where the booth the drag started on was
+    private int snapGrid = DEFAULT_SNAP_GRID;
+
+    public FloorPlanController() {
+        this.floorPlan = new FloorPlan();
+        this.rectangleFactory = new RectangleFactory();
+        this.placementEngine = new PlacementEngine(floorPlan);
+    }
+
+    //Calls nonoverlapping to find space and adds new shape image to drawing area
+    public boolean addShape(int width, int height, Color color, int maxWidth, int maxHeight) {
+        long start = PlanMetrics.start();
+        try {
+            synchronized (floorPlan) {
+                CustomRectangle newShape = generateNonOverlappingShape(width, height, color, maxWidth, maxHeight);
+                if (newShape != null) {
+                    floorPlan.add(newShape);
+                    history.recordAdd(newShape);
+                    if (journal != null) {
+                        journal.recordAdd(newShape);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        } finally {
+            PlanMetrics.PLACEMENT.stop(start);
+        }
+    }
+
+    //Packs a batch of booths and commits the ones that fit to the floor plan in one step.
+    //Largest first packs tightest when everything fits, smallest first places the most booths when it cannot.
+    public BatchResult addShapes(List<BoothRequest> requests, int maxWidth, int maxHeight) {
+        long start = PlanMetrics.start();
+        try {
+            return placeAll(requests, maxWidth, maxHeight);
+        } finally {
+            PlanMetrics.PLACEMENT.stop(start);
+        }
+    }
+
+    private BatchResult placeAll(List<BoothRequest> requests, int maxWidth, int maxHeight) {
+        long requestedArea = 0;
+        for (BoothRequest request : requests) {
+            requestedArea += (long) request.width * request.height;
+        }
+        Comparator<BoothRequest> largestFirst = Comparator.comparingInt((BoothRequest r) -> Math.max(r.width, r.height))
+                .thenComparingInt(r -> r.width * r.height).reversed();
+        List<BoothRequest> ordered = new ArrayList<>(requests);
+        List<CustomRectangle> placed = new ArrayList<>();
+        Set<BoothRequest> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (floorPlan) {
+            boolean allFit = requestedArea <= (long) maxWidth * maxHeight - floorPlan.boothArea();
+            ordered.sort(allFit ? largestFirst : largestFirst.reversed());
+            for (BoothRequest request : ordered) {
+                Point position = placementEngine.findPosition(request.width, request.height, maxWidth, maxHeight);
+                if (position == null) {
+                    rejected.add(request);
+                    continue;
+                }
+                CustomRectangle newShape = rectangleFactory.getRectangle(request.width, request.height, request.color);
+                newShape.setPosition(position.x, position.y);
+                placementEngine.reserve(newShape);
+                placed.add(newShape);
+            }
+            floorPlan.addAll(placed);
+            history.recordAddAll(placed);
+            if (journal != null) {
+                for (CustomRectangle shape : placed) {
+                    journal.recordAdd(shape);
+                }
+            }
+            floorPlan.compactAdded(placed); // Imports can be large, keep the new booths as rows rather than objects
+        }
+        List<BoothRequest> unplaced = new ArrayList<>();
+        for (BoothRequest request : requests) {
+            if (rejected.contains(request)) {
+                unplaced.add(request);
+            }
+        }
+        return new BatchResult(placed, unplaced);
+    }
+
+    //Method to clear all images from drawing area, the cleared booths are kept for undo rather than copied
+    public void clearFloorPlan() {
+        synchronized (floorPlan) {
+            history.recordClear(historyEditor.clear());
+        }
+    }
+
+    //Removes a booth from the floor plan and deselects it. A booth the plan does not hold, for example one
+    //deleted already, leaves no edit to undo.
+    public void deleteShape(CustomRectangle shape) {
+        synchronized (floorPlan) {
+            Zone zone = floorPlan.zoneOf(shape);
+            if (floorPlan.remove(shape)) {
+                history.recordRemove(shape, zone);
+                if (journal != null) {
+                    journal.recordRemove(shape);
+                }
+            }
+            deselect(shape);
+        }
+    }
+
+    //Removes every selected booth as one edit, false when nothing is selected
+    public boolean deleteSelection() {
+        synchronized (floorPlan) {
+            if (selection.isEmpty()) {
+                return false;
+            }
+            Map<CustomRectangle, Zone> zones = new IdentityHashMap<>();
+            for (CustomRectangle shape : selection) {
+                Zone zone = history.isRecording() ? floorPlan.zoneOf(shape) : null;
+                if (zone != null) {
+                    zones.put(shape, zone);
+                }
+            }
+            List<CustomRectangle> removed = floorPlan.removeAll(new ArrayList<>(selection));
+            selectShape(null);
+            if (journal != null) {
+                for (CustomRectangle shape : removed) {
+                    journal.recordRemove(shape);
+                }
+            }
+            if (removed.size() == 1) {
+                history.recordRemove(removed.get(0), zones.get(removed.get(0)));
+            } else {
+                history.recordRemoveAll(removed, zones);
+            }
+            return true;
+        }
+    }
+
+    //Groups the selected booths into a new zone of the plan, for example a hall, which is then skipped as a
+    //whole by queries away from it. The booths stay where they are and stay selected, booths already in a
+    //zone leave it, and zones left without booths are dropped. Returns null when nothing is selected.
+    public Zone createZone(String name) {
+        synchronized (floorPlan) {
+            if (selection.isEmpty()) {
+                return null;
+            }
+            List<CustomRectangle> booths = new ArrayList<>(selection);
+            Zone[] from = new Zone[booths.size()];
+            for (int i = 0; i < from.length; i++) {
+                from[i] = floorPlan.zoneOf(booths.get(i));
+            }
+            Zone.Grouping grouping = new Zone.Grouping(new Zone(name), booths, from);
+            group(grouping, booths);
+            history.recordGroup(grouping);
+            return grouping.zone;
+        }
+    }
+
+    //Moves the booths into the grouping's zone and drops the zones they left empty, noting which in the
+    //grouping. The zone is added first, so listeners of the plan hear about the booths arriving in it.
+    private void group(Zone.Grouping grouping, List<CustomRectangle> booths) {
+        floorPlan.add(grouping.zone);
+        grouping.zone.addAll(floorPlan.removeAll(booths));
+        if (journal != null) {
+            journal.recordZone(grouping.zone.getName(), -1, booths);
+        }
+        grouping.dropped.clear();
+        grouping.droppedFrom.clear();
+        for (Zone empty : floorPlan.emptyZones()) {
+            FloorPlan parent = floorPlan.parentOf(empty);
+            int index = floorPlan.zones().indexOf(empty);
+            parent.removeZone(empty);
+            grouping.dropped.add(empty);
+            grouping.droppedFrom.add(parent);
+            if (journal != null) {
+                journal.recordDrop(index);
+            }
+        }
+    }
+
+    //Moves booths of the plan into target, a zone or the plan itself, and journals it
+    private void join(FloorPlan target, List<CustomRectangle> booths) {
+        target.addAll(floorPlan.removeAll(booths));
+        if (journal != null) {
+            journal.recordJoin(target == floorPlan ? -1 : floorPlan.zones().indexOf(target), booths);
+        }
+    }
+
+    //The zone if the plan still holds it, otherwise the plan itself
+    private FloorPlan holder(Zone zone) {
+        return zone != null && floorPlan.parentOf(zone) != null ? zone : floorPlan;
+    }
+
+    //Whether a selected booth belongs to a zone, whose outline then follows the booths when they move
+    public boolean isSelectionZoned() {
+        synchronized (floorPlan) {
+            for (CustomRectangle shape : selection) {
+                if (floorPlan.zoneOf(shape) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    //Sends Floorplan to GUI
+    public void drawFloorPlan(Graphics g) {
+        floorPlan.draw(g);
+    }
+
+    //Method to find unoccupied space in drawing area
+    private CustomRectangle generateNonOverlappingShape(int width, int height, Color color, int maxWidth, int maxHeight) {
+        Point position = placementEngine.findPosition(width, height, maxWidth, maxHeight);
+        if (position == null) {
+            return null;
+        }
+        CustomRectangle newShape = rectangleFactory.getRectangle(width, height, color);
+        newShape.setPosition(position.x, position.y);
+        return newShape;
+    }
+
+    //gets Floorplan
+    public FloorPlan getFloorPlan() {
+        return floorPlan;
+    }
+
+    //sets Floorplan, the edits of the previous plan cannot be undone any more
+    public void setFloorPlan(FloorPlan floorPlan) {
+        this.floorPlan = floorPlan;
+        placementEngine.attach(floorPlan);
+        history.clear();
+    }
+
+    //Selects shape at certain coordinate, the one drawn on top where booths overlap
+    public CustomRectangle getShapeAt(int x, int y) {
+        long start = PlanMetrics.start();
+        CustomRectangle shape = floorPlan.shapeAt(x, y);
+        PlanMetrics.HIT_TEST.stop(start);
+        return shape;
+    }
+
+    //Starts dragging the selection by one of its booths, from where they are now
+    public void beginDrag(CustomRectangle shape) {
+        synchronized (floorPlan) {
+            if (!selection.contains(shape)) {
+                selectShape(shape);
+            }
+            dragStartX = shape.x;
+            dragStartY = shape.y;
+            for (CustomRectangle selected : selection) {
+                selected.startDragging(selected.x, selected.y);
+            }
+        }
+    }
+
+    //Moves the selection toward where the booth it is dragged by should land, x, y snapped to the grid. The
+    //selection moves as a whole and never onto another booth: blocked, it slides along the booth in the way
+    //or stops against it. Only booths near the path are checked. Returns whether anything moved.
+    public boolean dragShapeTo(CustomRectangle shape, int x, int y) {
+        synchronized (floorPlan) {
+            if (!shape.isDragging()) {
+                return false;
+            }
+            if (snapGrid > 1) {
+                x = Math.floorDiv(x + snapGrid / 2, snapGrid) * snapGrid;
+                y = Math.floorDiv(y + snapGrid / 2, snapGrid) * snapGrid;
+            }
+            Point moved = floorPlan.slideAll(selection, x - shape.x, y - shape.y);
+            return moved.x != 0 || moved.y != 0;
+        }
+    }
+
+    //Grid dragged booths snap to, 0 or 1 to place them freely
+    public void setSnapGrid(int snapGrid) {
+        if (snapGrid < 0) {
+            throw new IllegalArgumentException("Grid must not be negative: " + snapGrid);
+        }
+        this.snapGrid = snapGrid;
+    }
+
+    public int getSnapGrid() {
+        return snapGrid;
+    }
+
+    //Drops the dragged selection, the whole drag is one edit and one journaled move per booth
+    public void endDrag(CustomRectangle shape) {
+        synchronized (floorPlan) {
+            int dx = shape.x - dragStartX, dy = shape.y - dragStartY;
+            for (CustomRectangle selected : selection) {
+                selected.stopDragging();
+                if (journal != null && (dx != 0 || dy != 0)) {
+                    journal.recordMove(selected, selected.x - dx, selected.y - dy);
+                }
+            }
+            shape.stopDragging();
+            if (dx == 0 && dy == 0) {
+                return;
+            }
+            if (selection.size() == 1) {
+                history.recordMove(shape, dragStartX, dragStartY);
+            } else {
+                history.recordMoveAll(selection, dx, dy);
+            }
+        }
+    }
+
+    //Reverts the latest edit, false when there is nothing to undo. Undone edits are journaled like any other.
+    public boolean undo() {
+        synchronized (floorPlan) {
+            return history.undo(historyEditor);
+        }
+    }
+
+    //Applies the latest undone edit again, false when there is nothing to redo
+    public boolean redo() {
+        synchronized (floorPlan) {
+            return history.redo(historyEditor);
+        }
+    }
+
+    //How many edits can be undone, 0 turns the history off
+    public void setHistoryDepth(int depth) {
+        synchronized (floorPlan) {
+            history.setDepth(depth);
+        }
+    }
+
+    public PlanJournal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(PlanJournal journal) {
+        this.journal = journal;
+    }
+
+    //Method to change status of selected shape, makes it the only selected one or clears the selection
+    public void selectShape(CustomRectangle shape) {
+        synchronized (floorPlan) {
+            for (CustomRectangle selected : selection) {
+                selected.setSelected(false);
+            }
+            selection.clear();
+            if (shape != null) {
+                select(shape);
+            }
+        }
+    }
+
+    //Adds the booth to the selection or takes it out again
+    public void toggleSelection(CustomRectangle shape) {
+        synchronized (floorPlan) {
+            if (selection.contains(shape)) {
+                deselect(shape);
+            } else {
+                select(shape);
+            }
+        }
+    }
+
+    //Selects the booths overlapping the area, found by a range query on the plan's index. The area adds to
+    //the selection or replaces it.
+    public void selectArea(int x, int y, int width, int height, boolean add) {
+        synchronized (floorPlan) {
+            if (!add) {
+                selectShape(null);
+            }
+            for (CustomRectangle shape : floorPlan.shapesIn(x, y, width, height)) {
+                select(shape);
+            }
+        }
+    }
+
+    //The primary selection, the booth selected last
+    public CustomRectangle getSelectedShape() {
+        CustomRectangle last = null;
+        for (CustomRectangle shape : selection) {
+            last = shape;
+        }
+        return last;
+    }
+
+    //Every selected booth, a view that follows later changes
+    public Set<CustomRectangle> getSelection() {
+        return Collections.unmodifiableSet(selection);
+    }
+
+    //Area the selected booths cover including their selection border, null when nothing is selected
+    public Rectangle getSelectionBounds() {
+        Rectangle bounds = null;
+        for (CustomRectangle shape : selection) {
+            if (bounds == null) {
+                bounds = shape.getPaintBounds();
+            } else {
+                bounds.add(shape.getPaintBounds());
+            }
+        }
+        return bounds;
+    }
+
+    private void select(CustomRectangle shape) {
+        selection.remove(shape); // Moves it to the end, as the primary selection
+        selection.add(shape);
+        shape.setSelected(true);
+    }
+
+    private void deselect(CustomRectangle shape) {
+        if (selection.remove(shape)) {
+            shape.setSelected(false);
+        }
+    }
+
+    //Carries out undo and redo on the plan, journaling each change. Booths are looked up by position and type,
+    //which picks up booths that were compacted into rows since the edit.
+    private class HistoryEditor implements EditHistory.Editor {
+        @Override
+        public void add(int x, int y, BoothType type, Zone zone) {
+            addBooth(x, y, type, zone);
+        }
+
+        private CustomRectangle addBooth(int x, int y, BoothType type, Zone zone) {
+            CustomRectangle shape = new CustomRectangle(type);
+            shape.setPosition(x, y);
+            floorPlan.add(shape);
+            if (journal != null) {
+                journal.recordAdd(shape);
+            }
+            FloorPlan target = holder(zone);
+            if (target != floorPlan) {
+                join(target, Collections.singletonList(shape));
+            }
+            return shape;
+        }
+
+        @Override
+        public void remove(int x, int y, BoothType type) {
+            CustomRectangle shape = floorPlan.findBooth(x, y, type.width, type.height, type.argb);
+            if (shape == null) {
+                return;
+            }
+            deselect(shape);
+            floorPlan.remove(shape);
+            if (journal != null) {
+                journal.recordRemove(shape);
+            }
+        }
+
+        @Override
+        public void move(BoothType type, int fromX, int fromY, int toX, int toY) {
+            CustomRectangle shape = floorPlan.findBooth(fromX, fromY, type.width, type.height, type.argb);
+            if (shape != null) {
+                floorPlan.move(shape, toX, toY);
+                if (journal != null) {
+                    journal.recordMove(shape, fromX, fromY);
+                }
+            }
+        }
+
+        //Booths added back in bulk are kept as compact rows, as an import keeps them
+        @Override
+        public void addAll(int[] booths, Zone[] zones) {
+            List<CustomRectangle> added = new ArrayList<>(booths.length / 3);
+            for (int i = 0; i < booths.length; i += 3) {
+                Zone zone = zones == null ? null : zones[i / 3];
+                added.add(addBooth(booths[i], booths[i + 1], RectangleFactory.getType(booths[i + 2]), zone));
+            }
+            floorPlan.compactAdded(added);
+        }
+
+        @Override
+        public void removeAll(int[] booths) {
+            List<CustomRectangle> found = new ArrayList<>(booths.length / 3);
+            for (int i = 0; i < booths.length; i += 3) {
+                BoothType type = RectangleFactory.getType(booths[i + 2]);
+                CustomRectangle shape = floorPlan.findBooth(booths[i], booths[i + 1], type.width, type.height, type.argb);
+                if (shape != null) {
+                    deselect(shape);
+                    found.add(shape);
+                }
+            }
+            for (CustomRectangle shape : floorPlan.removeAll(found)) {
+                if (journal != null) {
+                    journal.recordRemove(shape);
+                }
+            }
+        }
+
+        @Override
+        public void moveAll(int[] booths, int dx, int dy) {
+            List<CustomRectangle> group = find(booths);
+            if (floorPlan.moveAll(group, dx, dy) && journal != null) {
+                for (CustomRectangle shape : group) {
+                    journal.recordMove(shape, shape.x - dx, shape.y - dy);
+                }
+            }
+        }
+
+        @Override
+        public FloorPlan.Contents clear() {
+            selectShape(null); // Deselected first, a restored booth must not come back selected
+            FloorPlan.Contents cleared = floorPlan.detach();
+            if (journal != null) {
+                journal.recordClear();
+            }
+            return cleared;
+        }
+
+        //The journal has no record for a restore, so it hears about every booth and zone that came back. A zone
+        //is journaled empty when it is entered, its booths join it once it is left.
+        @Override
+        public void restore(FloorPlan.Contents contents) {
+            floorPlan.restore(contents);
+            if (journal == null) {
+                return;
+            }
+            Deque<Integer> open = new ArrayDeque<>(); // Indexes of the zones being visited, innermost first
+            Deque<List<CustomRectangle>> members = new ArrayDeque<>();
+            floorPlan.forEachBooth((x, y, type) -> {
+                journal.recordAdd(x, y, type);
+                if (!members.isEmpty()) {
+                    CustomRectangle shape = new CustomRectangle(type);
+                    shape.setPosition(x, y);
+                    members.peek().add(shape);
+                }
+            }, new Zone.Visitor() {
+                private int entered;
+
+                @Override
+                public void enter(Zone zone) {
+                    journal.recordZone(zone.getName(), open.isEmpty() ? -1 : open.peek(), Collections.emptyList());
+                    open.push(entered++);
+                    members.push(new ArrayList<>());
+                }
+
+                @Override
+                public void exit(Zone zone) {
+                    journal.recordJoin(open.pop(), members.pop());
+                }
+            });
+        }
+
+        @Override
+        public void group(Zone.Grouping grouping) {
+            FloorPlanController.this.group(grouping, find(grouping.booths));
+        }
+
+        //Puts the booths back where they were: the zones the grouping dropped return first, outer ones before
+        //the zones inside them, then the booths go back to their zones, then the emptied zone goes
+        @Override
+        public void ungroup(Zone.Grouping grouping) {
+            Map<Zone, List<CustomRectangle>> back = new LinkedHashMap<>();
+            for (int i = 0; i < grouping.from.length; i++) {
+                BoothType type = RectangleFactory.getType(grouping.booths[3 * i + 2]);
+                CustomRectangle shape = floorPlan.findBooth(grouping.booths[3 * i], grouping.booths[3 * i + 1],
+                        type.width, type.height, type.argb);
+                if (shape != null) {
+                    back.computeIfAbsent(grouping.from[i], zone -> new ArrayList<>()).add(shape);
+                }
+            }
+            for (int i = grouping.dropped.size() - 1; i >= 0; i--) {
+                Zone zone = grouping.dropped.get(i);
+                FloorPlan parent = grouping.droppedFrom.get(i);
+                List<CustomRectangle> booths = back.getOrDefault(zone, Collections.emptyList());
+                back.remove(zone);
+                int parentIndex = parent == floorPlan ? -1 : floorPlan.zones().indexOf(parent);
+                parent.add(zone);
+                zone.addAll(floorPlan.removeAll(booths));
+                if (journal != null) {
+                    journal.recordZone(zone.getName(), parentIndex, booths);
+                }
+            }
+            for (Map.Entry<Zone, List<CustomRectangle>> entry : back.entrySet()) {
+                join(holder(entry.getKey()), entry.getValue());
+            }
+            int index = floorPlan.zones().indexOf(grouping.zone);
+            if (floorPlan.removeZone(grouping.zone) && journal != null) {
+                journal.recordDrop(index);
+            }
+        }
+
+        //The booths named by x, y and type id that the plan still has
+        private List<CustomRectangle> find(int[] booths) {
+            List<CustomRectangle> found = new ArrayList<>(booths.length / 3);
+            for (int i = 0; i < booths.length; i += 3) {
+                BoothType type = RectangleFactory.getType(booths[i + 2]);
+                CustomRectangle shape = floorPlan.findBooth(booths[i], booths[i + 1], type.width, type.height, type.argb);
+                if (shape != null) {
+                    found.add(shape);
+                }
+            }
+            return found;
+        }
+    }
+
+    //Outcome of a bulk insert, unplaced requests keep their input order. The plan keeps placed booths as
+    //compact rows, so the placed objects are a record of what was added rather than live booths.
+    static class BatchResult {
+        private final List<CustomRectangle> placed;
+        private final List<BoothRequest> unplaced;
+
+        BatchResult(List<CustomRectangle> placed, List<BoothRequest> unplaced) {
+            this.placed = placed;
+            this.unplaced = unplaced;
+        }
+
+        public List<CustomRectangle> getPlaced() {
+            return placed;
+        }
+
+        public List<BoothRequest> getUnplaced() {
+            return unplaced;
+        }
+    }
+}
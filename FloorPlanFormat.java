@@ -0,0 +1,550 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+//////////////////////////////////////////////////////////////////////////////// Plan file format
+//Compact binary floor plan file. Layout, all values big endian:
+//  magic "BFPL", u16 version, u16 reserved
+//  sections until end of file: 4 byte tag, i64 payload length, payload
+//    HEAD  i32 booth count, i32 minX, minY, maxX, maxY of all booths
+//    PALT  i32 color count, ARGB i32 per color
+//    ZONE  optional, i32 zone count, per zone u16 name length, UTF-8 name, i32 parent zone or -1, i32 first
+//          BOTH record, i32 record count. A zone's booths are one run of records, its nested zones' runs
+//          inside it, and zones are listed in the order their runs start, each after the zone holding it.
+//    BOTH  one 20 byte record per booth: i32 x, y, width, height, palette index
+//    TILE  i32 tile size, i32 widest and tallest booth, i32 tile count,
+//          per tile i32 column, row, first entry, entry count, then one i32 BOTH record index per booth
+//          grouped by the tile holding its top-left corner, so a viewport can be read without a full scan
+//    JGEN  i64 generation of the PlanJournal whose records apply on top of this file
+//Unknown sections are skipped by length so later versions can add data without breaking old readers.
+class FloorPlanFormat {
+    static final Path PLAN_DIRECTORY = Paths.get("saved_plans");
+    static final String EXTENSION = ".bfp";
+    static final String LEGACY_EXTENSION = ".ser";
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 20;
+    static final int TILE_SIZE = 512;
+
+    static final int MAGIC = 0x4246504C; // "BFPL"
+    static final int HEAD = tag("HEAD");
+    static final int PALT = tag("PALT");
+    static final int BOTH = tag("BOTH");
+    static final int TILE = tag("TILE");
+    static final int JGEN = tag("JGEN");
+    static final int ZONE = tag("ZONE");
+    static final int MAX_ZONE_NAME = 1024; // UTF-8 bytes
+    //Old serialized plans are read from the shared plan directory by the catalog, thumbnails and PlanTool
+    //without anyone opening them, so only the classes a plan is made of may be deserialized. Object arrays
+    //are the storage of ArrayList, primitive arrays are let through.
+    private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=200;maxarray=16777216;FloorPlan;Zone;CustomRectangle;java.util.ArrayList;java.awt.Color;"
+                    + "java.lang.String;java.lang.Object;!*");
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private FloorPlanFormat() {
+    }
+
+    public static Path planFile(String planName) {
+        return planFile(PLAN_DIRECTORY, planName);
+    }
+
+    public static Path planFile(Path directory, String planName) {
+        return directory.resolve(planName + EXTENSION);
+    }
+
+    public static Path legacyPlanFile(String planName) {
+        return legacyPlanFile(PLAN_DIRECTORY, planName);
+    }
+
+    public static Path legacyPlanFile(Path directory, String planName) {
+        return directory.resolve(planName + LEGACY_EXTENSION);
+    }
+
+    //Plan name for a file in either format, or null for other files
+    public static String planName(Path file) {
+        String name = file.getFileName().toString();
+        String lower = name.toLowerCase();
+        if (lower.endsWith(EXTENSION) || lower.endsWith(LEGACY_EXTENSION)) {
+            return name.substring(0, name.length() - 4);
+        }
+        return null;
+    }
+
+    //Opens a saved plan by name, falling back to the old serialized file when it has not been migrated yet
+    public static FloorPlan load(String planName) throws IOException {
+        return load(PLAN_DIRECTORY, planName);
+    }
+
+    public static FloorPlan load(Path directory, String planName) throws IOException {
+        Path file = planFile(directory, planName);
+        if (Files.exists(file)) {
+            return open(file);
+        }
+        FloorPlan plan = readLegacy(legacyPlanFile(directory, planName));
+        plan.compact();
+        return plan;
+    }
+
+    //Saves a plan by name and removes the old serialized file it replaces
+    public static void save(FloorPlan plan, String planName) throws IOException {
+        save(plan.snapshot(), planName);
+    }
+
+    public static void save(PlanSnapshot plan, String planName) throws IOException {
+        save(plan, PLAN_DIRECTORY, planName);
+    }
+
+    public static void save(PlanSnapshot plan, Path directory, String planName) throws IOException {
+        Files.createDirectories(directory);
+        writeAtomically(plan, planFile(directory, planName));
+        Files.deleteIfExists(legacyPlanFile(directory, planName));
+    }
+
+    //Writes to a temporary file first and renames it over the target, so a crash never leaves a truncated plan
+    public static void writeAtomically(PlanSnapshot plan, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            write(plan, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //Rewrites an old serialized plan in the binary format next to it and returns the new file
+    public static Path migrate(Path legacyFile) throws IOException {
+        FloorPlan plan = readLegacy(legacyFile);
+        Path target = legacyFile.resolveSibling(planName(legacyFile) + EXTENSION);
+        writeAtomically(plan.snapshot(), target);
+        Files.delete(legacyFile);
+        return target;
+    }
+
+    public static void write(FloorPlan plan, Path file) throws IOException {
+        write(plan.snapshot(), file);
+    }
+
+    //Writes the snapshot and forces it to disk before returning
+    public static void write(PlanSnapshot plan, Path file) throws IOException {
+        HashMap<Integer, Integer> paletteIndex = new HashMap<>();
+        List<Integer> palette = new ArrayList<>();
+        int minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for (int i = 0; i < plan.size; i++) {
+            if (!paletteIndex.containsKey(plan.argb[i])) {
+                paletteIndex.put(plan.argb[i], palette.size());
+                palette.add(plan.argb[i]);
+            }
+            minX = i == 0 ? plan.x[i] : Math.min(minX, plan.x[i]);
+            minY = i == 0 ? plan.y[i] : Math.min(minY, plan.y[i]);
+            maxX = i == 0 ? plan.x[i] + plan.width[i] : Math.max(maxX, plan.x[i] + plan.width[i]);
+            maxY = i == 0 ? plan.y[i] + plan.height[i] : Math.max(maxY, plan.y[i] + plan.height[i]);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0);
+
+            buffer.putInt(HEAD).putLong(20);
+            buffer.putInt(plan.size).putInt(minX).putInt(minY).putInt(maxX).putInt(maxY);
+
+            buffer.putInt(PALT).putLong(4 + 4L * palette.size());
+            buffer.putInt(palette.size());
+            for (int argb : palette) {
+                ensureRoom(channel, buffer, 4);
+                buffer.putInt(argb);
+            }
+            if (plan.zoneNames.length > 0) {
+                writeZones(channel, buffer, plan);
+            }
+
+            ensureRoom(channel, buffer, 12);
+            buffer.putInt(BOTH).putLong((long) RECORD_SIZE * plan.size);
+            for (int i = 0; i < plan.size; i++) {
+                ensureRoom(channel, buffer, RECORD_SIZE);
+                buffer.putInt(plan.x[i]).putInt(plan.y[i]).putInt(plan.width[i]).putInt(plan.height[i])
+                        .putInt(paletteIndex.get(plan.argb[i]));
+            }
+            writeTiles(channel, buffer, plan);
+            ensureRoom(channel, buffer, 20);
+            buffer.putInt(JGEN).putLong(8).putLong(plan.journalGeneration);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    public static FloorPlan read(Path file) throws IOException {
+        FloorPlan plan = new FloorPlan();
+        //Booths go straight into compact rows, they become objects only when the editor touches them. Each
+        //zone gets rows of its own, filled from the run of records the zone table gives it.
+        List<ZoneRecord> zones = new ArrayList<>();
+        BoothTable[][] tables = new BoothTable[1][]; // The plan's own rows, then each zone's
+        int[][] owners = new int[1][]; // Per record, 0 for the plan or 1 + the innermost zone holding it
+        int[] record = {0};
+        scan(file, bounds -> { }, count -> {
+            tables[0] = new BoothTable[1 + zones.size()];
+            tables[0][0] = new BoothTable((int) Math.min(count, 1 << 20));
+            if (!zones.isEmpty()) {
+                owners[0] = new int[(int) count];
+                for (int z = 0; z < zones.size(); z++) {
+                    ZoneRecord zone = zones.get(z);
+                    tables[0][1 + z] = new BoothTable(zone.count);
+                    Arrays.fill(owners[0], zone.first, zone.first + zone.count, 1 + z); // Nested zones come later
+                }
+            }
+        }, zones, (x, y, type) -> tables[0][owners[0] == null ? 0 : owners[0][record[0]++]].add(x, y, type, 0));
+        if (tables[0] != null) {
+            plan.setSource(tables[0][0]);
+        }
+        Zone[] built = new Zone[zones.size()];
+        for (int z = 0; z < built.length; z++) {
+            built[z] = new Zone(zones.get(z).name);
+            if (tables[0] != null) {
+                built[z].setSource(tables[0][1 + z]);
+            }
+            int parent = zones.get(z).parent;
+            (parent < 0 ? plan : built[parent]).add(built[z]);
+        }
+        return plan;
+    }
+
+    //Streams the booths of a plan file in drawing order without building a plan, for indexing and previews.
+    //Booths of zones come in their place in that order.
+    public static void scan(Path file, BoothTable.Visitor visitor) throws IOException {
+        scan(file, bounds -> { }, count -> { }, new ArrayList<>(), visitor);
+    }
+
+    //Streams the booths like scan(file, visitor), first passing on the bounds of all booths the file records,
+    //null for a plan without booths
+    public static void scan(Path file, Consumer<Rectangle> bounds, BoothTable.Visitor visitor) throws IOException {
+        scan(file, bounds, count -> { }, new ArrayList<>(), visitor);
+    }
+
+    //Zones are added to the list as they are read, which is before the booth count is passed on
+    private static void scan(Path file, Consumer<Rectangle> bounds, LongConsumer boothCount, List<ZoneRecord> zones,
+                             BoothTable.Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+            require(channel, buffer, 8);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a floor plan file: " + file);
+            }
+            int version = buffer.getShort() & 0xFFFF;
+            buffer.getShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported floor plan version " + version + ": " + file);
+            }
+
+            Color[] palette = new Color[0];
+            while (fill(channel, buffer, 12)) {
+                int tag = buffer.getInt();
+                long length = buffer.getLong();
+                if (length < 0) {
+                    throw new IOException("Corrupt section length in " + file);
+                }
+                if (tag == HEAD) {
+                    if (length < 20) {
+                        throw new IOException("Corrupt header in " + file);
+                    }
+                    require(channel, buffer, 20);
+                    int count = buffer.getInt();
+                    int minX = buffer.getInt(), minY = buffer.getInt(), maxX = buffer.getInt(), maxY = buffer.getInt();
+                    bounds.accept(count > 0 ? new Rectangle(minX, minY, maxX - minX, maxY - minY) : null);
+                    skip(channel, buffer, length - 20);
+                } else if (tag == PALT) {
+                    require(channel, buffer, 4);
+                    int colors = buffer.getInt();
+                    if (colors < 0 || 4L + 4L * colors != length) {
+                        throw new IOException("Corrupt palette in " + file);
+                    }
+                    palette = new Color[colors];
+                    for (int i = 0; i < palette.length; i++) {
+                        require(channel, buffer, 4);
+                        palette[i] = new Color(buffer.getInt(), true);
+                    }
+                } else if (tag == ZONE) {
+                    readZones(channel, buffer, length, zones, file);
+                } else if (tag == BOTH) {
+                    if (length % RECORD_SIZE != 0) {
+                        throw new IOException("Corrupt booth table in " + file);
+                    }
+                    long count = length / RECORD_SIZE;
+                    for (ZoneRecord zone : zones) {
+                        if ((long) zone.first + zone.count > count) {
+                            throw new IOException("Zone " + zone.name + " runs past the booth table in " + file);
+                        }
+                    }
+                    boothCount.accept(count);
+                    for (long i = 0; i < count; i++) {
+                        require(channel, buffer, RECORD_SIZE);
+                        int x = buffer.getInt(), y = buffer.getInt();
+                        int width = buffer.getInt(), height = buffer.getInt();
+                        int colorIndex = buffer.getInt();
+                        if (colorIndex < 0 || colorIndex >= palette.length) {
+                            throw new IOException("Booth color out of palette range in " + file);
+                        }
+                        visitor.visit(x, y, RectangleFactory.getType(width, height, palette[colorIndex]));
+                    }
+                } else {
+                    skip(channel, buffer, length);
+                }
+            }
+        }
+    }
+
+    //Opens a plan without reading its booths, they are materialized from a memory mapped view of the file
+    //as areas of the plan are drawn or queried. Falls back to a full read for files without a tile table,
+    //and for files with zones.
+    public static FloorPlan open(Path file) throws IOException {
+        MappedPlanSource source = MappedPlanSource.map(file);
+        if (source == null) {
+            return read(file);
+        }
+        FloorPlan plan = new FloorPlan();
+        plan.setSource(source);
+        return plan;
+    }
+
+    //Journal generation recorded in a saved plan, 0 for plans saved before journaling or in the old format
+    public static long journalGeneration(String planName) throws IOException {
+        return journalGeneration(planFile(planName));
+    }
+
+    //Journal generation recorded in a plan file, 0 when there is no such file
+    public static long journalGeneration(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            long position = 8;
+            while (position + 12 <= channel.size()) {
+                header.clear();
+                while (header.hasRemaining() && channel.read(header, position + header.position()) >= 0) {
+                    // keep reading until the section header is complete
+                }
+                header.flip();
+                int tag = header.getInt();
+                long length = header.getLong();
+                if (tag == JGEN && length >= 8) {
+                    ByteBuffer value = ByteBuffer.allocate(8);
+                    while (value.hasRemaining() && channel.read(value, position + 12 + value.position()) >= 0) {
+                        // keep reading until the value is complete
+                    }
+                    value.flip();
+                    return value.getLong();
+                }
+                if (length < 0) {
+                    break;
+                }
+                position += 12 + length;
+            }
+            return 0;
+        }
+    }
+
+    //Reads a plan written by the old ObjectOutputStream based save
+    public static FloorPlan readLegacy(Path file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file.toFile()))) {
+            in.setObjectInputFilter(LEGACY_FILTER);
+            return (FloorPlan) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a serialized floor plan: " + file, e);
+        }
+    }
+
+    //Writes a plan in the old ObjectOutputStream based format, for tools that still read it
+    public static void writeLegacy(FloorPlan plan, Path file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(plan);
+        }
+    }
+
+    private static void writeZones(FileChannel channel, ByteBuffer buffer, PlanSnapshot plan) throws IOException {
+        byte[][] names = new byte[plan.zoneNames.length][];
+        long length = 4;
+        for (int z = 0; z < names.length; z++) {
+            names[z] = plan.zoneNames[z].getBytes(StandardCharsets.UTF_8);
+            if (names[z].length > MAX_ZONE_NAME) {
+                throw new IOException("Zone name longer than " + MAX_ZONE_NAME + " bytes: " + plan.zoneNames[z]);
+            }
+            length += 2 + names[z].length + 12;
+        }
+        ensureRoom(channel, buffer, 16);
+        buffer.putInt(ZONE).putLong(length).putInt(names.length);
+        for (int z = 0; z < names.length; z++) {
+            ensureRoom(channel, buffer, 2 + names[z].length + 12);
+            buffer.putShort((short) names[z].length).put(names[z]);
+            buffer.putInt(plan.zoneParent[z]).putInt(plan.zoneFirst[z]).putInt(plan.zoneCount[z]);
+        }
+    }
+
+    private static void readZones(FileChannel channel, ByteBuffer buffer, long length, List<ZoneRecord> zones,
+                                  Path file) throws IOException {
+        require(channel, buffer, 4);
+        int count = buffer.getInt();
+        long read = 4;
+        for (int z = 0; z < count && read < length; z++) {
+            require(channel, buffer, 2);
+            int nameLength = buffer.getShort() & 0xFFFF;
+            if (nameLength > MAX_ZONE_NAME) {
+                throw new IOException("Corrupt zone table in " + file);
+            }
+            require(channel, buffer, nameLength + 12);
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            ZoneRecord zone = new ZoneRecord(new String(name, StandardCharsets.UTF_8), buffer.getInt(),
+                    buffer.getInt(), buffer.getInt());
+            if (zone.parent < -1 || zone.parent >= z || zone.first < 0 || zone.count < 0) {
+                throw new IOException("Corrupt zone table in " + file);
+            }
+            zones.add(zone);
+            read += 2 + nameLength + 12;
+        }
+        if (count < 0 || zones.size() != count || read != length) {
+            throw new IOException("Corrupt zone table in " + file);
+        }
+    }
+
+    //Groups booth record indexes by the tile holding each booth's top-left corner
+    private static void writeTiles(FileChannel channel, ByteBuffer buffer, PlanSnapshot plan) throws IOException {
+        HashMap<Long, Integer> tileNumbers = new HashMap<>();
+        List<int[]> tiles = new ArrayList<>(); // {column, row, first entry, entry count}
+        int[] tileOfBooth = new int[plan.size];
+        int maxWidth = 0, maxHeight = 0;
+        for (int i = 0; i < plan.size; i++) {
+            int column = Math.floorDiv(plan.x[i], TILE_SIZE);
+            int row = Math.floorDiv(plan.y[i], TILE_SIZE);
+            Integer number = tileNumbers.get(tileKey(column, row));
+            if (number == null) {
+                number = tiles.size();
+                tileNumbers.put(tileKey(column, row), number);
+                tiles.add(new int[]{column, row, 0, 0});
+            }
+            tileOfBooth[i] = number;
+            tiles.get(number)[3]++;
+            maxWidth = Math.max(maxWidth, plan.width[i]);
+            maxHeight = Math.max(maxHeight, plan.height[i]);
+        }
+        int[] next = new int[tiles.size()];
+        int first = 0;
+        for (int t = 0; t < tiles.size(); t++) {
+            tiles.get(t)[2] = first;
+            next[t] = first;
+            first += tiles.get(t)[3];
+        }
+        int[] entries = new int[plan.size];
+        for (int i = 0; i < plan.size; i++) {
+            entries[next[tileOfBooth[i]]++] = i;
+        }
+
+        ensureRoom(channel, buffer, 28);
+        buffer.putInt(TILE).putLong(16 + 16L * tiles.size() + 4L * entries.length);
+        buffer.putInt(TILE_SIZE).putInt(maxWidth).putInt(maxHeight).putInt(tiles.size());
+        for (int[] tile : tiles) {
+            ensureRoom(channel, buffer, 16);
+            buffer.putInt(tile[0]).putInt(tile[1]).putInt(tile[2]).putInt(tile[3]);
+        }
+        for (int entry : entries) {
+            ensureRoom(channel, buffer, 4);
+            buffer.putInt(entry);
+        }
+    }
+
+    static long tileKey(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    static int tag(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    //Makes at least the given number of bytes readable, false on a clean end of file
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                boolean clean = buffer.position() == 0;
+                buffer.flip();
+                if (clean) {
+                    return false;
+                }
+                throw new EOFException("Floor plan file ends inside a section");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static void require(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (!fill(channel, buffer, bytes)) {
+            throw new EOFException("Floor plan file ends inside a section");
+        }
+    }
+
+    private static void skip(FileChannel channel, ByteBuffer buffer, long length) throws IOException {
+        long buffered = Math.min(length, buffer.remaining());
+        buffer.position(buffer.position() + (int) buffered);
+        if (length > buffered) {
+            channel.position(channel.position() + length - buffered);
+        }
+    }
+
+    //A zone as the ZONE section lists it
+    private static final class ZoneRecord {
+        final String name;
+        final int parent;
+        final int first;
+        final int count;
+
+        ZoneRecord(String name, int parent, int first, int count) {
+            this.name = name;
+            this.parent = parent;
+            this.first = first;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+/////////////////////////////////////////////////////////////////////////////////////// Observer pattern
+//Notified after every change to a FloorPlan so helpers can keep derived state incremental
+interface FloorPlanListener {
+    default void shapeAdded(CustomRectangle shape) {}
+    default void shapeRemoved(CustomRectangle shape) {}
+    default void shapeMoved(CustomRectangle shape, int oldX, int oldY) {}
+    default void planCleared() {}
+    default void planRestored() {} // Booths replaced at once, by what a clear took out or in a nested plan
+}
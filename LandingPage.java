@@ -1,15 +1,31 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.io.File;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class LandingPage extends JFrame {
-    private JList<String> savedPlansList;
-    private DefaultListModel<String> listModel;
+    private static final long serialVersionUID = 1L;
+    private JList<PlanCatalog.Entry> savedPlansList;
+    private DefaultListModel<PlanCatalog.Entry> listModel;
+    private JTextField searchField;
+    private List<PlanCatalog.Entry> catalogEntries;
+    //Catalog updates arrive on the event thread, the list is refiltered in memory
+    private final Consumer<List<PlanCatalog.Entry>> catalogListener = entries -> {
+        catalogEntries = entries;
+        showPlans();
+    };
 
     public LandingPage() {
         //Setup GUI
         setTitle("Floor Plan Manager");
-        setSize(600, 300);
+        setSize(600, 400);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
@@ -26,13 +42,49 @@ public class LandingPage extends JFrame {
         buttonPanel.add(loadPlanButton);
         buttonPanel.add(deletePlanButton);
 
+        searchField = new JTextField();
+        searchField.setToolTipText("Words in the plan name, or booths>N, booths<N");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                showPlans();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                showPlans();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                showPlans();
+            }
+        });
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(buttonPanel, BorderLayout.NORTH);
+        topPanel.add(searchPanel, BorderLayout.SOUTH);
+
         listModel = new DefaultListModel<>();
         savedPlansList = new JList<>(listModel);
+        savedPlansList.setCellRenderer(new PlanCellRenderer());
+        //Fixed cell sizes keep the list from asking the renderer about every plan, so only rows scrolled into
+        //view ask for previews. Rows still span the viewport, which the list tracks while it is wider.
+        savedPlansList.setFixedCellHeight(ThumbnailCache.SIZE + 6);
+        savedPlansList.setFixedCellWidth(1);
         JScrollPane listScrollPane = new JScrollPane(savedPlansList);
+        add(topPanel, BorderLayout.NORTH);
         add(listScrollPane, BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.NORTH);
-        add(listScrollPane, BorderLayout.CENTER);
-        loadSavedPlans();
+        //The catalog loads and follows saved_plans in the background, the page shows whatever it has so far
+        PlanCatalog.shared().addListener(catalogListener);
+    }
+
+    @Override
+    public void dispose() {
+        PlanCatalog.shared().removeListener(catalogListener);
+        super.dispose();
     }
 
     //Creates a new floor plan
@@ -46,8 +98,9 @@ public class LandingPage extends JFrame {
 
     //Loads existing Floorplan
     private void loadSelectedFloorPlan() {
-        String selectedPlan = savedPlansList.getSelectedValue();
-        if (selectedPlan != null) {
+        PlanCatalog.Entry selected = savedPlansList.getSelectedValue();
+        if (selected != null) {
+            String selectedPlan = selected.name;
             SwingUtilities.invokeLater(() -> {
                 BoothFloorPlan frame = new BoothFloorPlan(selectedPlan);
                 frame.setVisible(true);
@@ -58,15 +111,22 @@ public class LandingPage extends JFrame {
         }
     }
 
-    //Method to actually move file and load serialized data
-    private void loadSavedPlans() {
+    //Lists the catalog entries matching the search, keeping the selection when it is still listed
+    private void showPlans() {
+        if (catalogEntries == null) {
+            return;
+        }
+        PlanCatalog.Entry selected = savedPlansList.getSelectedValue();
+        List<PlanCatalog.Entry> shown = PlanCatalog.filter(catalogEntries, searchField.getText());
         listModel.clear();
-        File folder = new File("saved_plans");
-        if (folder.exists() && folder.isDirectory()) {
-            File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".ser"));
-            if (files != null) {
-                for (File file : files) {
-                    listModel.addElement(file.getName().replace(".ser", ""));
+        for (PlanCatalog.Entry entry : shown) {
+            listModel.addElement(entry);
+        }
+        if (selected != null) {
+            for (int i = 0; i < shown.size(); i++) {
+                if (shown.get(i).name.equals(selected.name)) {
+                    savedPlansList.setSelectedIndex(i);
+                    break;
                 }
             }
         }
@@ -74,8 +134,9 @@ public class LandingPage extends JFrame {
 
     //deletes selected floorplan
     private void deleteSelectedFloorPlan() {
-        String selectedPlan = savedPlansList.getSelectedValue();
-        if (selectedPlan != null) {
+        PlanCatalog.Entry selected = savedPlansList.getSelectedValue();
+        if (selected != null) {
+            String selectedPlan = selected.name;
             int confirm = JOptionPane.showConfirmDialog(
                 this,
                 "Are you sure you want to delete the floor plan '" + selectedPlan + "'?",
@@ -85,9 +146,17 @@ public class LandingPage extends JFrame {
             );
 
             if (confirm == JOptionPane.YES_OPTION) {
-                File fileToDelete = new File("saved_plans/" + selectedPlan + ".ser");
-                if (fileToDelete.delete()) {
-                    listModel.removeElement(selectedPlan);
+                boolean deleted;
+                try {
+                    deleted = Files.deleteIfExists(FloorPlanFormat.planFile(selectedPlan))
+                            | Files.deleteIfExists(FloorPlanFormat.legacyPlanFile(selectedPlan));
+                    Files.deleteIfExists(PlanJournal.journalFile(selectedPlan));
+                    Files.deleteIfExists(PlanJournal.checkpointFile(selectedPlan));
+                } catch (IOException e) {
+                    deleted = false;
+                }
+                if (deleted) {
+                    listModel.removeElement(selected); // The catalog drops it too once it sees the files go
                     JOptionPane.showMessageDialog(this, "Floor plan deleted successfully.", "Deletion Successful", JOptionPane.INFORMATION_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(this, "Error deleting floor plan.", "Deletion Error", JOptionPane.ERROR_MESSAGE);
@@ -98,6 +167,28 @@ public class LandingPage extends JFrame {
         }
     }
 
+    //Preview, plan name with its booth count, size and when it was last saved. A preview not yet in memory
+    //shows the catalog's coarse coverage until the thumbnail cache has it and repaints the list.
+    private static class PlanCellRenderer extends DefaultListCellRenderer {
+        private static final long serialVersionUID = 1L;
+        private final DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                      boolean cellHasFocus) {
+            PlanCatalog.Entry entry = (PlanCatalog.Entry) value;
+            String details = entry.isReadable()
+                    ? entry.booths + " booths, " + (entry.maxX - entry.minX) + " x " + (entry.maxY - entry.minY)
+                    : "unreadable";
+            String text = entry.name + "  (" + details + ", saved " + dateFormat.format(new Date(entry.modified)) + ")";
+            super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            BufferedImage preview = ThumbnailCache.shared().get(entry, list::repaint);
+            setIcon(new ImageIcon(preview != null ? preview : ThumbnailCache.placeholder(entry)));
+            setIconTextGap(8);
+            return this;
+        }
+    }
+
     //MAIN
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
@@ -0,0 +1,292 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+//////////////////////////////////////////////////////////////////////////////// Lazy plan loading
+//Booths of a .bfp file that have not been materialized yet. Only the header, palette and tile table are
+//read and checked when the file is opened, so opening takes the same time on any number of booths; booth
+//records are read from the memory mapped file one tile at a time, and a record that turns out to be corrupt
+//then fails the read with an UncheckedIOException.
+class MappedPlanSource implements PlanSource {
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final Color[] palette;
+    private final Rectangle bounds;
+    private final int recordsOffset;
+    private final int recordCount;
+    private final int tileSize;
+    private final int maxBoothWidth;
+    private final int maxBoothHeight;
+    private final HashMap<Long, Integer> tileNumbers = new HashMap<>();
+    private final int[] tileFirst;
+    private final int[] tileCount;
+    private final int entriesOffset;
+    private final BitSet loadedTiles;
+    private BitSet unreadRecords; // Records of the tiles not read yet, found on the first walk over them
+    private int unloaded;
+
+    private MappedPlanSource(Path file, MappedByteBuffer data, Rectangle bounds, Color[] palette, int recordsOffset,
+                             int recordCount, int tileOffset, long tileLength) throws IOException {
+        this.file = file;
+        this.data = data;
+        this.bounds = bounds;
+        this.palette = palette;
+        this.recordsOffset = recordsOffset;
+        this.recordCount = recordCount;
+        tileSize = data.getInt(tileOffset);
+        maxBoothWidth = data.getInt(tileOffset + 4);
+        maxBoothHeight = data.getInt(tileOffset + 8);
+        int tiles = data.getInt(tileOffset + 12);
+        long entries = recordCount; // One entry per booth record
+        if (tileSize <= 0 || maxBoothWidth < 0 || maxBoothHeight < 0 || tiles < 0
+                || tileLength != 16 + 16L * tiles + 4 * entries) {
+            throw new IOException("Corrupt tile table in " + file);
+        }
+        tileFirst = new int[tiles];
+        tileCount = new int[tiles];
+        int position = tileOffset + 16;
+        for (int t = 0; t < tiles; t++) {
+            tileNumbers.put(FloorPlanFormat.tileKey(data.getInt(position), data.getInt(position + 4)), t);
+            tileFirst[t] = data.getInt(position + 8);
+            tileCount[t] = data.getInt(position + 12);
+            if (tileFirst[t] < 0 || tileCount[t] < 0 || (long) tileFirst[t] + tileCount[t] > entries) {
+                throw new IOException("Corrupt tile table in " + file);
+            }
+            position += 16;
+        }
+        entriesOffset = position;
+        loadedTiles = new BitSet(tiles);
+        unloaded = recordCount;
+    }
+
+    //Maps a plan file, or returns null when it is too large to map, has no header or tile table, or has zones
+    public static MappedPlanSource map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 8 || data.getInt(0) != FloorPlanFormat.MAGIC) {
+                throw new IOException("Not a floor plan file: " + file);
+            }
+            if ((data.getShort(4) & 0xFFFF) > FloorPlanFormat.VERSION) {
+                throw new IOException("Unsupported floor plan version: " + file);
+            }
+            Rectangle bounds = null;
+            boolean header = false;
+            Color[] palette = null;
+            int recordsOffset = -1, recordCount = 0, tileOffset = -1;
+            long tileLength = 0;
+            long position = 8;
+            while (position + 12 <= size) {
+                int tag = data.getInt((int) position);
+                long length = data.getLong((int) position + 4);
+                long payload = position + 12;
+                if (length < 0 || payload + length > size) {
+                    throw new IOException("Corrupt section length in " + file);
+                }
+                if (tag == FloorPlanFormat.HEAD) {
+                    if (length < 20) {
+                        throw new IOException("Corrupt header in " + file);
+                    }
+                    int at = (int) payload;
+                    int minX = data.getInt(at + 4), minY = data.getInt(at + 8);
+                    if (data.getInt(at) > 0) {
+                        bounds = new Rectangle(minX, minY, data.getInt(at + 12) - minX, data.getInt(at + 16) - minY);
+                    }
+                    header = true;
+                } else if (tag == FloorPlanFormat.PALT) {
+                    int colors = length < 4 ? -1 : data.getInt((int) payload);
+                    if (colors < 0 || 4L + 4L * colors != length) {
+                        throw new IOException("Corrupt palette in " + file);
+                    }
+                    palette = new Color[colors];
+                    for (int i = 0; i < palette.length; i++) {
+                        palette[i] = new Color(data.getInt((int) payload + 4 + 4 * i), true);
+                    }
+                } else if (tag == FloorPlanFormat.BOTH) {
+                    if (length % FloorPlanFormat.RECORD_SIZE != 0) {
+                        throw new IOException("Corrupt booth table in " + file);
+                    }
+                    recordsOffset = (int) payload;
+                    recordCount = (int) (length / FloorPlanFormat.RECORD_SIZE);
+                } else if (tag == FloorPlanFormat.TILE) {
+                    if (length < 16) {
+                        throw new IOException("Corrupt tile table in " + file);
+                    }
+                    tileOffset = (int) payload;
+                    tileLength = length;
+                } else if (tag == FloorPlanFormat.ZONE) {
+                    return null; // Zones hold booths of their own, read in full into them
+                }
+                position = payload + length;
+            }
+            if (!header || palette == null || recordsOffset < 0 || tileOffset < 0) {
+                return null;
+            }
+            return new MappedPlanSource(file, data, bounds, palette, recordsOffset, recordCount, tileOffset,
+                    tileLength);
+        }
+    }
+
+    @Override
+    public int recordCount() {
+        return recordCount;
+    }
+
+    //Booths not materialized yet
+    @Override
+    public int unloadedCount() {
+        return unloaded;
+    }
+
+    //Bounds of all booths as the file's header records them
+    @Override
+    public Rectangle bounds() {
+        return bounds == null ? null : new Rectangle(bounds);
+    }
+
+    //Materializes the booths of every unread tile that may overlap the area, in drawing order
+    @Override
+    public List<CustomRectangle> load(int x, int y, int width, int height) {
+        List<CustomRectangle> booths = new ArrayList<>();
+        if (unloaded == 0) {
+            return booths;
+        }
+        //A booth is filed under its top-left corner, so it can reach into the area from up to one booth size away
+        int column0 = Math.floorDiv(x - maxBoothWidth, tileSize);
+        int row0 = Math.floorDiv(y - maxBoothHeight, tileSize);
+        int column1 = Math.floorDiv(x + width, tileSize);
+        int row1 = Math.floorDiv(y + height, tileSize);
+        if ((long) (column1 - column0 + 1) * (row1 - row0 + 1) > tileNumbers.size()) {
+            return loadAll();
+        }
+        for (int column = column0; column <= column1; column++) {
+            for (int row = row0; row <= row1; row++) {
+                Integer tile = tileNumbers.get(FloorPlanFormat.tileKey(column, row));
+                if (tile != null && !loadedTiles.get(tile)) {
+                    loadTile(tile, booths);
+                }
+            }
+        }
+        booths.sort((a, b) -> Integer.compare(a.order, b.order));
+        return booths;
+    }
+
+    //Materializes everything still on disk, in drawing order
+    @Override
+    public List<CustomRectangle> loadAll() {
+        CustomRectangle[] booths = new CustomRectangle[recordCount];
+        for (int tile = 0; tile < tileFirst.length; tile++) {
+            if (!loadedTiles.get(tile)) {
+                for (int i = 0; i < tileCount[tile]; i++) {
+                    int record = entry(tileFirst[tile] + i);
+                    booths[record] = readRecord(record);
+                }
+                loadedTiles.set(tile);
+            }
+        }
+        unloaded = 0;
+        unreadRecords = null;
+        List<CustomRectangle> ordered = new ArrayList<>();
+        for (CustomRectangle booth : booths) {
+            if (booth != null) {
+                ordered.add(booth);
+            }
+        }
+        return ordered;
+    }
+
+    //Visits the unread records without materializing them
+    @Override
+    public void forEach(int from, int to, BoothTable.Visitor visitor) {
+        if (unreadRecords == null) {
+            unreadRecords = recordsOf(loadedTiles);
+        }
+        visit(unreadRecords, from, to, visitor);
+    }
+
+    //Only which tiles are read is copied, the file's records do not change; the records of the other tiles
+    //are looked up when the copy is first visited, on the thread visiting it
+    @Override
+    public Rows unread() {
+        BitSet read = (BitSet) loadedTiles.clone();
+        BitSet[] records = new BitSet[1];
+        return (from, to, visitor) -> {
+            if (records[0] == null) {
+                records[0] = recordsOf(read);
+            }
+            visit(records[0], from, to, visitor);
+        };
+    }
+
+    private void loadTile(int tile, List<CustomRectangle> booths) {
+        for (int i = 0; i < tileCount[tile]; i++) {
+            int record = entry(tileFirst[tile] + i);
+            booths.add(readRecord(record));
+            if (unreadRecords != null) {
+                unreadRecords.clear(record);
+            }
+        }
+        loadedTiles.set(tile);
+        unloaded -= tileCount[tile];
+    }
+
+    //Records filed under the tiles not in the read set
+    private BitSet recordsOf(BitSet read) {
+        BitSet records = new BitSet(recordCount);
+        for (int tile = read.nextClearBit(0); tile < tileFirst.length; tile = read.nextClearBit(tile + 1)) {
+            for (int i = 0; i < tileCount[tile]; i++) {
+                records.set(entry(tileFirst[tile] + i));
+            }
+        }
+        return records;
+    }
+
+    private void visit(BitSet records, int from, int to, BoothTable.Visitor visitor) {
+        int record = records.nextSetBit(from);
+        while (record >= 0 && record < to) {
+            int position = recordsOffset + record * FloorPlanFormat.RECORD_SIZE;
+            visitor.visit(data.getInt(position), data.getInt(position + 4),
+                    RectangleFactory.getType(data.getInt(position + 8), data.getInt(position + 12), color(position)));
+            record = records.nextSetBit(record + 1);
+        }
+    }
+
+    //Record index a tile entry gives, checked to be in range
+    private int entry(int index) {
+        int record = data.getInt(entriesOffset + 4 * index);
+        if (record < 0 || record >= recordCount) {
+            throw new UncheckedIOException(new IOException("Booth record out of range in " + file));
+        }
+        return record;
+    }
+
+    //Reads a booth record, checking the record's palette index as it goes
+    private CustomRectangle readRecord(int record) {
+        int position = recordsOffset + record * FloorPlanFormat.RECORD_SIZE;
+        CustomRectangle rect = new CustomRectangle(data.getInt(position + 8), data.getInt(position + 12),
+                color(position));
+        rect.setPosition(data.getInt(position), data.getInt(position + 4));
+        rect.order = record;
+        return rect;
+    }
+
+    private Color color(int position) {
+        int colorIndex = data.getInt(position + 16);
+        if (colorIndex < 0 || colorIndex >= palette.length) {
+            throw new UncheckedIOException(new IOException("Booth color out of palette range in " + file));
+        }
+        return palette[colorIndex];
+    }
+}
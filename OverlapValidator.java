@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//////////////////////////////////////////////////////////////////////////////// Overlap validation
+//Lists every pair of overlapping booths in a plan. Booths are bucketed into horizontal strips about two
+//booths high, and each strip is sorted by x and swept left to right, so a booth is only compared with the
+//booths of its strip that start before it ends. Strips share nothing and are checked in parallel on the
+//common fork-join pool. A booth spanning several strips is in each of them, but a pair is only reported by
+//the strip holding the top edge of the overlap.
+class OverlapValidator {
+    //Strips holding fewer booths than this together are swept by one task
+    private static final int SEQUENTIAL_ENTRIES = 1 << 14;
+
+    private final PlanSnapshot plan;
+    private final int top;
+    private final int stripHeight;
+    private final int[] stripFirst; // Strip s holds booths entries[stripFirst[s]..stripFirst[s + 1])
+    private final int[] entries;
+
+    private OverlapValidator(PlanSnapshot plan) {
+        this.plan = plan;
+        int minY = Integer.MAX_VALUE;
+        long maxY = Long.MIN_VALUE;
+        long totalHeight = 0;
+        for (int i = 0; i < plan.size; i++) {
+            minY = Math.min(minY, plan.y[i]);
+            maxY = Math.max(maxY, (long) plan.y[i] + Math.max(plan.height[i], 1));
+            totalHeight += plan.height[i];
+        }
+        top = minY;
+        //Sparse plans get taller strips, so there are never many more strips than booths
+        long extent = maxY - minY;
+        long height = Math.max(Math.max(1, 2 * totalHeight / plan.size), extent / plan.size + 1);
+        stripHeight = (int) Math.min(height, 1 << 30);
+        int strips = (int) ((extent + stripHeight - 1) / stripHeight);
+        int[] counts = new int[strips + 1];
+        for (int i = 0; i < plan.size; i++) {
+            for (int s = firstStrip(i); s <= lastStrip(i); s++) {
+                counts[s + 1]++;
+            }
+        }
+        for (int s = 0; s < strips; s++) {
+            counts[s + 1] += counts[s];
+        }
+        stripFirst = counts;
+        int[] next = Arrays.copyOf(counts, strips);
+        entries = new int[counts[strips]];
+        for (int i = 0; i < plan.size; i++) {
+            for (int s = firstStrip(i); s <= lastStrip(i); s++) {
+                entries[next[s]++] = i;
+            }
+        }
+    }
+
+    //Every overlapping pair of booths in the snapshot, edges touching do not count
+    public static Conflicts validate(PlanSnapshot plan) {
+        if (plan.size < 2) {
+            return new Conflicts(new long[0]);
+        }
+        OverlapValidator validator = new OverlapValidator(plan);
+        long[] pairs = ForkJoinPool.commonPool().invoke(validator.new Sweep(0, validator.stripFirst.length - 1));
+        Arrays.sort(pairs);
+        return new Conflicts(pairs);
+    }
+
+    private int firstStrip(int booth) {
+        return (int) (((long) plan.y[booth] - top) / stripHeight);
+    }
+
+    private int lastStrip(int booth) {
+        return (int) (((long) plan.y[booth] + Math.max(plan.height[booth], 1) - 1 - top) / stripHeight);
+    }
+
+    //Sweeps a range of strips, splitting it in halves while it holds many booths
+    private class Sweep extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        Sweep(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > 1 && stripFirst[to] - stripFirst[from] > SEQUENTIAL_ENTRIES) {
+                int middle = (from + to) >>> 1;
+                Sweep upper = new Sweep(from, middle);
+                upper.fork();
+                long[] lower = new Sweep(middle, to).compute();
+                long[] joined = upper.join();
+                if (lower.length == 0) {
+                    return joined;
+                }
+                long[] pairs = Arrays.copyOf(joined, joined.length + lower.length);
+                System.arraycopy(lower, 0, pairs, joined.length, lower.length);
+                return pairs;
+            }
+            long[] pairs = new long[0];
+            int count = 0;
+            long[] order = new long[0];
+            for (int strip = from; strip < to; strip++) {
+                int first = stripFirst[strip], size = stripFirst[strip + 1] - first;
+                if (order.length < size) {
+                    order = new long[size];
+                }
+                //x in the high half and the booth in the low half sorts by x with a primitive sort
+                for (int i = 0; i < size; i++) {
+                    int booth = entries[first + i];
+                    order[i] = (long) plan.x[booth] << 32 | booth;
+                }
+                Arrays.sort(order, 0, size);
+                for (int i = 0; i < size; i++) {
+                    int a = (int) order[i];
+                    long right = (long) plan.x[a] + plan.width[a];
+                    for (int j = i + 1; j < size && plan.x[(int) order[j]] < right; j++) {
+                        int b = (int) order[j];
+                        if (overlaps(a, b, strip)) {
+                            if (count == pairs.length) {
+                                pairs = Arrays.copyOf(pairs, Math.max(16, count * 2));
+                            }
+                            pairs[count++] = a < b ? (long) a << 32 | b : (long) b << 32 | a;
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(pairs, count);
+        }
+
+        //Whether the booths overlap, counted only in the strip holding the top of the overlap
+        private boolean overlaps(int a, int b, int strip) {
+            int overlapTop = Math.max(plan.y[a], plan.y[b]);
+            return plan.width[b] > 0 && plan.height[a] > 0 && plan.height[b] > 0
+                    && overlapTop < (long) plan.y[a] + plan.height[a] && overlapTop < (long) plan.y[b] + plan.height[b]
+                    && ((long) overlapTop - top) / stripHeight == strip;
+        }
+    }
+
+    //Overlapping pairs as indexes of booths in the snapshot, the lower index first, sorted
+    static class Conflicts {
+        private final long[] pairs;
+
+        Conflicts(long[] pairs) {
+            this.pairs = pairs;
+        }
+
+        public int size() {
+            return pairs.length;
+        }
+
+        public int first(int pair) {
+            return (int) (pairs[pair] >>> 32);
+        }
+
+        public int second(int pair) {
+            return (int) pairs[pair];
+        }
+    }
+}
@@ -0,0 +1,375 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+//////////////////////////////////////////////////////////////////////////////// Placement engine
+//Tracks the free space of the hall as a set of maximal free rectangles. Any legal slot for a booth lies
+//inside one of them, so a placement is found deterministically from the set, and an empty answer from an
+//up to date set proves the booth does not fit anywhere. The rectangles are kept sorted by width and by
+//height, so the best fit is found among the ones about the booth's size, and registered in a coarse grid
+//over the hall, so carving a booth out or handing space back only looks at the rectangles near it. The few
+//rectangles spanning a large part of the hall, such as the space not yet filled, are kept in a list instead
+//of in every cell they cover.
+class PlacementEngine implements FloorPlanListener {
+    private static final int GRID_CELLS = 128; // Grid cells along each side of the hall, at most
+    private static final int MIN_CELL_SIZE = 32;
+    private static final int LARGE_CELLS = 32; // Rectangles covering more cells than this are not in the grid
+    private static final Comparator<int[]> BY_WIDTH = (a, b) -> compare(a, b, 2, 3);
+    private static final Comparator<int[]> BY_HEIGHT = (a, b) -> compare(a, b, 3, 2);
+
+    //Free rectangles {x, y, width, height, mark}, no two alike since none contains another. The mark is the
+    //last grid lookup that saw the rectangle, so a lookup passes each one once.
+    private final TreeSet<int[]> byWidth = new TreeSet<>(BY_WIDTH);
+    private final TreeSet<int[]> byHeight = new TreeSet<>(BY_HEIGHT);
+    private final List<List<int[]>> cells = new ArrayList<>(); // Row by row, null for cells nothing covers
+    private final List<int[]> large = new ArrayList<>();
+    private int cellSize;
+    private int columns;
+    private int rows;
+    private int mark;
+    //Booths already carved out of the free space that the plan has not reported as added yet
+    private final Set<CustomRectangle> reserved = Collections.newSetFromMap(new IdentityHashMap<>());
+    private FloorPlan floorPlan;
+    private int hallWidth = -1;
+    private int hallHeight = -1;
+    //Set when the free rectangles no longer describe the plan and must be recomputed
+    private boolean invalid = true;
+    //Set when space was released, the released areas are free but may not be maximal
+    private boolean incomplete;
+
+    public PlacementEngine(FloorPlan floorPlan) {
+        attach(floorPlan);
+    }
+
+    //Switches to another floor plan, free space is recomputed on the next placement
+    public void attach(FloorPlan floorPlan) {
+        if (this.floorPlan != null) {
+            this.floorPlan.removeListener(this);
+        }
+        this.floorPlan = floorPlan;
+        floorPlan.addListener(this);
+        invalid = true;
+        reserved.clear();
+    }
+
+    //Finds a legal top-left position for the booth, or null when none exists
+    public Point findPosition(int width, int height, int maxWidth, int maxHeight) {
+        if (width > maxWidth || height > maxHeight || width <= 0 || height <= 0) {
+            return null;
+        }
+        if (maxWidth != hallWidth || maxHeight != hallHeight) {
+            hallWidth = maxWidth;
+            hallHeight = maxHeight;
+            invalid = true;
+        }
+        if (invalid) {
+            rebuild();
+        }
+        while (true) {
+            int[] slot = bestFit(width, height);
+            if (slot == null) {
+                if (!incomplete) {
+                    return null;
+                }
+                rebuild();
+                continue;
+            }
+            PlanMetrics.countPlacementAttempt();
+            if (!floorPlan.intersects(slot[0], slot[1], width, height)) {
+                return new Point(slot[0], slot[1]);
+            }
+            //Space covered by something the free list does not track, remember it as taken and keep looking
+            occupy(slot[0], slot[1], width, height);
+        }
+    }
+
+    //Takes a placed booth's area out of the free space before it is committed to the plan. The area stays
+    //taken through rebuilds until the plan reports the booth as added.
+    public void reserve(CustomRectangle shape) {
+        reserved.add(shape);
+        if (!invalid) {
+            occupy(shape.x, shape.y, shape.getWidth(), shape.getHeight());
+        }
+    }
+
+    public int freeRectangleCount() {
+        return byWidth.size();
+    }
+
+    @Override
+    public void shapeAdded(CustomRectangle shape) {
+        if (!reserved.remove(shape) && !invalid) {
+            occupy(shape.x, shape.y, shape.getWidth(), shape.getHeight());
+        }
+    }
+
+    @Override
+    public void shapeRemoved(CustomRectangle shape) {
+        release(shape.x, shape.y, shape.getWidth(), shape.getHeight());
+    }
+
+    @Override
+    public void shapeMoved(CustomRectangle shape, int oldX, int oldY) {
+        release(oldX, oldY, shape.getWidth(), shape.getHeight());
+        shapeAdded(shape);
+    }
+
+    @Override
+    public void planCleared() {
+        invalid = true;
+        reserved.clear();
+    }
+
+    @Override
+    public void planRestored() {
+        invalid = true;
+        reserved.clear();
+    }
+
+    //Best short side fit, ties broken by the long side, then top to bottom, then left to right. The short side
+    //of the best fit is its leftover width or its leftover height, so it is among the rectangles at most that
+    //much wider than the booth or among those at most that much taller, and each scan stops past that.
+    private int[] bestFit(int width, int height) {
+        int[] best = null;
+        for (int[] rect : byWidth.tailSet(new int[]{0, 0, width, Integer.MIN_VALUE}, true)) {
+            if (best != null && rect[2] - width > shortSide(best, width, height)) {
+                break;
+            }
+            if (fitsBetter(rect, best, width, height)) {
+                best = rect;
+            }
+        }
+        for (int[] rect : byHeight.tailSet(new int[]{0, 0, Integer.MIN_VALUE, height}, true)) {
+            if (best != null && rect[3] - height > shortSide(best, width, height)) {
+                break;
+            }
+            if (fitsBetter(rect, best, width, height)) {
+                best = rect;
+            }
+        }
+        return best;
+    }
+
+    private static boolean fitsBetter(int[] rect, int[] best, int width, int height) {
+        if (rect[2] < width || rect[3] < height) {
+            return false;
+        }
+        if (best == null) {
+            return true;
+        }
+        int shortSide = shortSide(rect, width, height), bestShort = shortSide(best, width, height);
+        if (shortSide != bestShort) {
+            return shortSide < bestShort;
+        }
+        int longSide = Math.max(rect[2] - width, rect[3] - height);
+        int bestLong = Math.max(best[2] - width, best[3] - height);
+        if (longSide != bestLong) {
+            return longSide < bestLong;
+        }
+        return rect[1] < best[1] || (rect[1] == best[1] && rect[0] < best[0]);
+    }
+
+    private static int shortSide(int[] rect, int width, int height) {
+        return Math.min(rect[2] - width, rect[3] - height);
+    }
+
+    //Recomputes the maximal free rectangles from the booths currently in the plan and the ones reserved for it
+    private void rebuild() {
+        byWidth.clear();
+        byHeight.clear();
+        cells.clear();
+        large.clear();
+        invalid = false;
+        incomplete = false;
+        if (hallWidth <= 0 || hallHeight <= 0) {
+            return;
+        }
+        cellSize = Math.max(MIN_CELL_SIZE, (Math.max(hallWidth, hallHeight) + GRID_CELLS - 1) / GRID_CELLS);
+        columns = (hallWidth + cellSize - 1) / cellSize;
+        rows = (hallHeight + cellSize - 1) / cellSize;
+        cells.addAll(Collections.nCopies(columns * rows, null));
+        insert(new int[]{0, 0, hallWidth, hallHeight, mark});
+        floorPlan.forEachBooth((x, y, type) -> occupy(x, y, type.width, type.height));
+        for (CustomRectangle shape : reserved) {
+            occupy(shape.x, shape.y, shape.getWidth(), shape.getHeight());
+        }
+    }
+
+    //Splits every free rectangle the area overlaps into the maximal pieces around it
+    private void occupy(int x, int y, int width, int height) {
+        ArrayList<int[]> pieces = new ArrayList<>();
+        for (int[] rect : overlapping(x, y, width, height)) {
+            remove(rect);
+            if (x > rect[0]) {
+                pieces.add(new int[]{rect[0], rect[1], x - rect[0], rect[3], mark});
+            }
+            if (x + width < rect[0] + rect[2]) {
+                pieces.add(new int[]{x + width, rect[1], rect[0] + rect[2] - x - width, rect[3], mark});
+            }
+            if (y > rect[1]) {
+                pieces.add(new int[]{rect[0], rect[1], rect[2], y - rect[1], mark});
+            }
+            if (y + height < rect[1] + rect[3]) {
+                pieces.add(new int[]{rect[0], y + height, rect[2], rect[1] + rect[3] - y - height, mark});
+            }
+        }
+        for (int[] piece : pieces) {
+            addMaximal(piece);
+        }
+    }
+
+    //Hands the area back as free space, the set stays correct but may miss slots until the next rebuild
+    private void release(int x, int y, int width, int height) {
+        if (invalid) {
+            return;
+        }
+        int left = Math.max(x, 0);
+        int top = Math.max(y, 0);
+        int right = Math.min(x + width, hallWidth);
+        int bottom = Math.min(y + height, hallHeight);
+        if (right > left && bottom > top) {
+            addMaximal(new int[]{left, top, right - left, bottom - top, mark});
+            incomplete = true;
+        }
+    }
+
+    //Adds a free rectangle unless another one already contains it, dropping the ones it contains. Either
+    //way the two overlap, so only the rectangles near the piece are looked at.
+    private void addMaximal(int[] piece) {
+        List<int[]> near = overlapping(piece[0], piece[1], piece[2], piece[3]);
+        for (int[] rect : near) {
+            if (contains(rect, piece)) {
+                return;
+            }
+        }
+        for (int[] rect : near) {
+            if (contains(piece, rect)) {
+                remove(rect);
+            }
+        }
+        insert(piece);
+    }
+
+    //Free rectangles sharing some area with the given one, edges touching do not count. An area covering more
+    //cells than there are rectangles is checked against each rectangle instead.
+    private List<int[]> overlapping(int x, int y, int width, int height) {
+        List<int[]> found = new ArrayList<>();
+        if (width <= 0 || height <= 0 || cells.isEmpty()) {
+            return found;
+        }
+        int column = cell(x, columns), lastColumn = cell(x + width - 1, columns);
+        int row = cell(y, rows), lastRow = cell(y + height - 1, rows);
+        if ((long) (lastColumn - column + 1) * (lastRow - row + 1) > byWidth.size()) {
+            for (int[] rect : byWidth) {
+                if (overlaps(rect, x, y, width, height)) {
+                    found.add(rect);
+                }
+            }
+            return found;
+        }
+        for (int[] rect : large) {
+            if (overlaps(rect, x, y, width, height)) {
+                found.add(rect);
+            }
+        }
+        mark++;
+        for (; row <= lastRow; row++) {
+            for (int c = column; c <= lastColumn; c++) {
+                List<int[]> cell = cells.get(row * columns + c);
+                if (cell == null) {
+                    continue;
+                }
+                for (int[] rect : cell) {
+                    if (rect[4] != mark) {
+                        rect[4] = mark;
+                        if (overlaps(rect, x, y, width, height)) {
+                            found.add(rect);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean overlaps(int[] rect, int x, int y, int width, int height) {
+        return x < rect[0] + rect[2] && x + width > rect[0] && y < rect[1] + rect[3] && y + height > rect[1];
+    }
+
+    private boolean isLarge(int[] rect) {
+        return (long) (cell(rect[0] + rect[2] - 1, columns) - cell(rect[0], columns) + 1)
+                * (cell(rect[1] + rect[3] - 1, rows) - cell(rect[1], rows) + 1) > LARGE_CELLS;
+    }
+
+    private void insert(int[] rect) {
+        byWidth.add(rect);
+        byHeight.add(rect);
+        if (isLarge(rect)) {
+            large.add(rect);
+            return;
+        }
+        for (int row = cell(rect[1], rows), lastRow = cell(rect[1] + rect[3] - 1, rows); row <= lastRow; row++) {
+            for (int column = cell(rect[0], columns), last = cell(rect[0] + rect[2] - 1, columns); column <= last;
+                 column++) {
+                int i = row * columns + column;
+                if (cells.get(i) == null) {
+                    cells.set(i, new ArrayList<>());
+                }
+                cells.get(i).add(rect);
+            }
+        }
+    }
+
+    private void remove(int[] rect) {
+        byWidth.remove(rect);
+        byHeight.remove(rect);
+        if (isLarge(rect)) {
+            removeFrom(large, rect);
+            return;
+        }
+        for (int row = cell(rect[1], rows), lastRow = cell(rect[1] + rect[3] - 1, rows); row <= lastRow; row++) {
+            for (int column = cell(rect[0], columns), last = cell(rect[0] + rect[2] - 1, columns); column <= last;
+                 column++) {
+                removeFrom(cells.get(row * columns + column), rect);
+            }
+        }
+    }
+
+    //Takes the rectangle out of the list by moving the last one into its place
+    private static void removeFrom(List<int[]> rects, int[] rect) {
+        for (int i = rects.size() - 1; i >= 0; i--) {
+            if (rects.get(i) == rect) {
+                rects.set(i, rects.get(rects.size() - 1));
+                rects.remove(rects.size() - 1);
+                return;
+            }
+        }
+    }
+
+    //Grid cell holding the coordinate along a side of count cells, clamped to the hall
+    private int cell(int coordinate, int count) {
+        return Math.max(0, Math.min(count - 1, Math.floorDiv(coordinate, cellSize)));
+    }
+
+    //Orders rectangles by one side, then the other, then top to bottom and left to right
+    private static int compare(int[] a, int[] b, int side, int otherSide) {
+        if (a[side] != b[side]) {
+            return Integer.compare(a[side], b[side]);
+        }
+        if (a[otherSide] != b[otherSide]) {
+            return Integer.compare(a[otherSide], b[otherSide]);
+        }
+        return a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[0], b[0]);
+    }
+
+    private static boolean contains(int[] outer, int[] inner) {
+        return inner[0] >= outer[0] && inner[1] >= outer[1]
+                && inner[0] + inner[2] <= outer[0] + outer[2]
+                && inner[1] + inner[3] <= outer[1] + outer[3];
+    }
+}
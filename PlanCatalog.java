@@ -0,0 +1,444 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+//////////////////////////////////////////////////////////////////////////////// Plan catalog
+//Index of the saved plans: name, booth count, bounds, modified time and a coarse occupancy thumbnail per
+//plan, kept in saved_plans/catalog.idx so opening the landing page reads one small file instead of every
+//plan. A background thread checks the index against the directory on start, re-reads only plans whose
+//modified time or size changed, and then follows the directory through a WatchService. Listeners get the
+//whole catalog on the Swing event thread after every change; searching works on the entries in memory.
+//  index layout: magic "BFPC", u16 version, i32 entry count, then per entry
+//    UTF plan name, UTF file name, i64 modified millis, i64 size, i32 booths (-1 unreadable),
+//    i32 minX, minY, maxX, maxY, THUMBNAIL_SIZE^2 bytes of coverage
+class PlanCatalog {
+    static final String INDEX_FILE = "catalog.idx";
+    static final int THUMBNAIL_SIZE = 16;
+
+    private static final int MAGIC = 0x42465043; // "BFPC"
+    private static final int VERSION = 1;
+    //Changes arriving within this time of each other are indexed together, a save touches a plan several times
+    private static final long SETTLE_MILLIS = 200;
+    private static final long PROGRESS_MILLIS = 500;
+    private static PlanCatalog shared;
+
+    private final Path directory;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new HashMap<>(); // Only touched on the catalog thread
+    private final List<Consumer<List<Entry>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<Entry> sorted; // null until the index is loaded
+    private volatile WatchService watcher;
+
+    private PlanCatalog(Path directory) {
+        this.directory = directory;
+        this.indexFile = directory.resolve(INDEX_FILE);
+    }
+
+    //The catalog of saved_plans, started on first use and kept up to date for the life of the application
+    public static synchronized PlanCatalog shared() {
+        if (shared == null) {
+            shared = new PlanCatalog(FloorPlanFormat.PLAN_DIRECTORY);
+            shared.start();
+        }
+        return shared;
+    }
+
+    //Calls the listener on the event thread with every entry, now if the catalog is loaded and after each change
+    public void addListener(Consumer<List<Entry>> listener) {
+        listeners.add(listener);
+        List<Entry> current = sorted;
+        if (current != null) {
+            SwingUtilities.invokeLater(() -> listener.accept(current));
+        }
+    }
+
+    public void removeListener(Consumer<List<Entry>> listener) {
+        listeners.remove(listener);
+    }
+
+    //All entries in name order, empty while the index is still loading
+    public List<Entry> entries() {
+        List<Entry> current = sorted;
+        return current != null ? current : Collections.emptyList();
+    }
+
+    //Entries matching every word of the query: booths>N, booths<N and booths=N compare booth counts, any
+    //other word must be part of the plan name, ignoring case
+    public List<Entry> search(String query) {
+        return filter(entries(), query);
+    }
+
+    public static List<Entry> filter(List<Entry> entries, String query) {
+        String[] words = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        List<Entry> found = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (matches(entry, words)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    //Stops following the directory, the entries stay as they are
+    public void close() {
+        WatchService current = watcher;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Closing only fails when the service is already gone
+            }
+        }
+    }
+
+    private static boolean matches(Entry entry, String[] words) {
+        String name = entry.name.toLowerCase(Locale.ROOT);
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.startsWith("booths") && word.length() > 7) {
+                char comparison = word.charAt(6);
+                int count;
+                try {
+                    count = Integer.parseInt(word.substring(7));
+                } catch (NumberFormatException e) {
+                    count = -1;
+                }
+                if (count >= 0 && (comparison == '>' || comparison == '<' || comparison == '=')) {
+                    if (comparison == '>' ? entry.booths <= count
+                            : comparison == '<' ? entry.booths < 0 || entry.booths >= count
+                            : entry.booths != count) {
+                        return false;
+                    }
+                    continue;
+                }
+            }
+            if (!name.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void start() {
+        Thread thread = new Thread(this::run, "plan-catalog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        readIndex();
+        if (!entries.isEmpty()) {
+            publish(); // Show what the index knew before the directory was checked
+        }
+        try {
+            Files.createDirectories(directory);
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + directory + " for plan changes: " + e.getMessage());
+        }
+        //Registered before the check, so nothing that changes during the check is missed
+        reconcile();
+        if (watcher == null) {
+            return;
+        }
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Set<String> changed = new HashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            String name = FloorPlanFormat.planName((Path) event.context());
+                            if (name != null) {
+                                changed.add(name);
+                            }
+                        }
+                    }
+                    if (!key.reset()) {
+                        return; // The directory is gone
+                    }
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow) {
+                    reconcile();
+                } else if (!changed.isEmpty()) {
+                    boolean updated = false;
+                    for (String name : changed) {
+                        updated |= update(name);
+                    }
+                    if (updated) {
+                        writeIndex();
+                        publish();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped by close()
+        }
+    }
+
+    //Brings every entry in line with the directory
+    private void reconcile() {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = FloorPlanFormat.planName(file);
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot list " + directory + ": " + e.getMessage());
+        }
+        boolean updated = entries.keySet().retainAll(names);
+        long lastPublished = System.nanoTime();
+        for (String name : names) {
+            updated |= update(name);
+            //A first start indexes every plan, so the list fills in as it goes rather than all at the end
+            if (updated && System.nanoTime() - lastPublished > TimeUnit.MILLISECONDS.toNanos(PROGRESS_MILLIS)) {
+                publish();
+                lastPublished = System.nanoTime();
+            }
+        }
+        if (updated) {
+            writeIndex();
+        }
+        if (updated || sorted == null) {
+            publish();
+        }
+    }
+
+    //Re-reads a plan whose file changed, true when its entry changed. A plan saved in both formats is
+    //listed with the binary file, which is the one the editor opens.
+    private boolean update(String name) {
+        Path file = directory.resolve(name + FloorPlanFormat.EXTENSION);
+        BasicFileAttributes attributes = attributes(file);
+        if (attributes == null) {
+            file = directory.resolve(name + FloorPlanFormat.LEGACY_EXTENSION);
+            attributes = attributes(file);
+        }
+        if (attributes == null) {
+            return entries.remove(name) != null;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        Entry known = entries.get(name);
+        if (known != null && known.file.equals(file) && known.modified == modified && known.size == attributes.size()) {
+            return false;
+        }
+        entries.put(name, index(name, file, modified, attributes.size()));
+        return true;
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    //Reads a plan's booths once to fill in its entry. Binary plans are streamed without building a plan,
+    //plans in the old format have to be deserialized.
+    private static Entry index(String name, Path file, long modified, long size) {
+        Summary summary = new Summary();
+        try {
+            if (file.getFileName().toString().endsWith(FloorPlanFormat.EXTENSION)) {
+                FloorPlanFormat.scan(file, summary::add);
+            } else {
+                FloorPlanFormat.readLegacy(file).forEachBooth(summary::add);
+            }
+        } catch (IOException | RuntimeException e) {
+            return new Entry(name, file, modified, size, -1, 0, 0, 0, 0, new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE]);
+        }
+        return summary.toEntry(name, file, modified, size);
+    }
+
+    private void publish() {
+        List<Entry> current = Collections.unmodifiableList(new ArrayList<>(new TreeMap<>(entries).values()));
+        sorted = current;
+        for (Consumer<List<Entry>> listener : listeners) {
+            SwingUtilities.invokeLater(() -> listener.accept(current));
+        }
+    }
+
+    private void readIndex() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                Path file = directory.resolve(in.readUTF());
+                long modified = in.readLong();
+                long size = in.readLong();
+                int booths = in.readInt();
+                int minX = in.readInt(), minY = in.readInt(), maxX = in.readInt(), maxY = in.readInt();
+                byte[] thumbnail = new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+                in.readFully(thumbnail);
+                entries.put(name, new Entry(name, file, modified, size, booths, minX, minY, maxX, maxY, thumbnail));
+            }
+        } catch (NoSuchFileException e) {
+            // First start, everything gets indexed
+        } catch (IOException e) {
+            entries.clear(); // A damaged index is rebuilt from the plans
+        }
+    }
+
+    private void writeIndex() {
+        Path temp = indexFile.resolveSibling(INDEX_FILE + "." + System.nanoTime() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries.values()) {
+                    out.writeUTF(entry.name);
+                    out.writeUTF(entry.file.getFileName().toString());
+                    out.writeLong(entry.modified);
+                    out.writeLong(entry.size);
+                    out.writeInt(entry.booths);
+                    out.writeInt(entry.minX);
+                    out.writeInt(entry.minY);
+                    out.writeInt(entry.maxX);
+                    out.writeInt(entry.maxY);
+                    out.write(entry.thumbnail);
+                }
+            }
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write plan catalog " + indexFile + ": " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // Left for the next write to replace
+            }
+        }
+    }
+
+    //One saved plan as last indexed
+    static class Entry {
+        final String name;
+        final Path file;
+        final long modified;
+        final long size;
+        final int booths; // -1 when the file could not be read
+        final int minX, minY, maxX, maxY;
+        //Share of each cell covered by booths, 0 to 255, row by row over a square around the bounds
+        private final byte[] thumbnail;
+
+        Entry(String name, Path file, long modified, long size, int booths, int minX, int minY, int maxX, int maxY,
+              byte[] thumbnail) {
+            this.name = name;
+            this.file = file;
+            this.modified = modified;
+            this.size = size;
+            this.booths = booths;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.thumbnail = thumbnail;
+        }
+
+        public boolean isReadable() {
+            return booths >= 0;
+        }
+
+        //Coverage of a thumbnail cell, 0 for empty to 255 for full
+        public int coverage(int column, int row) {
+            return thumbnail[row * THUMBNAIL_SIZE + column] & 0xFF;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    //Booth count, bounds and coverage gathered while streaming a plan's booths. Coverage is binned once
+    //the bounds are known, so the booth centers are kept in primitive columns until then.
+    private static class Summary {
+        private int booths;
+        private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        private int[] centerX = new int[64];
+        private int[] centerY = new int[64];
+        private long[] area = new long[64];
+
+        void add(int x, int y, BoothType type) {
+            if (booths == centerX.length) {
+                centerX = Arrays.copyOf(centerX, booths * 2);
+                centerY = Arrays.copyOf(centerY, booths * 2);
+                area = Arrays.copyOf(area, booths * 2);
+            }
+            centerX[booths] = x + type.width / 2;
+            centerY[booths] = y + type.height / 2;
+            area[booths] = (long) type.width * type.height;
+            booths++;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + type.width);
+            maxY = Math.max(maxY, y + type.height);
+        }
+
+        Entry toEntry(String name, Path file, long modified, long size) {
+            byte[] thumbnail = new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+            if (booths == 0) {
+                return new Entry(name, file, modified, size, 0, 0, 0, 0, 0, thumbnail);
+            }
+            long side = Math.max(1, Math.max((long) maxX - minX, (long) maxY - minY));
+            long[] covered = new long[thumbnail.length];
+            for (int i = 0; i < booths; i++) {
+                int column = (int) Math.min(THUMBNAIL_SIZE - 1, (centerX[i] - (long) minX) * THUMBNAIL_SIZE / side);
+                int row = (int) Math.min(THUMBNAIL_SIZE - 1, (centerY[i] - (long) minY) * THUMBNAIL_SIZE / side);
+                covered[row * THUMBNAIL_SIZE + column] += area[i];
+            }
+            double cellArea = (double) side * side / thumbnail.length;
+            for (int i = 0; i < covered.length; i++) {
+                thumbnail[i] = (byte) Math.min(255, Math.round(255 * covered[i] / cellArea));
+            }
+            return new Entry(name, file, modified, size, booths, minX, minY, maxX, maxY, thumbnail);
+        }
+    }
+}
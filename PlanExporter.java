@@ -0,0 +1,486 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+//////////////////////////////////////////////////////////////////////////////// Vector export
+//Writes a plan as SVG or PDF for printing and sharing, one plan unit to a point, cut into pages of a given
+//size in plan units. Booths are streamed through once and sorted into buckets of OPEN_PAGES neighbouring
+//pages, one entry for every page a booth reaches. Buckets are held in memory up to SPOOL_RECORDS entries in
+//all, then appended to files in a temporary directory, so nothing grows with the number of booths. finish()
+//then takes the buckets in turn, opens their pages and writes each page in one go. A booth type's size and
+//colors are written once, as an SVG definition on each page that uses it or a PDF form shared by all pages,
+//and each booth only names its type and position. SVG pages are files of their own, PDF pages are written
+//to the temporary directory and joined into one document at the end. Pages no booth reaches are left out.
+//
+//  PlanExporter exporter = new PlanExporter(target, 1000, 1000);
+//  exporter.begin(bounds);
+//  ...visit each booth...
+//  int pages = exporter.finish();
+class PlanExporter implements BoothTable.Visitor {
+    static final String SVG_EXTENSION = ".svg";
+    static final String PDF_EXTENSION = ".pdf";
+    static final int MAX_PAGES = 10_000;
+    private static final int OPEN_PAGES = 32; // Pages to a bucket, all open while the bucket is written
+    private static final int SPOOL_RECORDS = 1 << 16; // Bucket entries held in memory before they are spooled
+    private static final int RECORD_INTS = 4; // Page, x, y and booth type id
+    private static final int MARGIN = CustomRectangle.PAINT_MARGIN; // Blank border around the plan
+
+    private final Path target;
+    private final boolean pdf;
+    private final int requestedWidth, requestedHeight; // 0 for a single page fitting the plan
+    private int originX, originY, pageWidth, pageHeight, columns, rows;
+    private boolean begun;
+    private final BitSet started = new BitSet(); // Pages some booth reaches
+    private final BitSet usedTypes = new BitSet(); // PDF: ids of the booth types to write forms for
+    private int[][] buckets; // Entries of each bucket not spooled yet
+    private int[] bucketSizes;
+    private int buffered; // Entries in all buckets
+    private final BitSet spooled = new BitSet(); // Buckets with a file
+    private Path spool; // Directory of the bucket files and the PDF page content streams
+    private final StringBuilder line = new StringBuilder();
+    private IOException error; // First write that failed, visit() cannot throw it
+
+    //Exports in the format named by the target's extension. Pages are pageWidth x pageHeight plan units, or
+    //one page for the whole plan when both are 0.
+    PlanExporter(Path target, int pageWidth, int pageHeight) {
+        String name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!name.endsWith(SVG_EXTENSION) && !name.endsWith(PDF_EXTENSION)) {
+            throw new IllegalArgumentException("Export to " + SVG_EXTENSION + " or " + PDF_EXTENSION + ": " + target);
+        }
+        if (pageWidth < 0 || pageHeight < 0 || (pageWidth == 0) != (pageHeight == 0)) {
+            throw new IllegalArgumentException("Page size must be positive, or 0 for one page: " + pageWidth + "x"
+                    + pageHeight);
+        }
+        this.target = target;
+        this.pdf = name.endsWith(PDF_EXTENSION);
+        this.requestedWidth = pageWidth;
+        this.requestedHeight = pageHeight;
+    }
+
+    //Exports a plan file straight from disk. Binary plans are streamed, the bounds come from their header;
+    //plans in the old serialized format have to be read whole first. Returns the number of pages written.
+    public static int export(Path planFile, Path target, int pageWidth, int pageHeight) throws IOException {
+        if (planFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(FloorPlanFormat.LEGACY_EXTENSION)) {
+            return export(FloorPlanFormat.readLegacy(planFile), target, pageWidth, pageHeight);
+        }
+        PlanExporter exporter = new PlanExporter(target, pageWidth, pageHeight);
+        try {
+            FloorPlanFormat.scan(planFile, exporter::begin, exporter);
+            return exporter.finish();
+        } finally {
+            exporter.abandon();
+        }
+    }
+
+    //Exports a plan in memory, holding its lock while the booths are written
+    public static int export(FloorPlan plan, Path target, int pageWidth, int pageHeight) throws IOException {
+        PlanExporter exporter = new PlanExporter(target, pageWidth, pageHeight);
+        try {
+            synchronized (plan) {
+                exporter.begin(plan.getBounds());
+                plan.forEachBooth(exporter);
+            }
+            return exporter.finish();
+        } finally {
+            exporter.abandon();
+        }
+    }
+
+    //Exports a snapshot, which lets the editor write the file on another thread while the plan is edited
+    public static int export(PlanSnapshot plan, Path target, int pageWidth, int pageHeight) throws IOException {
+        Rectangle bounds = null;
+        for (int i = 0; i < plan.size; i++) {
+            Rectangle booth = new Rectangle(plan.x[i], plan.y[i], plan.width[i], plan.height[i]);
+            bounds = bounds == null ? booth : bounds.union(booth);
+        }
+        PlanExporter exporter = new PlanExporter(target, pageWidth, pageHeight);
+        try {
+            exporter.begin(bounds);
+            BoothType type = null;
+            for (int i = 0; i < plan.size; i++) {
+                if (type == null || type.width != plan.width[i] || type.height != plan.height[i]
+                        || type.argb != plan.argb[i]) {
+                    type = RectangleFactory.getType(plan.width[i], plan.height[i], new Color(plan.argb[i], true));
+                }
+                exporter.visit(plan.x[i], plan.y[i], type);
+            }
+            return exporter.finish();
+        } finally {
+            exporter.abandon();
+        }
+    }
+
+    //Lays out the pages over the bounds of every booth to come, null for a plan without booths
+    public void begin(Rectangle bounds) {
+        if (bounds == null) {
+            bounds = new Rectangle(MARGIN, MARGIN, Math.max(requestedWidth - 2 * MARGIN, 1),
+                    Math.max(requestedHeight - 2 * MARGIN, 1));
+        }
+        originX = bounds.x - MARGIN;
+        originY = bounds.y - MARGIN;
+        long width = (long) bounds.width + 2 * MARGIN, height = (long) bounds.height + 2 * MARGIN;
+        pageWidth = requestedWidth > 0 ? requestedWidth : (int) Math.min(width, Integer.MAX_VALUE);
+        pageHeight = requestedHeight > 0 ? requestedHeight : (int) Math.min(height, Integer.MAX_VALUE);
+        long columnCount = (width + pageWidth - 1) / pageWidth, rowCount = (height + pageHeight - 1) / pageHeight;
+        if (columnCount * rowCount > MAX_PAGES) {
+            throw new IllegalArgumentException("Pages of " + pageWidth + "x" + pageHeight + " would cut the plan into "
+                    + columnCount * rowCount + " pages, at most " + MAX_PAGES + " are allowed");
+        }
+        columns = (int) columnCount;
+        rows = (int) rowCount;
+        int bucketCount = (columns * rows + OPEN_PAGES - 1) / OPEN_PAGES;
+        buckets = new int[bucketCount][];
+        bucketSizes = new int[bucketCount];
+        begun = true;
+    }
+
+    //Sorts the booth into the bucket of every page its outline reaches
+    @Override
+    public void visit(int x, int y, BoothType type) {
+        if (error != null) {
+            return;
+        }
+        if (!begun) {
+            throw new IllegalStateException("begin() must be called before the first booth");
+        }
+        int firstColumn = Math.max(0, Math.floorDiv(x - 1 - originX, pageWidth));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(x + type.width + 1 - originX, pageWidth));
+        int firstRow = Math.max(0, Math.floorDiv(y - 1 - originY, pageHeight));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(y + type.height + 1 - originY, pageHeight));
+        try {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    bucket(row * columns + column, x, y, type);
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    //Completes the pages, or for PDF the document, and returns how many pages were written
+    public int finish() throws IOException {
+        if (!begun) {
+            begin(null);
+        }
+        if (error != null) {
+            throw error;
+        }
+        if (started.isEmpty()) {
+            started.set(0); // A plan without booths still gets a blank page
+        }
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            int first = bucket * OPEN_PAGES;
+            int next = started.nextSetBit(first);
+            if (next >= 0 && next < first + OPEN_PAGES) {
+                writeBucket(bucket);
+            }
+        }
+        if (pdf) {
+            writePdf();
+        }
+        return started.cardinality();
+    }
+
+    //Drops the spool directory, after finish() or a failed export
+    void abandon() {
+        if (spool != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spool)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                // Left in the temporary directory
+            }
+            spool = null;
+        }
+    }
+
+    private void bucket(int page, int x, int y, BoothType type) throws IOException {
+        started.set(page);
+        if (pdf) {
+            usedTypes.set(type.id);
+        }
+        int bucket = page / OPEN_PAGES;
+        int[] entries = buckets[bucket];
+        int size = bucketSizes[bucket];
+        if (entries == null) {
+            entries = buckets[bucket] = new int[16 * RECORD_INTS];
+        } else if (size == entries.length) {
+            entries = buckets[bucket] = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size] = page;
+        entries[size + 1] = x;
+        entries[size + 2] = y;
+        entries[size + 3] = type.id;
+        bucketSizes[bucket] = size + RECORD_INTS;
+        if (++buffered == SPOOL_RECORDS) {
+            spoolBuckets();
+        }
+    }
+
+    //Appends the entries held in memory to their bucket files and lets go of them
+    private void spoolBuckets() throws IOException {
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            if (bucketSizes[bucket] > 0) {
+                ByteBuffer bytes = ByteBuffer.allocate(bucketSizes[bucket] * 4);
+                bytes.asIntBuffer().put(buckets[bucket], 0, bucketSizes[bucket]);
+                Files.write(bucketPath(bucket), bytes.array(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                spooled.set(bucket);
+            }
+            buckets[bucket] = null;
+            bucketSizes[bucket] = 0;
+        }
+        buffered = 0;
+    }
+
+    //Opens the bucket's pages, writes the booths spooled for them and then those still in memory, and
+    //completes each page
+    private void writeBucket(int bucket) throws IOException {
+        int first = bucket * OPEN_PAGES;
+        Writer[] pages = new Writer[Math.min(OPEN_PAGES, columns * rows - first)];
+        BitSet[] defined = new BitSet[pages.length]; // SVG: ids of the booth types defined on each page so far
+        try {
+            for (int page = started.nextSetBit(first); page >= 0 && page < first + pages.length;
+                    page = started.nextSetBit(page + 1)) {
+                pages[page - first] = openPage(page);
+                defined[page - first] = new BitSet();
+            }
+            if (spooled.get(bucket)) {
+                Path file = bucketPath(bucket);
+                long entries = Files.size(file) / (RECORD_INTS * 4);
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+                        1 << 16))) {
+                    for (long i = 0; i < entries; i++) {
+                        int page = in.readInt() - first, x = in.readInt(), y = in.readInt();
+                        writeBooth(pages[page], defined[page], x, y, RectangleFactory.getType(in.readInt()));
+                    }
+                }
+                Files.delete(file);
+            }
+            int[] entries = buckets[bucket];
+            for (int i = 0; i < bucketSizes[bucket]; i += RECORD_INTS) {
+                int page = entries[i] - first;
+                writeBooth(pages[page], defined[page], entries[i + 1], entries[i + 2],
+                        RectangleFactory.getType(entries[i + 3]));
+            }
+            buckets[bucket] = null;
+            for (int page = 0; page < pages.length; page++) {
+                if (pages[page] != null && !pdf) {
+                    pages[page].write("</svg>\n");
+                }
+            }
+        } finally {
+            closePages(pages);
+        }
+    }
+
+    private void writeBooth(Writer writer, BitSet defined, int x, int y, BoothType type) throws IOException {
+        line.setLength(0);
+        if (pdf) {
+            line.append("q 1 0 0 1 ").append(x).append(' ').append(y).append(" cm /T").append(type.id)
+                    .append(" Do Q\n");
+        } else {
+            if (!defined.get(type.id)) {
+                defined.set(type.id);
+                line.append("<defs><rect id=\"t").append(type.id).append("\" width=\"").append(type.width)
+                        .append("\" height=\"").append(type.height).append('"');
+                appendFill(type);
+                line.append(" stroke=\"#000\"/></defs>\n");
+            }
+            line.append("<use xlink:href=\"#t").append(type.id).append("\" x=\"").append(x).append("\" y=\"")
+                    .append(y).append("\"/>\n");
+        }
+        writer.append(line);
+    }
+
+    private void appendFill(BoothType type) {
+        if (type.color == null) {
+            line.append(" fill=\"none\"");
+            return;
+        }
+        line.append(" fill=\"#").append(String.format("%06x", type.argb & 0xFFFFFF)).append('"');
+        int alpha = type.argb >>> 24;
+        if (alpha != 255) {
+            line.append(" fill-opacity=\"").append(String.format(Locale.ROOT, "%.3f", alpha / 255.0)).append('"');
+        }
+    }
+
+    //Creates the page's file and starts it with its header
+    private Writer openPage(int page) throws IOException {
+        Writer writer = Files.newBufferedWriter(pagePath(page), StandardCharsets.UTF_8);
+        int left = originX + page % columns * pageWidth, top = originY + page / columns * pageHeight;
+        if (pdf) {
+            //Plan y grows downward, PDF y upward
+            writer.write("1 0 0 -1 " + -left + " " + ((long) top + pageHeight) + " cm 1 w\n");
+        } else {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+                    + " width=\"" + pageWidth + "\" height=\"" + pageHeight + "\" viewBox=\"" + left + " " + top
+                    + " " + pageWidth + " " + pageHeight + "\">\n");
+            writer.write("<rect x=\"" + left + "\" y=\"" + top + "\" width=\"" + pageWidth + "\" height=\""
+                    + pageHeight + "\" fill=\"#fff\"/>\n");
+        }
+        return writer;
+    }
+
+    //The temporary directory next to the target, created when first needed
+    private Path spool() throws IOException {
+        if (spool == null) {
+            Path directory = target.toAbsolutePath().getParent();
+            spool = Files.createTempDirectory(directory, target.getFileName() + ".");
+        }
+        return spool;
+    }
+
+    private Path bucketPath(int bucket) throws IOException {
+        return spool().resolve(bucket + ".bucket");
+    }
+
+    //SVG pages are named after the target and their row and column, unless the plan fits on one page
+    private Path pagePath(int page) throws IOException {
+        if (pdf) {
+            return spool().resolve(page + ".txt");
+        }
+        if (columns * rows == 1) {
+            return target;
+        }
+        String name = target.getFileName().toString();
+        String base = name.substring(0, name.length() - SVG_EXTENSION.length());
+        return target.resolveSibling(base + "-r" + (page / columns + 1) + "-c" + (page % columns + 1)
+                + SVG_EXTENSION);
+    }
+
+    private static void closePages(Writer[] pages) throws IOException {
+        IOException failed = null;
+        for (Writer writer : pages) {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                failed = failed != null ? failed : e;
+            }
+        }
+        if (failed != null) {
+            throw failed;
+        }
+    }
+
+    //Joins the spooled pages into the document: catalog, page tree, the resources every page shares, a form
+    //per booth type, then each page and its content stream. Written next to the target and moved over it.
+    private void writePdf() throws IOException {
+        List<Integer> types = new ArrayList<>();
+        for (int id = usedTypes.nextSetBit(0); id >= 0; id = usedTypes.nextSetBit(id + 1)) {
+            types.add(id);
+        }
+        int firstPage = 4 + types.size(); // Object number of the first page, its contents follow it
+        int pageCount = started.cardinality();
+        long[] offsets = new long[firstPage + 2 * pageCount];
+        Path temp = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            try (Counting out = new Counting(Files.newOutputStream(temp))) {
+                out.write("%PDF-1.4\n");
+                offsets[1] = out.count;
+                out.write("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+                offsets[2] = out.count;
+                out.write("2 0 obj\n<< /Type /Pages /Count " + pageCount + " /Kids [");
+                for (int i = 0; i < pageCount; i++) {
+                    out.write((i > 0 ? " " : "") + (firstPage + 2 * i) + " 0 R");
+                }
+                out.write("] >>\nendobj\n");
+                offsets[3] = out.count;
+                out.write("3 0 obj\n<< /XObject <<");
+                for (int i = 0; i < types.size(); i++) {
+                    out.write(" /T" + types.get(i) + " " + (4 + i) + " 0 R");
+                }
+                out.write(" >> >>\nendobj\n");
+                for (int i = 0; i < types.size(); i++) {
+                    BoothType type = RectangleFactory.getType(types.get(i));
+                    String drawing = typeDrawing(type);
+                    offsets[4 + i] = out.count;
+                    out.write((4 + i) + " 0 obj\n<< /Type /XObject /Subtype /Form /BBox [-1 -1 " + (type.width + 1)
+                            + " " + (type.height + 1) + "] /Length " + drawing.length() + " >>\nstream\n" + drawing
+                            + "\nendstream\nendobj\n");
+                }
+                int object = firstPage;
+                for (int page = started.nextSetBit(0); page >= 0; page = started.nextSetBit(page + 1)) {
+                    Path content = pagePath(page);
+                    offsets[object] = out.count;
+                    out.write(object + " 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + pageWidth + " "
+                            + pageHeight + "] /Resources 3 0 R /Contents " + (object + 1) + " 0 R >>\nendobj\n");
+                    offsets[object + 1] = out.count;
+                    out.write((object + 1) + " 0 obj\n<< /Length " + Files.size(content) + " >>\nstream\n");
+                    out.count += Files.copy(content, out.out);
+                    out.write("\nendstream\nendobj\n");
+                    Files.delete(content);
+                    object += 2;
+                }
+                long xref = out.count;
+                out.write("xref\n0 " + offsets.length + "\n0000000000 65535 f \n");
+                for (int i = 1; i < offsets.length; i++) {
+                    out.write(String.format("%010d 00000 n \n", offsets[i]));
+                }
+                out.write("trailer\n<< /Size " + offsets.length + " /Root 1 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //Fill and outline of a booth type at the origin, like BoothType.draw
+    private static String typeDrawing(BoothType type) {
+        String rectangle = "0 0 " + type.width + " " + type.height + " re";
+        String fill = "";
+        if (type.color != null) {
+            fill = String.format(Locale.ROOT, "%.3f %.3f %.3f rg ", type.color.getRed() / 255.0,
+                    type.color.getGreen() / 255.0, type.color.getBlue() / 255.0) + rectangle + " f ";
+        }
+        return fill + "0 G " + rectangle + " S";
+    }
+
+    //Output stream that knows how far into the file it is, for the cross-reference table
+    private static final class Counting implements AutoCloseable {
+        final OutputStream out;
+        long count;
+
+        Counting(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+        }
+
+        void write(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes);
+            count += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,548 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+//////////////////////////////////////////////////////////////////////////////// Operation journal
+//Append-only log of the edits made to a saved plan since its last snapshot, kept next to the plan file in the
+//plan directory, FloorPlanFormat.PLAN_DIRECTORY unless another one is given.
+//Edits are buffered on the thread making them and appended by the plan-io thread about once a second, so an
+//autosave costs only the size of the changes. Once the log grows past a threshold it is compacted into a
+//checkpoint, a snapshot of the plan in a file of its own next to the journal; only an explicit save replaces
+//the plan file, so edits the user chooses not to keep never reach it. A failed write stops the journal, since
+//the file no longer matches the plan, until a snapshot starts it over. Layout, all values big endian:
+//  magic "BFPJ", u16 version, u16 reserved, i64 generation of the snapshot the records apply to
+//  records: u8 operation, i32 fields, CRC32 of operation and fields
+//    ADD and REMOVE  x, y, width, height, ARGB
+//    MOVE            old x, old y, width, height, ARGB, new x, new y
+//    CLEAR           no fields
+//    ZONE            parent zone, name length, UTF-8 name padded to 4 bytes, booth count, booths as for ADD
+//    JOIN            zone, booth count, booths as for ADD
+//    DROP            zone
+//Booths are identified by their geometry and color, which is all that tells two booths apart in a plan file.
+//Zones are identified by their place in FloorPlan.zones(), -1 meaning the plan itself. ZONE adds a zone to
+//its parent and moves the booths into it, JOIN moves booths into an existing zone and DROP removes an empty one.
+class PlanJournal {
+    static final String EXTENSION = ".journal";
+    static final String CHECKPOINT_EXTENSION = ".checkpoint";
+    static final int COMPACT_THRESHOLD = 50_000;
+
+    private static final int MAGIC = 0x4246504A; // "BFPJ"
+    private static final int VERSION = 2; // 2 added the zone records
+    private static final int HEADER_SIZE = 16;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte MOVE = 3;
+    private static final byte CLEAR = 4;
+    private static final byte ZONE = 5;
+    private static final byte JOIN = 6;
+    private static final byte DROP = 7;
+    private static final int FLUSH_INTERVAL_MS = 1000;
+
+    private final Path directory;
+    private final String planName;
+    private final Path file;
+    private final Path checkpoint;
+    private final FloorPlan plan;
+    private final Timer flushTimer;
+    private final int recovered;
+    private FileChannel channel; // only touched on the plan-io thread
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 12);
+    private long generation; // Of the snapshot the journal applies to, the saved plan's or the checkpoint's
+    private long savedGeneration; // Of the saved plan
+    private int recordsSinceSnapshot;
+    private boolean failed; // A write failed, edits are dropped instead of written until the next snapshot
+    private volatile Consumer<IOException> onFailure;
+
+    private PlanJournal(Path directory, String planName, FloorPlan plan, long savedGeneration, long generation,
+                        int recovered) {
+        this.directory = directory;
+        this.planName = planName;
+        this.file = journalFile(directory, planName);
+        this.checkpoint = checkpointFile(directory, planName);
+        this.plan = plan;
+        this.savedGeneration = savedGeneration;
+        this.generation = generation;
+        this.recovered = recovered;
+        this.recordsSinceSnapshot = recovered;
+        flushTimer = new Timer(FLUSH_INTERVAL_MS, e -> flush());
+        flushTimer.setRepeats(true);
+        flushTimer.start();
+    }
+
+    public static Path journalFile(String planName) {
+        return journalFile(FloorPlanFormat.PLAN_DIRECTORY, planName);
+    }
+
+    public static Path journalFile(Path directory, String planName) {
+        return directory.resolve(planName + EXTENSION);
+    }
+
+    public static Path checkpointFile(String planName) {
+        return checkpointFile(FloorPlanFormat.PLAN_DIRECTORY, planName);
+    }
+
+    public static Path checkpointFile(Path directory, String planName) {
+        return directory.resolve(planName + CHECKPOINT_EXTENSION);
+    }
+
+    //Starts a fresh journal for a plan that is about to be saved under this name for the first time
+    public static PlanJournal create(String planName, FloorPlan plan) throws IOException {
+        return create(FloorPlanFormat.PLAN_DIRECTORY, planName, plan);
+    }
+
+    public static PlanJournal create(Path directory, String planName, FloorPlan plan) throws IOException {
+        long saved = FloorPlanFormat.journalGeneration(FloorPlanFormat.planFile(directory, planName));
+        Files.deleteIfExists(checkpointFile(directory, planName));
+        PlanJournal journal = new PlanJournal(directory, planName, plan, saved, saved, 0);
+        journal.runOnIoThread(() -> journal.openChannel(0));
+        return journal;
+    }
+
+    //Loads a plan to reopen with open(): the checkpoint autosave took since the last save when there is one,
+    //otherwise the saved plan. The checkpoint is read in full rather than mapped, autosave replaces it while
+    //the plan is open.
+    public static FloorPlan load(String planName) throws IOException {
+        return load(FloorPlanFormat.PLAN_DIRECTORY, planName);
+    }
+
+    public static FloorPlan load(Path directory, String planName) throws IOException {
+        if (checkpointGeneration(directory, planName) > savedGeneration(directory, planName)) {
+            return FloorPlanFormat.read(checkpointFile(directory, planName));
+        }
+        return FloorPlanFormat.load(directory, planName);
+    }
+
+    //Replays whatever the journal recorded after the snapshot the plan was loaded from by load(), and starts
+    //journaling new edits. A journal left behind for an older snapshot was already compacted into it and is
+    //dropped, as is a checkpoint older than the saved plan.
+    public static PlanJournal open(String planName, FloorPlan plan) throws IOException {
+        return open(FloorPlanFormat.PLAN_DIRECTORY, planName, plan);
+    }
+
+    public static PlanJournal open(Path directory, String planName, FloorPlan plan) throws IOException {
+        Path file = journalFile(directory, planName);
+        long saved = savedGeneration(directory, planName);
+        long generation = checkpointGeneration(directory, planName);
+        if (generation <= saved) {
+            Files.deleteIfExists(checkpointFile(directory, planName));
+            generation = saved;
+        }
+        Replay replay = new Replay();
+        if (Files.exists(file)) {
+            replay(file, generation, plan, replay);
+        }
+        PlanJournal journal = new PlanJournal(directory, planName, plan, saved, generation, replay.applied);
+        journal.runOnIoThread(() -> journal.openChannel(replay.validLength));
+        return journal;
+    }
+
+    //Called on the event thread with the error when a write fails and journaling stops. Without a callback the
+    //error is printed.
+    public void setOnFailure(Consumer<IOException> onFailure) {
+        this.onFailure = onFailure;
+    }
+
+    //Number of edits recovered from the journal when it was opened
+    public int getRecoveredCount() {
+        return recovered;
+    }
+
+    public synchronized void recordAdd(CustomRectangle shape) {
+        record(ADD, shape.x, shape.y, shape.type);
+    }
+
+    //Adds a booth that is held as a compact row rather than an object
+    public synchronized void recordAdd(int x, int y, BoothType type) {
+        record(ADD, x, y, type);
+    }
+
+    public synchronized void recordRemove(CustomRectangle shape) {
+        record(REMOVE, shape.x, shape.y, shape.type);
+    }
+
+    public synchronized void recordMove(CustomRectangle shape, int oldX, int oldY) {
+        ByteBuffer record = begin(MOVE, 28);
+        record.putInt(oldX).putInt(oldY).putInt(shape.getWidth()).putInt(shape.getHeight()).putInt(shape.getColor().getRGB())
+                .putInt(shape.x).putInt(shape.y);
+        end(record);
+    }
+
+    public synchronized void recordClear() {
+        end(begin(CLEAR, 0));
+    }
+
+    //Adds a zone named name to the zone at index parent, or to the plan for -1, and moves the booths into it
+    public synchronized void recordZone(String name, int parent, Collection<CustomRectangle> booths) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int padded = (bytes.length + 3) & ~3;
+        ByteBuffer record = begin(ZONE, 12 + padded + 20 * booths.size());
+        record.putInt(parent).putInt(bytes.length).put(bytes);
+        for (int i = bytes.length; i < padded; i++) {
+            record.put((byte) 0);
+        }
+        end(putBooths(record, booths));
+    }
+
+    //Moves the booths into the zone at index zone, or to the plan itself for -1
+    public synchronized void recordJoin(int zone, Collection<CustomRectangle> booths) {
+        ByteBuffer record = begin(JOIN, 8 + 20 * booths.size());
+        record.putInt(zone);
+        end(putBooths(record, booths));
+    }
+
+    //Removes the empty zone at index zone
+    public synchronized void recordDrop(int zone) {
+        end(begin(DROP, 4).putInt(zone));
+    }
+
+    //Saves the plan under its name and starts an empty journal on top of the saved file, dropping any
+    //checkpoint. The callback runs on the event thread with null on success or the error that stopped the save.
+    public void compact(Consumer<IOException> onDone) {
+        startOver(snapshot -> PlanSaver.saveAsync(snapshot, directory, planName, () -> {
+            resetChannel(snapshot.journalGeneration);
+            Files.deleteIfExists(checkpoint);
+            synchronized (this) {
+                savedGeneration = snapshot.journalGeneration;
+            }
+        }, onDone));
+    }
+
+    //Forgets the edits made since the last save, the checkpoint taken of them included
+    public synchronized void discard() {
+        pending.clear();
+        recordsSinceSnapshot = 0;
+        generation = savedGeneration;
+        long currentGeneration = generation;
+        runOnIoThread(() -> {
+            resetChannel(currentGeneration);
+            Files.deleteIfExists(checkpoint);
+        });
+    }
+
+    //Flushes buffered edits and waits until they are on disk
+    public void close() {
+        flushTimer.stop();
+        writePending();
+        try {
+            PlanSaver.submit(() -> {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Nothing more can be done with the journal at this point
+        }
+    }
+
+    //Periodic autosave, compacting once enough edits have piled up
+    private void flush() {
+        boolean full;
+        synchronized (this) {
+            full = recordsSinceSnapshot >= COMPACT_THRESHOLD;
+        }
+        if (full) {
+            startOver(snapshot -> runOnIoThread(() -> {
+                FloorPlanFormat.writeAtomically(snapshot, checkpoint);
+                resetChannel(snapshot.journalGeneration);
+            }));
+        } else {
+            writePending();
+        }
+    }
+
+    //Takes a snapshot of the plan for the next generation and hands it to write, which has it written and the
+    //journal started over on top of it. The plan is locked first, in the same order as edits that journal
+    //themselves, so no edit falls between the snapshot and the new journal.
+    private void startOver(Consumer<PlanSnapshot> write) {
+        synchronized (plan) {
+            synchronized (this) {
+                //Buffered edits go to the old journal first, so a failed snapshot loses nothing
+                writePending();
+                PlanSnapshot snapshot = plan.snapshot().withJournalGeneration(++generation);
+                recordsSinceSnapshot = 0;
+                //The snapshot holds every edit so far, later ones go to the journal started over after it
+                failed = false;
+                write.accept(snapshot);
+            }
+        }
+    }
+
+    //Generation of the saved plan, 0 when it is not saved or predates journaling
+    private static long savedGeneration(Path directory, String planName) throws IOException {
+        return FloorPlanFormat.journalGeneration(FloorPlanFormat.planFile(directory, planName));
+    }
+
+    //Generation of the plan's checkpoint, 0 without one
+    private static long checkpointGeneration(Path directory, String planName) throws IOException {
+        return FloorPlanFormat.journalGeneration(checkpointFile(directory, planName));
+    }
+
+    //Hands the buffered records to the plan-io thread
+    private synchronized void writePending() {
+        if (failed) {
+            pending.clear();
+        }
+        if (pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        ByteBuffer batch = ByteBuffer.allocate(pending.remaining()).put(pending);
+        batch.flip();
+        pending.clear();
+        runOnIoThread(() -> {
+            if (channel != null) {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            }
+        });
+    }
+
+    private void record(byte operation, int x, int y, BoothType type) {
+        ByteBuffer record = begin(operation, 20);
+        record.putInt(x).putInt(y).putInt(type.width).putInt(type.height).putInt(type.argb);
+        end(record);
+    }
+
+    private static ByteBuffer putBooths(ByteBuffer record, Collection<CustomRectangle> booths) {
+        record.putInt(booths.size());
+        for (CustomRectangle shape : booths) {
+            record.putInt(shape.x).putInt(shape.y).putInt(shape.type.width).putInt(shape.type.height)
+                    .putInt(shape.type.argb);
+        }
+        return record;
+    }
+
+    private ByteBuffer begin(byte operation, int fieldBytes) {
+        if (pending.remaining() < fieldBytes + 5) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + fieldBytes + 5));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.mark();
+        return pending.put(operation);
+    }
+
+    private void end(ByteBuffer record) {
+        int end = record.position();
+        record.reset();
+        int start = record.position();
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), start, end - start);
+        record.position(end);
+        record.putInt((int) crc.getValue());
+        recordsSinceSnapshot++;
+    }
+
+    //Keeps the records that were replayed and cuts off anything after them, such as a torn last write
+    private void openChannel(long validLength) throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validLength < HEADER_SIZE) {
+            writeHeader(generation);
+        } else {
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+    }
+
+    private void resetChannel(long newGeneration) throws IOException {
+        if (channel == null) {
+            openChannel(0);
+        }
+        writeHeader(newGeneration);
+    }
+
+    private void writeHeader(long headerGeneration) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(headerGeneration);
+        header.flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+    }
+
+    private void runOnIoThread(PlanSaver.IoTask job) {
+        PlanSaver.execute(() -> {
+            try {
+                job.run();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    //Stops journaling after the first failed write and reports it, later failures are the same problem
+    private void fail(IOException error) {
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            pending.clear();
+        }
+        Consumer<IOException> callback = onFailure;
+        if (callback == null) {
+            System.err.println("Journal write failed for " + planName + ": " + error.getMessage());
+        } else {
+            SwingUtilities.invokeLater(() -> callback.accept(error));
+        }
+    }
+
+    //Applies the journal's complete records to the plan, stopping at a torn or corrupt tail
+    private static void replay(Path file, long generation, FloorPlan plan, Replay replay) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC || (data.getShort() & 0xFFFF) > VERSION) {
+            return;
+        }
+        data.getShort();
+        if (data.getLong() != generation) {
+            return;
+        }
+        replay.validLength = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (data.hasRemaining()) {
+            int start = data.position();
+            byte operation = data.get();
+            int fieldBytes = fieldBytes(data, operation);
+            if (fieldBytes < 0 || data.remaining() < fieldBytes + 4) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.array(), start, 1 + fieldBytes);
+            ByteBuffer fields = ByteBuffer.wrap(data.array(), data.position(), fieldBytes).slice();
+            data.position(data.position() + fieldBytes);
+            if (data.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            apply(plan, operation, fields);
+            replay.applied++;
+            replay.validLength = data.position();
+        }
+    }
+
+    //Length of the fields of the record whose operation was just read, -1 for an unknown operation or when
+    //the lengths the fields start with run past the end of the data
+    private static int fieldBytes(ByteBuffer data, byte operation) {
+        int at = data.position();
+        switch (operation) {
+            case ADD:
+            case REMOVE:
+                return 20;
+            case MOVE:
+                return 28;
+            case CLEAR:
+                return 0;
+            case DROP:
+                return 4;
+            case JOIN:
+                return data.remaining() < 8 ? -1 : withBooths(8, data.getInt(at + 4));
+            case ZONE:
+                if (data.remaining() < 8) {
+                    return -1;
+                }
+                long padded = ((long) data.getInt(at + 4) + 3) & ~3L;
+                if (padded < 0 || data.remaining() < 12 + padded) {
+                    return -1;
+                }
+                return withBooths(12 + (int) padded, data.getInt(at + 8 + (int) padded));
+            default:
+                return -1;
+        }
+    }
+
+    private static int withBooths(int fixedBytes, int booths) {
+        long length = fixedBytes + 20L * booths;
+        return booths < 0 || length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    private static void apply(FloorPlan plan, byte operation, ByteBuffer f) {
+        if (operation == ADD) {
+            plan.add(booth(f));
+        } else if (operation == REMOVE) {
+            CustomRectangle shape = find(plan, f);
+            if (shape != null) {
+                plan.remove(shape);
+            }
+        } else if (operation == MOVE) {
+            CustomRectangle shape = find(plan, f);
+            if (shape != null) {
+                plan.move(shape, f.getInt(), f.getInt());
+            }
+        } else if (operation == CLEAR) {
+            plan.clear();
+        } else if (operation == ZONE) {
+            FloorPlan parent = zone(plan, f.getInt());
+            byte[] name = new byte[f.getInt()];
+            f.get(name);
+            f.position((f.position() + 3) & ~3);
+            Zone zone = new Zone(new String(name, StandardCharsets.UTF_8));
+            parent.add(zone);
+            join(plan, zone, f);
+        } else if (operation == JOIN) {
+            join(plan, zone(plan, f.getInt()), f);
+        } else {
+            FloorPlan zone = zone(plan, f.getInt());
+            FloorPlan parent = zone instanceof Zone ? plan.parentOf((Zone) zone) : null;
+            if (parent != null) {
+                parent.removeZone((Zone) zone);
+            }
+        }
+    }
+
+    //The zone at index, the plan itself for -1 or a zone the plan does not have
+    private static FloorPlan zone(FloorPlan plan, int index) {
+        List<Zone> zones = plan.zones();
+        return index >= 0 && index < zones.size() ? zones.get(index) : plan;
+    }
+
+    //Moves the booths listed next in the fields into target
+    private static void join(FloorPlan plan, FloorPlan target, ByteBuffer f) {
+        int count = f.getInt();
+        List<CustomRectangle> booths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CustomRectangle shape = find(plan, f);
+            if (shape != null) {
+                booths.add(shape);
+            }
+        }
+        target.addAll(plan.removeAll(booths));
+    }
+
+    private static CustomRectangle booth(ByteBuffer f) {
+        int x = f.getInt(), y = f.getInt();
+        CustomRectangle shape = new CustomRectangle(f.getInt(), f.getInt(), new Color(f.getInt(), true));
+        shape.setPosition(x, y);
+        return shape;
+    }
+
+    private static CustomRectangle find(FloorPlan plan, ByteBuffer f) {
+        return plan.findBooth(f.getInt(), f.getInt(), f.getInt(), f.getInt(), f.getInt());
+    }
+
+    private static final class Replay {
+        int applied;
+        long validLength;
+    }
+}
@@ -0,0 +1,290 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+//////////////////////////////////////////////////////////////////////////////// Instrumentation
+//Call counts and latency histograms for the editor's hot paths: drawing, placement, hit-testing and plan
+//I/O. Off by default, and while off timing a call costs one volatile read. Turned on with
+//-Dbooth.metrics=true or from View > Performance Overlay; the first time it is on every operation is
+//published as an MBean under boothfloorplan:type=Operation, with boothfloorplan:type=Metrics to switch it
+//off and on again, and every timed call is also a JFR event when a recording is running.
+//
+//  long start = PlanMetrics.start();
+//  ...
+//  PlanMetrics.DRAW.stop(start);
+class PlanMetrics {
+    static final String DOMAIN = "boothfloorplan";
+    private static final long OFF = Long.MIN_VALUE; // start() while metrics are off
+
+    static final Operation FRAME = new Operation("frame", "Painting the drawing area");
+    static final Operation DRAW = new Operation("draw", "FloorPlan.draw and drawDensity");
+    static final Operation PLACEMENT = new Operation("placement", "FloorPlanController.addShape and addShapes");
+    static final Operation HIT_TEST = new Operation("hitTest", "FloorPlanController.getShapeAt");
+    static final Operation SAVE = new Operation("save", "Saving a plan, from the request to the file on disk");
+    static final Operation LOAD = new Operation("load", "Loading a plan and replaying its journal");
+    private static final Operation[] OPERATIONS = {FRAME, DRAW, PLACEMENT, HIT_TEST, SAVE, LOAD};
+    //Free spots the placement engine tried, some turn out to be taken by booths it did not know of
+    private static final LongAdder placementAttempts = new LongAdder();
+
+    private static volatile boolean enabled;
+    private static boolean published; // Guarded by the class
+
+    static {
+        if (Boolean.getBoolean("booth.metrics")) {
+            setEnabled(true);
+        }
+    }
+
+    private PlanMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        if (on) {
+            publish();
+        }
+        enabled = on;
+    }
+
+    //Start time of a call to pass to stop() afterwards
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    public static void countPlacementAttempt() {
+        if (enabled) {
+            placementAttempts.increment();
+        }
+    }
+
+    public static long getPlacementAttempts() {
+        return placementAttempts.sum();
+    }
+
+    public static void reset() {
+        for (Operation operation : OPERATIONS) {
+            operation.reset();
+        }
+        placementAttempts.reset();
+    }
+
+    //Registers the MBeans, once. Metrics still work when the platform MBean server is not available.
+    private static synchronized void publish() {
+        if (published) {
+            return;
+        }
+        published = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Control(), new ObjectName(DOMAIN + ":type=Metrics"));
+            for (Operation operation : OPERATIONS) {
+                server.registerMBean(operation, new ObjectName(DOMAIN + ":type=Operation,name=" + operation.name));
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Performance metrics not published over JMX: " + e);
+        }
+    }
+
+    //Calls of one operation: how many, how long in total and the longest, and a histogram of durations with
+    //four buckets per power of two nanoseconds, so percentiles are within a quarter of the true value
+    static final class Operation implements OperationMBean {
+        private static final int BUCKETS = 4 * 64;
+
+        final String name;
+        private final String description;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private volatile long lastNanos;
+
+        private Operation(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        //Records the call started at start, nothing when metrics were off when it started
+        void stop(long start) {
+            if (start == OFF) {
+                return;
+            }
+            long nanos = Math.max(0, System.nanoTime() - start);
+            lastNanos = nanos;
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.incrementAndGet(bucket(nanos));
+            OperationEvent event = new OperationEvent();
+            if (event.isEnabled()) {
+                event.operation = name;
+                event.elapsed = nanos;
+                event.commit();
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMicros() {
+            long calls = count.sum();
+            return calls == 0 ? 0 : totalNanos.sum() / 1e3 / calls;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return maxNanos.get() / 1e3;
+        }
+
+        @Override
+        public double getLastMicros() {
+            return lastNanos / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return percentile(0.50) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return percentile(0.90) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return percentile(0.99) / 1e3;
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            lastNanos = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+        }
+
+        //Upper end of the bucket holding the given share of calls, in nanoseconds
+        long percentile(double share) {
+            long[] counts = new long[BUCKETS];
+            long calls = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                calls += counts[i];
+            }
+            long wanted = (long) Math.ceil(share * calls);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= wanted && counts[i] > 0) {
+                    return Math.min(upperBound(i), maxNanos.get());
+                }
+            }
+            return 0;
+        }
+
+        //Values below 4 get a bucket each, larger ones by their top bit and the two bits after it
+        private static int bucket(long nanos) {
+            if (nanos < 4) {
+                return (int) nanos;
+            }
+            int top = 63 - Long.numberOfLeadingZeros(nanos);
+            return 4 * (top - 1) + (int) (nanos >>> (top - 2) & 3);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int top = bucket / 4 + 1;
+            long upper = (long) (4 + bucket % 4 + 1) << (top - 2);
+            return upper <= 0 ? Long.MAX_VALUE : upper - 1;
+        }
+    }
+
+    //One timed call in a JFR recording
+    @Name("boothfloorplan.Operation")
+    @Label("Floor Plan Operation")
+    @Category("Booth Floor Plan")
+    @Description("A timed drawing, placement, hit-test, save or load call")
+    @StackTrace(false)
+    static final class OperationEvent extends jdk.jfr.Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    static final class Control implements ControlMBean {
+        @Override
+        public boolean isEnabled() {
+            return PlanMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            PlanMetrics.setEnabled(on);
+        }
+
+        @Override
+        public long getPlacementAttempts() {
+            return PlanMetrics.getPlacementAttempts();
+        }
+
+        @Override
+        public void reset() {
+            PlanMetrics.reset();
+        }
+    }
+
+    //Management interfaces, named after their implementations the way standard MBeans require
+    public interface OperationMBean {
+        String getDescription();
+        long getCount();
+        double getTotalMillis();
+        double getMeanMicros();
+        double getMaxMicros();
+        double getLastMicros();
+        double getP50Micros();
+        double getP90Micros();
+        double getP99Micros();
+        void reset();
+    }
+
+    public interface ControlMBean {
+        boolean isEnabled();
+        void setEnabled(boolean on);
+        long getPlacementAttempts();
+        void reset();
+    }
+}
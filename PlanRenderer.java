@@ -0,0 +1,109 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+//////////////////////////////////////////////////////////////////////////////// Layered rendering
+//Keeps every booth except the selected ones rasterized in an offscreen layer. While the selection is dragged
+//the other booths do not change, so each frame is a blit of the layer plus the selected booths on top.
+//The layer is only redrawn after the plan changes, the selection changes, the view is panned or zoomed,
+//or the panel is resized.
+class PlanRenderer implements FloorPlanListener {
+    private BufferedImage layer;
+    private FloorPlan plan;
+    private Set<CustomRectangle> layerExcluded = Collections.emptySet();
+    private int layerViewportVersion = -1;
+    private boolean layerDetailed;
+    private boolean dirty = true;
+
+    //Paints the plan as seen through the viewport into a component area of the given size
+    public void render(Graphics g, FloorPlan floorPlan, Set<CustomRectangle> selection, Viewport viewport, int width,
+                       int height, Color background, GraphicsConfiguration configuration) {
+        if (floorPlan != plan) {
+            if (plan != null) {
+                plan.removeListener(this);
+            }
+            plan = floorPlan;
+            plan.addListener(this);
+            dirty = true;
+        }
+        if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+            layer = configuration != null
+                    ? configuration.createCompatibleImage(Math.max(width, 1), Math.max(height, 1), Transparency.OPAQUE)
+                    : new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+            dirty = true;
+        }
+        if (!selection.equals(layerExcluded)) {
+            layerExcluded = new HashSet<>(selection);
+            dirty = true;
+        }
+        if (viewport.getVersion() != layerViewportVersion) {
+            layerViewportVersion = viewport.getVersion();
+            dirty = true;
+        }
+        if (dirty) {
+            Graphics2D layerGraphics = layer.createGraphics();
+            layerGraphics.setColor(background);
+            layerGraphics.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+            viewport.apply(layerGraphics);
+            Rectangle visible = viewport.visibleWorld(layer.getWidth(), layer.getHeight());
+            layerGraphics.clip(visible);
+            layerDetailed = viewport.isDetailed();
+            if (layerDetailed) {
+                plan.draw(layerGraphics, layerExcluded);
+            } else {
+                plan.drawDensity(layerGraphics, visible, viewport.getScale());
+            }
+            layerGraphics.dispose();
+            dirty = false;
+        }
+        g.drawImage(layer, 0, 0, null);
+        if (!selection.isEmpty()) {
+            Graphics2D selectedGraphics = (Graphics2D) g.create();
+            viewport.apply(selectedGraphics);
+            for (CustomRectangle selected : selection) {
+                selected.draw(selectedGraphics);
+            }
+            selectedGraphics.dispose();
+        }
+    }
+
+    //Drops the cached layer, for example when the renderer is switched off
+    public void invalidate() {
+        dirty = true;
+    }
+
+    @Override
+    public void shapeAdded(CustomRectangle shape) {
+        dirty = true;
+    }
+
+    @Override
+    public void shapeRemoved(CustomRectangle shape) {
+        dirty = true;
+    }
+
+    @Override
+    public void shapeMoved(CustomRectangle shape, int oldX, int oldY) {
+        //Selected booths are drawn on top of the layer every frame, so moving them leaves the layer valid
+        if (!layerExcluded.contains(shape) || !layerDetailed) {
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void planCleared() {
+        dirty = true;
+    }
+
+    @Override
+    public void planRestored() {
+        dirty = true;
+    }
+}
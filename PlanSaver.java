@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+//////////////////////////////////////////////////////////////////////////////// Background saving
+//Runs plan file I/O on one background thread so the editor never waits on the disk. Jobs run in the
+//order they were submitted, which keeps saves of the same plan from overtaking each other.
+class PlanSaver {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "plan-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PlanSaver() {
+    }
+
+    //Saves a snapshot in the background, then runs afterSave on the same thread once the file is in place.
+    //The callback runs on the Swing event thread with null on success or the error that stopped the save,
+    //whatever went wrong: unchecked exceptions are passed on as an IOException wrapping them.
+    public static void saveAsync(PlanSnapshot snapshot, String planName, IoTask afterSave, Consumer<IOException> onDone) {
+        saveAsync(snapshot, FloorPlanFormat.PLAN_DIRECTORY, planName, afterSave, onDone);
+    }
+
+    //Saves like saveAsync(snapshot, planName, ...) into another plan directory
+    public static void saveAsync(PlanSnapshot snapshot, Path directory, String planName, IoTask afterSave,
+                                 Consumer<IOException> onDone) {
+        EXECUTOR.execute(() -> {
+            //Reported as is if an Error stops the save, the caller still hears back
+            IOException error = new IOException("Saving " + planName + " did not complete");
+            try {
+                FloorPlanFormat.save(snapshot, directory, planName);
+                if (afterSave != null) {
+                    afterSave.run();
+                }
+                error = null;
+            } catch (IOException e) {
+                error = e;
+            } catch (UncheckedIOException e) {
+                error = e.getCause();
+            } catch (RuntimeException e) {
+                error = new IOException("Saving " + planName + " failed: " + e, e);
+            } finally {
+                IOException result = error;
+                if (onDone != null) {
+                    SwingUtilities.invokeLater(() -> onDone.accept(result));
+                }
+            }
+        });
+    }
+
+    //Queues other plan file work behind any pending saves
+    public static void execute(Runnable job) {
+        EXECUTOR.execute(job);
+    }
+
+    public static <T> Future<T> submit(Callable<T> job) {
+        return EXECUTOR.submit(job);
+    }
+
+    //Plan file work that may fail with an I/O error
+    interface IoTask {
+        void run() throws IOException;
+    }
+}
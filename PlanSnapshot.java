@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Point in time copy of a plan's booths in drawing order, safe to hand to another thread. Snapshots are
+//immutable and shared, see FloorPlan.snapshot, so the arrays must not be written to.
+class PlanSnapshot {
+    final int size;
+    final int[] x;
+    final int[] y;
+    final int[] width;
+    final int[] height;
+    final int[] argb;
+    //Zones in the order they start, each zone's booths a run of the booths above. Nested zones follow the
+    //zone holding them and name it by index, top level zones have parent -1.
+    final String[] zoneNames;
+    final int[] zoneParent;
+    final int[] zoneFirst;
+    final int[] zoneCount;
+    //Generation of the plan's journal this snapshot starts, see PlanJournal
+    final long journalGeneration;
+
+    private PlanSnapshot(int size, int[] x, int[] y, int[] width, int[] height, int[] argb, String[] zoneNames,
+                         int[] zoneParent, int[] zoneFirst, int[] zoneCount, long journalGeneration) {
+        this.size = size;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+        this.zoneNames = zoneNames;
+        this.zoneParent = zoneParent;
+        this.zoneFirst = zoneFirst;
+        this.zoneCount = zoneCount;
+        this.journalGeneration = journalGeneration;
+    }
+
+    //The same booths starting another journal generation
+    public PlanSnapshot withJournalGeneration(long generation) {
+        return new PlanSnapshot(size, x, y, width, height, argb, zoneNames, zoneParent, zoneFirst, zoneCount,
+                generation);
+    }
+
+    //A plan's booths as FloorPlan.snapshot finds them under the plan's lock: the booths held as objects are
+    //copied, the ones still in the plan's source are only marked, and all are read in drawing order by build()
+    //once the lock is let go. Nested plans follow the plan's own booths, as FloorPlan.forEachBooth visits them.
+    static final class Capture {
+        private final int[] booths; // x, y, type id and order of each booth held as an object, in drawing order
+        private final int held;
+        private final PlanSource.Rows rows; // null without a source
+        private final int rowCount;
+        private final int size;
+        private final List<Capture> nested;
+        private final String zoneName; // null unless the plan is a zone nested in the plan snapshotted
+
+        Capture(int[] booths, int held, PlanSource.Rows rows, int rowCount, int size, List<Capture> nested,
+                String zoneName) {
+            this.booths = booths;
+            this.held = held;
+            this.rows = rows;
+            this.rowCount = rowCount;
+            this.size = size;
+            this.nested = nested;
+            this.zoneName = zoneName;
+        }
+
+        PlanSnapshot build() {
+            Builder builder = new Builder(size);
+            replay(builder);
+            return builder.build();
+        }
+
+        private void replay(Builder builder) {
+            if (zoneName != null) {
+                builder.enter(zoneName);
+            }
+            int row = 0;
+            for (int i = 0; i < 4 * held; i += 4) {
+                int order = booths[i + 3];
+                if (rows != null) {
+                    rows.forEach(row, order, builder::add);
+                    row = Math.max(row, order);
+                }
+                builder.add(booths[i], booths[i + 1], RectangleFactory.getType(booths[i + 2]));
+            }
+            if (rows != null) {
+                rows.forEach(row, rowCount, builder::add);
+            }
+            for (Capture plan : nested) {
+                plan.replay(builder);
+            }
+            if (zoneName != null) {
+                builder.exit();
+            }
+        }
+    }
+
+    private static class Builder {
+        private int size;
+        private int[] x, y, width, height, argb;
+        private final List<String> zoneNames = new ArrayList<>();
+        private int[] zoneParent = new int[0], zoneFirst = new int[0], zoneCount = new int[0];
+        private int openZone = -1; // Innermost zone entered and not left yet
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            x = new int[capacity];
+            y = new int[capacity];
+            width = new int[capacity];
+            height = new int[capacity];
+            argb = new int[capacity];
+        }
+
+        void add(int boothX, int boothY, BoothType type) {
+            if (size == x.length) {
+                int capacity = size * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                width = Arrays.copyOf(width, capacity);
+                height = Arrays.copyOf(height, capacity);
+                argb = Arrays.copyOf(argb, capacity);
+            }
+            x[size] = boothX;
+            y[size] = boothY;
+            width[size] = type.width;
+            height[size] = type.height;
+            argb[size] = type.getArgb();
+            size++;
+        }
+
+        void enter(String name) {
+            int zones = zoneNames.size();
+            if (zones == zoneFirst.length) {
+                int capacity = Math.max(4, zones * 2);
+                zoneParent = Arrays.copyOf(zoneParent, capacity);
+                zoneFirst = Arrays.copyOf(zoneFirst, capacity);
+                zoneCount = Arrays.copyOf(zoneCount, capacity);
+            }
+            zoneNames.add(name);
+            zoneParent[zones] = openZone;
+            zoneFirst[zones] = size;
+            openZone = zones;
+        }
+
+        void exit() {
+            zoneCount[openZone] = size - zoneFirst[openZone];
+            openZone = zoneParent[openZone];
+        }
+
+        PlanSnapshot build() {
+            int zones = zoneNames.size();
+            return new PlanSnapshot(size, x, y, width, height, argb, zoneNames.toArray(new String[0]),
+                    Arrays.copyOf(zoneParent, zones), Arrays.copyOf(zoneFirst, zones), Arrays.copyOf(zoneCount, zones),
+                    0);
+        }
+    }
+}
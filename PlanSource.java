@@ -0,0 +1,32 @@
+import java.awt.Rectangle;
+import java.util.List;
+
+//Booths of a plan that are not held as objects yet. FloorPlan materializes them area by area as the
+//editor needs them; a booth's order is its position in the source, so merged booths keep drawing order.
+interface PlanSource {
+    //Number of booths the source was created with
+    int recordCount();
+
+    //Booths not materialized yet
+    int unloadedCount();
+
+    //Area the source's booths covered when it was created, read or not, null without booths
+    Rectangle bounds();
+
+    //Materializes the unread booths that may overlap the area, in drawing order
+    List<CustomRectangle> load(int x, int y, int width, int height);
+
+    //Materializes everything still unread, in drawing order
+    List<CustomRectangle> loadAll();
+
+    //Visits the unread booths from one record up to but not including another, in drawing order
+    void forEach(int from, int to, BoothTable.Visitor visitor);
+
+    //The booths unread right now, to visit on any thread while the source goes on materializing. Taking it
+    //copies a bit per booth at most, visiting them reads the booths.
+    Rows unread();
+
+    interface Rows {
+        void forEach(int from, int to, BoothTable.Visitor visitor);
+    }
+}
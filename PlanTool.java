@@ -0,0 +1,400 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+//////////////////////////////////////////////////////////////////////////////// Batch tool
+//Headless entry point for working on plan files in pipelines, without the Swing frames:
+//  pack      [--hall WxH] -o DIR CSV...                         packs each booth list into a new plan
+//  generate  --count N --booths M [--hall WxH] [--seed S] -o DIR  packs N plans of M random booths
+//  validate  PLAN...                                            lists every pair of overlapping booths
+//  convert   --to bfp|ser -o DIR PLAN...                        rewrites plans in the binary or old format
+//  thumbnail [--size PIXELS] -o DIR PLAN...                     renders each plan to a PNG
+//  export    --to svg|pdf [--page WxH] -o DIR PLAN...             writes each plan as vector pages for print
+//Directories are expanded to the CSV or plan files in them. Every file is a separate job on a pool of
+//--threads threads, all cores by default, since plans share nothing but the thread safe RectangleFactory.
+//Results are printed in input order; the exit status is 1 when any file failed or is invalid.
+public class PlanTool {
+    private static final int DEFAULT_HALL_SIZE = 1000;
+    private static final int DEFAULT_THUMBNAIL_SIZE = 256;
+    //Booths offered by the editor's buttons, used for generated plans
+    private static final BoothRequest[] GENERATED_BOOTHS = {
+            new BoothRequest(100, 60, Color.BLUE),
+            new BoothRequest(50, 30, Color.GREEN),
+            new BoothRequest(30, 30, new Color(128, 0, 128))
+    };
+
+    private final String command;
+    private final List<Path> inputs = new ArrayList<>();
+    private Path outputDirectory;
+    private int hallWidth = DEFAULT_HALL_SIZE;
+    private int hallHeight = DEFAULT_HALL_SIZE;
+    private int count;
+    private int booths;
+    private long seed;
+    private String format;
+    private int thumbnailSize = DEFAULT_THUMBNAIL_SIZE;
+    private int pageWidth, pageHeight; // 0 for one page per plan
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private PlanTool(String command) {
+        this.command = command;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        PlanTool tool;
+        try {
+            tool = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: PlanTool pack [--hall WxH] -o DIR CSV...");
+            System.err.println("       PlanTool generate --count N --booths M [--hall WxH] [--seed S] -o DIR");
+            System.err.println("       PlanTool validate PLAN...");
+            System.err.println("       PlanTool convert --to bfp|ser -o DIR PLAN...");
+            System.err.println("       PlanTool thumbnail [--size PIXELS] -o DIR PLAN...");
+            System.err.println("       PlanTool export --to svg|pdf [--page WxH] -o DIR PLAN...");
+            System.err.println("Directories are expanded to the files in them, --threads N sets the pool size");
+            System.exit(2);
+            return;
+        }
+        System.exit(tool.run() ? 0 : 1);
+    }
+
+    static PlanTool parse(String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("No command given");
+        }
+        PlanTool tool = new PlanTool(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-")) {
+                tool.inputs.add(Paths.get(arg));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-o":
+                case "--output":
+                    tool.outputDirectory = Paths.get(value);
+                    break;
+                case "--hall":
+                case "--page":
+                    String[] size = value.toLowerCase().split("x");
+                    if (size.length != 2) {
+                        throw new IllegalArgumentException(arg + " must look like 1000x800: " + value);
+                    }
+                    if (arg.equals("--hall")) {
+                        tool.hallWidth = positive(arg, size[0]);
+                        tool.hallHeight = positive(arg, size[1]);
+                    } else {
+                        tool.pageWidth = positive(arg, size[0]);
+                        tool.pageHeight = positive(arg, size[1]);
+                    }
+                    break;
+                case "--count":
+                    tool.count = positive(arg, value);
+                    break;
+                case "--booths":
+                    tool.booths = positive(arg, value);
+                    break;
+                case "--seed":
+                    tool.seed = Long.parseLong(value);
+                    break;
+                case "--to":
+                    tool.format = value;
+                    break;
+                case "--size":
+                    tool.thumbnailSize = positive(arg, value);
+                    break;
+                case "--threads":
+                    tool.threads = positive(arg, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        switch (tool.command) {
+            case "generate":
+                if (tool.count == 0 || tool.booths == 0) {
+                    throw new IllegalArgumentException("generate needs --count and --booths");
+                }
+                break;
+            case "convert":
+                if (tool.format == null || !tool.format.equals("bfp") && !tool.format.equals("ser")) {
+                    throw new IllegalArgumentException("convert needs --to bfp or --to ser");
+                }
+                break;
+            case "export":
+                if (tool.format == null || !tool.format.equals("svg") && !tool.format.equals("pdf")) {
+                    throw new IllegalArgumentException("export needs --to svg or --to pdf");
+                }
+                break;
+            case "pack":
+            case "thumbnail":
+            case "validate":
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + tool.command);
+        }
+        if (!tool.command.equals("generate") && tool.inputs.isEmpty()) {
+            throw new IllegalArgumentException(tool.command + " needs at least one input file");
+        }
+        if (tool.outputDirectory == null && !tool.command.equals("validate")) {
+            throw new IllegalArgumentException(tool.command + " needs an output directory, -o DIR");
+        }
+        return tool;
+    }
+
+    private static int positive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number: " + value);
+    }
+
+    //Runs one job per file and prints each result, true when every job succeeded
+    boolean run() {
+        List<Job> jobs = new ArrayList<>();
+        try {
+            if (outputDirectory != null) {
+                Files.createDirectories(outputDirectory);
+            }
+            if (command.equals("generate")) {
+                int digits = String.valueOf(count - 1).length();
+                for (int i = 0; i < count; i++) {
+                    String name = String.format("plan-%0" + digits + "d", i);
+                    long planSeed = seed + i;
+                    jobs.add(new Job(name, () -> pack(name, randomBooths(new Random(planSeed)))));
+                }
+            } else {
+                for (Path file : expand(inputs, command.equals("pack") ? ".csv" : null)) {
+                    jobs.add(new Job(file.toString(), () -> process(file)));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(jobs.size(), 1)));
+        List<Future<Result>> results = new ArrayList<>();
+        for (Job job : jobs) {
+            results.add(pool.submit(job.work::call));
+        }
+        pool.shutdown();
+        boolean allPassed = true;
+        for (int i = 0; i < jobs.size(); i++) {
+            Result result;
+            try {
+                result = results.get(i).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                result = new Result(false, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            System.out.println(jobs.get(i).name + ": " + result.message);
+            allPassed &= result.passed;
+        }
+        return allPassed;
+    }
+
+    private Result process(Path file) throws IOException {
+        switch (command) {
+            case "pack":
+                return pack(baseName(file), BoothRequest.readCsv(file));
+            case "validate":
+                return validate(read(file));
+            case "convert":
+                return convert(file);
+            case "export":
+                return export(file);
+            default:
+                return thumbnail(file);
+        }
+    }
+
+    //Places the booths with the same packing the editor's CSV import uses and saves the plan
+    private Result pack(String name, List<BoothRequest> requests) throws IOException {
+        FloorPlanController controller = new FloorPlanController();
+        controller.setHistoryDepth(0); // Nothing is undone here, no need to keep every placed booth twice
+        FloorPlanController.BatchResult batch = controller.addShapes(requests, hallWidth, hallHeight);
+        FloorPlanFormat.writeAtomically(controller.getFloorPlan().snapshot(),
+                outputDirectory.resolve(name + FloorPlanFormat.EXTENSION));
+        int unplaced = batch.getUnplaced().size();
+        //A booth list that does not fit is a failed job, generated plans are meant to fill the hall
+        return new Result(unplaced == 0 || command.equals("generate"), batch.getPlaced().size() + " booths placed"
+                + (unplaced > 0 ? ", " + unplaced + " did not fit" : ""));
+    }
+
+    private List<BoothRequest> randomBooths(Random random) {
+        List<BoothRequest> requests = new ArrayList<>(booths);
+        for (int i = 0; i < booths; i++) {
+            BoothRequest kind = GENERATED_BOOTHS[random.nextInt(GENERATED_BOOTHS.length)];
+            requests.add(new BoothRequest(kind.width, kind.height, kind.color)); // Batches track requests by identity
+        }
+        return requests;
+    }
+
+    //Lists every pair of overlapping booths, by drawing order number and geometry
+    private static Result validate(FloorPlan plan) {
+        PlanSnapshot snapshot = plan.snapshot();
+        OverlapValidator.Conflicts conflicts = OverlapValidator.validate(snapshot);
+        if (conflicts.size() == 0) {
+            return new Result(true, "OK, " + snapshot.size + " booths");
+        }
+        StringBuilder message = new StringBuilder();
+        message.append(conflicts.size()).append(" overlapping pairs among ").append(snapshot.size).append(" booths");
+        for (int i = 0; i < conflicts.size(); i++) {
+            message.append(System.lineSeparator()).append("  ");
+            describe(message, snapshot, conflicts.first(i));
+            message.append(" overlaps ");
+            describe(message, snapshot, conflicts.second(i));
+        }
+        return new Result(false, message.toString());
+    }
+
+    private static void describe(StringBuilder message, PlanSnapshot plan, int booth) {
+        message.append('#').append(booth).append(" at ").append(plan.x[booth]).append(',').append(plan.y[booth])
+                .append(' ').append(plan.width[booth]).append('x').append(plan.height[booth]);
+    }
+
+    private Result convert(Path file) throws IOException {
+        FloorPlan plan = read(file);
+        String name = baseName(file);
+        if (format.equals("bfp")) {
+            FloorPlanFormat.writeAtomically(plan.snapshot(),
+                    outputDirectory.resolve(name + FloorPlanFormat.EXTENSION));
+        } else {
+            FloorPlanFormat.writeLegacy(plan, outputDirectory.resolve(name + FloorPlanFormat.LEGACY_EXTENSION));
+        }
+        return new Result(true, plan.size() + " booths written as ." + format);
+    }
+
+    //Streams the plan to vector pages without building it, see PlanExporter
+    private Result export(Path file) throws IOException {
+        Path target = outputDirectory.resolve(baseName(file) + "." + format);
+        int pages = PlanExporter.export(file, target, pageWidth, pageHeight);
+        return new Result(true, pages + (pages == 1 ? " page" : " pages") + " written as ." + format);
+    }
+
+    //Fits the whole plan into a square image, zoomed out plans are drawn as density like in the editor
+    private Result thumbnail(Path file) throws IOException {
+        FloorPlan plan = read(file);
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        plan.forEachBooth((x, y, type) -> {
+            bounds[0] = Math.min(bounds[0], x);
+            bounds[1] = Math.min(bounds[1], y);
+            bounds[2] = Math.max(bounds[2], x + type.width);
+            bounds[3] = Math.max(bounds[3], y + type.height);
+        });
+        BufferedImage image = new BufferedImage(thumbnailSize, thumbnailSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, thumbnailSize, thumbnailSize);
+        if (bounds[0] <= bounds[2]) {
+            int margin = CustomRectangle.PAINT_MARGIN;
+            double extent = Math.max(bounds[2] - bounds[0], bounds[3] - bounds[1]) + 2 * margin;
+            Viewport viewport = new Viewport();
+            viewport.zoomAt(0, 0, thumbnailSize / extent);
+            viewport.pan(-(bounds[0] - margin) * viewport.getScale(), -(bounds[1] - margin) * viewport.getScale());
+            viewport.apply(g);
+            Rectangle visible = viewport.visibleWorld(thumbnailSize, thumbnailSize);
+            g.clip(visible);
+            if (viewport.isDetailed()) {
+                plan.draw(g);
+            } else {
+                plan.drawDensity(g, visible, viewport.getScale());
+            }
+        }
+        g.dispose();
+        ImageIO.write(image, "png", outputDirectory.resolve(baseName(file) + ".png").toFile());
+        return new Result(true, plan.size() + " booths rendered");
+    }
+
+    private static FloorPlan read(Path file) throws IOException {
+        if (file.getFileName().toString().toLowerCase().endsWith(FloorPlanFormat.LEGACY_EXTENSION)) {
+            return FloorPlanFormat.readLegacy(file);
+        }
+        return FloorPlanFormat.read(file);
+    }
+
+    //Files named on the command line plus the matching files of named directories, in name order
+    private static List<Path> expand(List<Path> inputs, String extension) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (!Files.isDirectory(input)) {
+                files.add(input);
+                continue;
+            }
+            List<Path> found = new ArrayList<>();
+            try (DirectoryStream<Path> directory = Files.newDirectoryStream(input)) {
+                for (Path file : directory) {
+                    String name = file.getFileName().toString().toLowerCase();
+                    if (Files.isRegularFile(file) && (extension != null ? name.endsWith(extension)
+                            : FloorPlanFormat.planName(file) != null)) {
+                        found.add(file);
+                    }
+                }
+            }
+            found.sort(null);
+            files.addAll(found);
+        }
+        return files;
+    }
+
+    //File name without its extension, which names what is written for the file
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    //Work for one file, named for the report
+    private static class Job {
+        final String name;
+        final FileTask work;
+
+        Job(String name, FileTask work) {
+            this.name = name;
+            this.work = work;
+        }
+    }
+
+    interface FileTask {
+        Result call() throws IOException;
+    }
+
+    private static class Result {
+        final boolean passed;
+        final String message;
+
+        Result(boolean passed, String message) {
+            this.passed = passed;
+            this.message = message;
+        }
+    }
+}
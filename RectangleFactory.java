@@ -0,0 +1,86 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+///////////////////////////////////////////////////////////////////////////////////// Flyweight pattern
+//Interns booth types so booths that look the same share one BoothType. Types are global and never removed,
+//their ids are what compact BoothTable rows store.
+class RectangleFactory {
+    private static final Object lock = new Object();
+    //Open addressing table keyed on width, height and ARGB together. Readers probe whatever table is
+    //published without locking; BoothType fields are final, so a type seen in a slot is fully built.
+    private static volatile BoothType[] table = new BoothType[64];
+    private static volatile BoothType[] typesById = new BoothType[16];
+    private static int typeCount;
+
+    //Returns the shared type for a booth size and color, creating it on first use. Finding an existing
+    //type takes no lock and allocates nothing.
+    public static BoothType getType(int width, int height, Color color) {
+        int argb = color.getRGB();
+        BoothType type = find(table, width, height, argb);
+        return type != null ? type : intern(width, height, color, argb);
+    }
+
+    //Type for an id taken from an existing booth, safe to call from any thread without locking
+    public static BoothType getType(int id) {
+        return typesById[id];
+    }
+
+    public CustomRectangle getRectangle(int width, int height, Color color) {
+        return new CustomRectangle(getType(width, height, color));
+    }
+
+    private static BoothType find(BoothType[] slots, int width, int height, int argb) {
+        int mask = slots.length - 1;
+        for (int slot = hash(width, height, argb) & mask; ; slot = (slot + 1) & mask) {
+            BoothType type = slots[slot];
+            if (type == null || (type.width == width && type.height == height && type.argb == argb)) {
+                return type;
+            }
+        }
+    }
+
+    private static BoothType intern(int width, int height, Color color, int argb) {
+        synchronized (lock) {
+            BoothType type = find(table, width, height, argb);
+            if (type != null) {
+                return type;
+            }
+            type = new BoothType(typeCount, width, height, color);
+            BoothType[] byId = typesById;
+            if (typeCount == byId.length) {
+                byId = Arrays.copyOf(byId, typeCount * 2);
+            }
+            byId[typeCount++] = type;
+            typesById = byId; // Publishes the new id before the type can be found by its key
+            //Kept at most half full; a grown table is filled completely before it is published
+            BoothType[] slots = table;
+            if (typeCount * 2 > slots.length) {
+                BoothType[] grown = new BoothType[slots.length * 2];
+                for (BoothType existing : slots) {
+                    if (existing != null) {
+                        place(grown, existing);
+                    }
+                }
+                slots = grown;
+            }
+            place(slots, type);
+            table = slots;
+            return type;
+        }
+    }
+
+    private static void place(BoothType[] slots, BoothType type) {
+        int mask = slots.length - 1;
+        int slot = hash(type.width, type.height, type.argb) & mask;
+        while (slots[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = type;
+    }
+
+    private static int hash(int width, int height, int argb) {
+        int h = width * 0x9E3779B1 + height;
+        h = h * 0x85EBCA6B + argb;
+        return h ^ (h >>> 16);
+    }
+}
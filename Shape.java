@@ -0,0 +1,8 @@
+import java.awt.Graphics;
+
+//////////////////////////////////////////////////////////////// Expert Pattern
+interface Shape extends Iterable<Shape> {
+    void draw(Graphics g);
+    boolean intersects(Shape other);
+    void setPosition(int x, int y);
+}
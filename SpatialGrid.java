@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+//////////////////////////////////////////////////////////////////////////////// Spatial index
+//Uniform grid over booth rectangles. Each booth is registered in every cell it covers, so a point
+//or area query only has to look at the few cells under it instead of the whole floor plan.
+class SpatialGrid {
+    static final int DEFAULT_CELL_SIZE = 64;
+
+    private final int cellSize;
+    private long[] keys;
+    private Bucket[] buckets;
+    private int used;
+    private int size;
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        clear();
+    }
+
+    //Registers a booth under its current position
+    public void insert(CustomRectangle rect) {
+        int cx0 = cellOf(rect.x), cy0 = cellOf(rect.y);
+        int cx1 = cellOf(rect.x + rect.getWidth()), cy1 = cellOf(rect.y + rect.getHeight());
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                bucketFor(cx, cy, true).add(rect);
+            }
+        }
+        size++;
+    }
+
+    //Unregisters a booth, must be called before its position changes
+    public boolean remove(CustomRectangle rect) {
+        int cx0 = cellOf(rect.x), cy0 = cellOf(rect.y);
+        int cx1 = cellOf(rect.x + rect.getWidth()), cy1 = cellOf(rect.y + rect.getHeight());
+        boolean removed = false;
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                Bucket bucket = bucketFor(cx, cy, false);
+                if (bucket != null && bucket.remove(rect)) {
+                    removed = true;
+                }
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        keys = new long[16];
+        buckets = new Bucket[16];
+        used = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    //Returns the booth containing the point that is drawn last, so on top, edges included
+    public CustomRectangle topmostAt(int x, int y) {
+        Bucket bucket = bucketFor(cellOf(x), cellOf(y), false);
+        if (bucket == null) {
+            return null;
+        }
+        CustomRectangle best = null;
+        for (int i = 0; i < bucket.size; i++) {
+            CustomRectangle rect = bucket.items[i];
+            if (x >= rect.x && x <= rect.x + rect.getWidth() && y >= rect.y && y <= rect.y + rect.getHeight()
+                    && (best == null || rect.order > best.order)) {
+                best = rect;
+            }
+        }
+        return best;
+    }
+
+    //Checks whether any indexed booth other than ignore overlaps the area
+    public boolean intersects(int x, int y, int width, int height, CustomRectangle ignore) {
+        int cx0 = cellOf(x), cy0 = cellOf(y);
+        int cx1 = cellOf(x + width), cy1 = cellOf(y + height);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                Bucket bucket = bucketFor(cx, cy, false);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    CustomRectangle rect = bucket.items[i];
+                    if (rect != ignore && overlaps(rect, x, y, width, height)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    //Visits every booth overlapping the area exactly once
+    public void query(int x, int y, int width, int height, Consumer<CustomRectangle> visitor) {
+        int cx0 = cellOf(x), cy0 = cellOf(y);
+        int cx1 = cellOf(x + width), cy1 = cellOf(y + height);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                Bucket bucket = bucketFor(cx, cy, false);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    CustomRectangle rect = bucket.items[i];
+                    //A booth spanning several cells is only reported from the first cell shared with the query
+                    if (cx == Math.max(cx0, cellOf(rect.x)) && cy == Math.max(cy0, cellOf(rect.y))
+                            && overlaps(rect, x, y, width, height)) {
+                        visitor.accept(rect);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean overlaps(CustomRectangle rect, int x, int y, int width, int height) {
+        return !(rect.x + rect.getWidth() <= x || x + width <= rect.x
+                || rect.y + rect.getHeight() <= y || y + height <= rect.y);
+    }
+
+    private int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    //Open addressing lookup so hot queries do not box cell keys
+    private Bucket bucketFor(int cx, int cy, boolean create) {
+        long key = ((long) cx << 32) | (cy & 0xffffffffL);
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (buckets[slot] != null) {
+            if (keys[slot] == key) {
+                return buckets[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        if ((used + 1) * 2 > keys.length) {
+            grow();
+            return bucketFor(cx, cy, true);
+        }
+        keys[slot] = key;
+        buckets[slot] = new Bucket();
+        used++;
+        return buckets[slot];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Bucket[] oldBuckets = buckets;
+        keys = new long[oldKeys.length * 2];
+        buckets = new Bucket[oldBuckets.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldBuckets[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (buckets[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                buckets[slot] = oldBuckets[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //Booths registered in one cell
+    private static final class Bucket {
+        CustomRectangle[] items = new CustomRectangle[4];
+        int size;
+
+        void add(CustomRectangle rect) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = rect;
+        }
+
+        boolean remove(CustomRectangle rect) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == rect) {
+                    items[i] = items[--size];
+                    items[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
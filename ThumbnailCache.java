@@ -0,0 +1,260 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+//////////////////////////////////////////////////////////////////////////////// Thumbnail cache
+//Preview images of saved plans for the landing page. Recently shown previews stay in a bounded LRU map in
+//memory; every preview is also kept as a PNG in saved_plans/.thumbnails, named after the plan and its
+//modified time, so a saved plan gets a new preview and the old file is dropped. Missing previews are made
+//on one background thread, newest request first, so the rows scrolled to last come up first. Binary plans
+//are drawn straight from their streamed booth records, without building a plan.
+class ThumbnailCache {
+    static final int SIZE = 48;
+    static final String DIRECTORY = ".thumbnails";
+    private static final int MEMORY_ENTRIES = 512; // About 9 MB of previews
+    private static ThumbnailCache shared;
+
+    private final Path directory;
+    //Guarded by this, like the queue
+    private final Map<String, BufferedImage> memory;
+    private final Deque<String> queue = new ArrayDeque<>();
+    private final Map<String, Request> requests = new HashMap<>(); // Queued or being made
+    private static BufferedImage placeholder; // Redrawn for each row, only touched on the event thread
+
+    //Previews of plans in a directory, keeping up to memoryEntries of them in memory
+    ThumbnailCache(Path directory, int memoryEntries) {
+        this.directory = directory;
+        memory = new LinkedHashMap<String, BufferedImage>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        Thread thread = new Thread(this::run, "plan-thumbnails");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized ThumbnailCache shared() {
+        if (shared == null) {
+            shared = new ThumbnailCache(FloorPlanFormat.PLAN_DIRECTORY.resolve(DIRECTORY), MEMORY_ENTRIES);
+        }
+        return shared;
+    }
+
+    //The preview if it is in memory. Otherwise null, and once the preview is loaded or drawn onReady runs
+    //on the event thread, typically to repaint the list asking for it.
+    public synchronized BufferedImage get(PlanCatalog.Entry entry, Runnable onReady) {
+        if (!entry.isReadable()) {
+            return null;
+        }
+        String key = key(entry);
+        BufferedImage image = memory.get(key);
+        if (image != null) {
+            return image;
+        }
+        Request request = requests.get(key);
+        if (request == null) {
+            requests.put(key, new Request(entry, onReady));
+        } else {
+            request.callbacks.add(onReady);
+            if (!queue.remove(key)) {
+                return null; // Being made right now, the callback is run when it is done
+            }
+            //Asked for again, moves to the front
+        }
+        queue.addFirst(key);
+        notifyAll();
+        return null;
+    }
+
+    //Stand-in drawn from the catalog's coverage grid until the preview is ready. One image is shared and
+    //redrawn by every call, so it is only good until the next one: list cell renderers paint it right away.
+    public static BufferedImage placeholder(PlanCatalog.Entry entry) {
+        if (placeholder == null) {
+            placeholder = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        }
+        BufferedImage image = placeholder;
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, SIZE, SIZE);
+        int cell = SIZE / PlanCatalog.THUMBNAIL_SIZE;
+        for (int row = 0; row < PlanCatalog.THUMBNAIL_SIZE; row++) {
+            for (int column = 0; column < PlanCatalog.THUMBNAIL_SIZE; column++) {
+                int shade = 255 - entry.coverage(column, row) * 3 / 4;
+                g.setColor(new Color(shade, shade, shade));
+                g.fillRect(column * cell, row * cell, cell, cell);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static String key(PlanCatalog.Entry entry) {
+        return entry.name + "@" + entry.modified;
+    }
+
+    private void run() {
+        while (true) {
+            Request request;
+            String key;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                key = queue.removeFirst();
+                request = requests.get(key);
+            }
+            if (request == null) {
+                continue;
+            }
+            BufferedImage image = load(request.entry, key);
+            List<Runnable> callbacks;
+            synchronized (this) {
+                requests.remove(key);
+                if (image != null) {
+                    memory.put(key, image);
+                }
+                callbacks = request.callbacks;
+            }
+            if (image != null) {
+                for (Runnable callback : callbacks) {
+                    SwingUtilities.invokeLater(callback);
+                }
+            }
+        }
+    }
+
+    //Reads the preview from disk, or draws it and stores it there; null when the plan cannot be read
+    private BufferedImage load(PlanCatalog.Entry entry, String key) {
+        Path file = directory.resolve(key + ".png");
+        try {
+            if (Files.exists(file)) {
+                BufferedImage image = ImageIO.read(file.toFile());
+                if (image != null) {
+                    return image;
+                }
+            }
+        } catch (IOException e) {
+            // Drawn again below
+        }
+        BufferedImage image;
+        try {
+            image = render(entry);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        store(entry, file, image);
+        return image;
+    }
+
+    private void store(PlanCatalog.Entry entry, Path file, BufferedImage image) {
+        Path temp = file.resolveSibling(file.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            ImageIO.write(image, "png", temp.toFile());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            //Previews of earlier saves of the plan are stale now
+            String prefix = entry.name + "@";
+            List<Path> stale = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    path -> path.getFileName().toString().startsWith(prefix) && !path.equals(file))) {
+                for (Path old : files) {
+                    String suffix = old.getFileName().toString().substring(prefix.length());
+                    if (suffix.matches("\\d+\\.png")) {
+                        stale.add(old);
+                    }
+                }
+            }
+            for (Path old : stale) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException e) {
+            // The preview is still cached in memory, it is drawn again next time the application starts
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // Left for the next write of this preview to replace
+            }
+        }
+    }
+
+    //Draws the plan scaled into the square, blending each pixel by how much of it the booths cover, so
+    //booths smaller than a pixel still show as a tint rather than disappearing
+    static BufferedImage render(PlanCatalog.Entry entry) throws IOException {
+        double extent = Math.max(1, Math.max((long) entry.maxX - entry.minX, (long) entry.maxY - entry.minY));
+        double scale = SIZE / extent;
+        double[] coverage = new double[SIZE * SIZE];
+        double[] red = new double[SIZE * SIZE];
+        double[] green = new double[SIZE * SIZE];
+        double[] blue = new double[SIZE * SIZE];
+        BoothTable.Visitor splat = (x, y, type) -> {
+            double left = (x - entry.minX) * scale, top = (y - entry.minY) * scale;
+            double right = left + type.width * scale, bottom = top + type.height * scale;
+            int argb = type.getArgb();
+            for (int py = Math.max(0, (int) top); py < Math.min(SIZE, Math.ceil(bottom)); py++) {
+                double rowShare = Math.min(bottom, py + 1) - Math.max(top, py);
+                for (int px = Math.max(0, (int) left); px < Math.min(SIZE, Math.ceil(right)); px++) {
+                    double share = rowShare * (Math.min(right, px + 1) - Math.max(left, px));
+                    int pixel = py * SIZE + px;
+                    coverage[pixel] += share;
+                    red[pixel] += share * (argb >> 16 & 0xFF);
+                    green[pixel] += share * (argb >> 8 & 0xFF);
+                    blue[pixel] += share * (argb & 0xFF);
+                }
+            }
+        };
+        if (entry.file.getFileName().toString().endsWith(FloorPlanFormat.EXTENSION)) {
+            FloorPlanFormat.scan(entry.file, splat);
+        } else {
+            FloorPlanFormat.readLegacy(entry.file).forEachBooth(splat);
+        }
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int pixel = 0; pixel < coverage.length; pixel++) {
+            double covered = Math.min(1, coverage[pixel]);
+            int r = 255, g = 255, b = 255;
+            if (coverage[pixel] > 0) {
+                r = (int) Math.round(255 * (1 - covered) + red[pixel] / coverage[pixel] * covered);
+                g = (int) Math.round(255 * (1 - covered) + green[pixel] / coverage[pixel] * covered);
+                b = (int) Math.round(255 * (1 - covered) + blue[pixel] / coverage[pixel] * covered);
+            }
+            image.setRGB(pixel % SIZE, pixel / SIZE, r << 16 | g << 8 | b);
+        }
+        return image;
+    }
+
+    //A preview waiting to be made, and everyone to tell when it is
+    private static class Request {
+        final PlanCatalog.Entry entry;
+        final List<Runnable> callbacks = new ArrayList<>();
+
+        Request(PlanCatalog.Entry entry, Runnable onReady) {
+            this.entry = entry;
+            callbacks.add(onReady);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+//////////////////////////////////////////////////////////////////////////////// Viewport
+//Maps plan (world) coordinates to the drawing area: screen = (world - origin) * scale
+class Viewport {
+    static final double MIN_SCALE = 0.005;
+    static final double MAX_SCALE = 8.0;
+    //Below this scale booths are too small to tell apart and are drawn as density blocks
+    static final double DETAIL_SCALE = 0.15;
+
+    private double scale = 1.0;
+    private double originX;
+    private double originY;
+    private int version; // Bumped on every change so cached renderings know when to redraw
+
+    public double getScale() {
+        return scale;
+    }
+
+    public boolean isDetailed() {
+        return scale >= DETAIL_SCALE;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public double toWorldX(double screenX) {
+        return screenX / scale + originX;
+    }
+
+    public double toWorldY(double screenY) {
+        return screenY / scale + originY;
+    }
+
+    public double toScreenX(double worldX) {
+        return (worldX - originX) * scale;
+    }
+
+    public double toScreenY(double worldY) {
+        return (worldY - originY) * scale;
+    }
+
+    //World area shown in a drawing area of the given size
+    public Rectangle visibleWorld(int width, int height) {
+        int left = (int) Math.floor(originX);
+        int top = (int) Math.floor(originY);
+        return new Rectangle(left, top, (int) Math.ceil(toWorldX(width)) - left, (int) Math.ceil(toWorldY(height)) - top);
+    }
+
+    //Screen area covering a world rectangle, rounded outwards
+    public Rectangle toScreen(Rectangle world) {
+        int left = (int) Math.floor(toScreenX(world.x));
+        int top = (int) Math.floor(toScreenY(world.y));
+        int right = (int) Math.ceil(toScreenX(world.x + world.width));
+        int bottom = (int) Math.ceil(toScreenY(world.y + world.height));
+        return new Rectangle(left - 1, top - 1, right - left + 2, bottom - top + 2);
+    }
+
+    //Sets up g so that drawing in world coordinates lands in the right place on screen
+    public void apply(Graphics2D g) {
+        g.scale(scale, scale);
+        g.translate(-originX, -originY);
+    }
+
+    //Moves the view by a distance in screen pixels
+    public void pan(double screenDx, double screenDy) {
+        originX -= screenDx / scale;
+        originY -= screenDy / scale;
+        version++;
+    }
+
+    //Zooms by factor keeping the world point under the screen position fixed
+    public void zoomAt(double screenX, double screenY, double factor) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        originX = worldX - screenX / scale;
+        originY = worldY - screenY / scale;
+        version++;
+    }
+
+    public void reset() {
+        scale = 1.0;
+        originX = 0;
+        originY = 0;
+        version++;
+    }
+}
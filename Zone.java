@@ -0,0 +1,83 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+//////////////////////////////////////////////////////////////////////////////// Zones
+//A named part of a plan, such as a hall, an aisle or a pavilion, held by the plan as a nested FloorPlan.
+//Its booths are indexed and stored like any plan's, and a zone can hold zones of its own. The plan holding
+//a zone skips it as a whole for hit-tests, overlap checks and drawing away from the zone's bounds, which the
+//zone keeps up to date as its booths change, so a plan split into many halls costs no more to query than
+//the halls that are actually near.
+class Zone extends FloorPlan {
+    private static final long serialVersionUID = 1L;
+    static final int OUTLINE_MARGIN = 6; // Outline drawn around the booths, label inside it
+    private static final Color OUTLINE_COLOR = new Color(90, 110, 160);
+    private static final BasicStroke OUTLINE_STROKE = new BasicStroke(1, BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_MITER, 10, new float[] {6, 4}, 0);
+
+    private final String name;
+
+    Zone(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //Draws the booths, then a dashed outline around them with the zone's name
+    @Override
+    synchronized void drawContents(Graphics g, Set<? extends Shape> skip) {
+        super.drawContents(g, skip);
+        Rectangle bounds = getBounds();
+        if (bounds == null) {
+            return;
+        }
+        Graphics2D outline = (Graphics2D) g.create();
+        outline.setColor(OUTLINE_COLOR);
+        outline.setStroke(OUTLINE_STROKE);
+        outline.drawRect(bounds.x - OUTLINE_MARGIN, bounds.y - OUTLINE_MARGIN, bounds.width + 2 * OUTLINE_MARGIN,
+                bounds.height + 2 * OUTLINE_MARGIN);
+        outline.drawString(name, bounds.x - OUTLINE_MARGIN + 3, bounds.y - OUTLINE_MARGIN + 12);
+        outline.dispose();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    //Booths grouped into a new zone, kept by the edit history to undo and redo the grouping. Booths are named
+    //by position and type like the history's other edits, the zones by the objects the plan holds.
+    static final class Grouping {
+        final Zone zone;
+        final int[] booths; // x, y and type id of each booth
+        final Zone[] from; // Zone each booth was in before, null for the plan itself
+        //Zones the grouping left empty and dropped, in that order, and the plans that held them
+        final List<Zone> dropped = new ArrayList<>();
+        final List<FloorPlan> droppedFrom = new ArrayList<>();
+
+        Grouping(Zone zone, List<CustomRectangle> booths, Zone[] from) {
+            this.zone = zone;
+            this.booths = new int[booths.size() * 3];
+            for (int i = 0; i < booths.size(); i++) {
+                CustomRectangle shape = booths.get(i);
+                this.booths[3 * i] = shape.x;
+                this.booths[3 * i + 1] = shape.y;
+                this.booths[3 * i + 2] = shape.type.id;
+            }
+            this.from = from;
+        }
+    }
+
+    //Told where each zone's booths start and end while the booths of a plan are visited in order
+    interface Visitor {
+        void enter(Zone zone);
+        void exit(Zone zone);
+    }
+}
@@ -0,0 +1,175 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BoothTableTest {
+    private static final int AREA = 3000;
+    private static final BoothType[] TYPES = {
+            RectangleFactory.getType(10, 10, Color.RED), RectangleFactory.getType(40, 15, Color.BLUE),
+            RectangleFactory.getType(150, 90, Color.GREEN)};
+
+    //The table under test next to the same rows kept plainly, to check queries against a scan of every row
+    private static class Rows {
+        final BoothTable table = new BoothTable(0);
+        final List<Rectangle> booths = new ArrayList<>();
+        final BitSet read = new BitSet();
+
+        void add(Random random, int count) {
+            for (int i = 0; i < count; i++) {
+                BoothType type = TYPES[random.nextInt(TYPES.length)];
+                int x = random.nextInt(AREA) - 100, y = random.nextInt(AREA) - 100;
+                assertEquals(booths.size(), table.add(x, y, type, 0));
+                booths.add(new Rectangle(x, y, type.width, type.height));
+            }
+        }
+
+        int[] expected(Rectangle area) {
+            List<Integer> rows = new ArrayList<>();
+            for (int row = 0; row < booths.size(); row++) {
+                if (!read.get(row) && booths.get(row).intersects(area)) {
+                    rows.add(row);
+                }
+            }
+            return rows.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        //Random areas from single points to larger than the plan, where the table scans instead of using cells
+        void check(Random random) {
+            for (int i = 0; i < 200; i++) {
+                int size = i % 10 == 0 ? AREA * 2 : 1 + random.nextInt(300);
+                Rectangle area = new Rectangle(random.nextInt(AREA + 200) - 300, random.nextInt(AREA + 200) - 300,
+                        size, 1 + random.nextInt(size));
+                int[] expected = expected(area);
+                assertArrayEquals(expected, table.rowsIn(area.x, area.y, area.width, area.height), area.toString());
+                assertEquals(expected.length > 0, table.intersects(area.x, area.y, area.width, area.height));
+                List<Rectangle> visited = new ArrayList<>();
+                table.forEachIn(area.x, area.y, area.width, area.height,
+                        (x, y, type) -> visited.add(new Rectangle(x, y, type.width, type.height)));
+                assertEquals(expected.length, visited.size());
+                for (int row : expected) {
+                    assertTrue(visited.contains(booths.get(row)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void queriesMatchAScanOfEveryRow() {
+        Random random = new Random(11);
+        Rows rows = new Rows();
+        rows.add(random, 3000);
+        rows.check(random);
+    }
+
+    //Rows appended after the index was built are found by scanning them, and again once the index is rebuilt
+    @Test
+    void appendedRowsAreFound() {
+        Random random = new Random(12);
+        Rows rows = new Rows();
+        rows.add(random, 2000);
+        rows.check(random);
+
+        rows.add(random, BoothTable.UNINDEXED_ROWS - 24);
+        rows.check(random);
+        rows.add(random, 3000);
+        rows.check(random);
+    }
+
+    //Loading reads booths overlapping or touching the area, which queries and later loads then leave out
+    @Test
+    void loadedRowsAreLeftOut() {
+        Random random = new Random(13);
+        Rows rows = new Rows();
+        rows.add(random, 2000);
+
+        List<CustomRectangle> loaded = rows.table.load(500, 500, 400, 400);
+        int[] expected = rows.expected(new Rectangle(499, 499, 402, 402));
+        assertEquals(expected.length, loaded.size());
+        for (int i = 0; i < expected.length; i++) {
+            CustomRectangle booth = loaded.get(i);
+            assertEquals(expected[i], booth.order);
+            assertEquals(rows.booths.get(expected[i]),
+                    new Rectangle(booth.x, booth.y, booth.getWidth(), booth.getHeight()));
+            rows.read.set(expected[i]);
+        }
+        assertEquals(2000 - expected.length, rows.table.unloadedCount());
+        assertEquals(0, rows.table.load(500, 500, 400, 400).size());
+        rows.check(random);
+
+        assertEquals(2000 - expected.length, rows.table.loadAll().size());
+        assertEquals(0, rows.table.unloadedCount());
+        assertEquals(2000, rows.table.recordCount());
+    }
+
+    @Test
+    void materializedRowsAreAddedRead() {
+        BoothTable table = new BoothTable(0);
+        table.add(0, 0, TYPES[0], BoothTable.MATERIALIZED);
+        table.add(5, 5, TYPES[0], 0);
+
+        assertEquals(1, table.unloadedCount());
+        assertArrayEquals(new int[] {1}, table.rowsIn(0, 0, 20, 20));
+        assertEquals(1, table.loadAll().size());
+    }
+
+    @Test
+    void forEachVisitsUnreadRowsInOrder() {
+        BoothTable table = new BoothTable(0);
+        for (int i = 0; i < 10; i++) {
+            table.add(i * 20, 0, TYPES[0], 0);
+        }
+        table.load(40, 0, 10, 10);
+
+        List<Integer> visited = new ArrayList<>();
+        table.forEach(1, 6, (x, y, type) -> visited.add(x));
+        assertEquals(List.of(20, 60, 80, 100), visited);
+        visited.clear();
+        table.forEach(8, 100, (x, y, type) -> visited.add(x));
+        assertEquals(List.of(160, 180), visited);
+    }
+
+    //A snapshot reads the rows unread when it was taken, however the table goes on
+    @Test
+    void unreadRowsKeepTheirView() {
+        BoothTable table = new BoothTable(0);
+        for (int i = 0; i < 16; i++) {
+            table.add(i * 20, 0, TYPES[0], 0);
+        }
+        table.load(0, 0, 10, 10);
+        PlanSource.Rows unread = table.unread();
+
+        table.loadAll();
+        for (int i = 0; i < 100; i++) {
+            table.add(i, 100, TYPES[1], 0);
+        }
+
+        List<Integer> visited = new ArrayList<>();
+        unread.forEach(0, Integer.MAX_VALUE, (x, y, type) -> visited.add(x));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i < 16; i++) {
+            expected.add(i * 20);
+        }
+        assertEquals(expected, visited);
+    }
+
+    //Bounds cover every booth the table was given, read or not
+    @Test
+    void boundsCoverEveryRow() {
+        BoothTable table = new BoothTable(0);
+        assertNull(table.bounds());
+        table.add(-10, 5, TYPES[0], 0);
+        table.add(100, 200, TYPES[2], BoothTable.MATERIALIZED);
+        table.loadAll();
+
+        assertEquals(new Rectangle(-10, 5, 260, 285), table.bounds());
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DirtyRegionTest {
+    private static final int SIZE = 200;
+    private static final int BACKGROUND = Color.WHITE.getRGB();
+    private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE};
+
+    //Overlapping booths, half of them compacted into rows, so drawing order matters and both kinds are drawn
+    private static FloorPlan plan() {
+        Random random = new Random(3);
+        FloorPlan plan = new FloorPlan();
+        List<CustomRectangle> booths = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            CustomRectangle booth = new CustomRectangle(5 + random.nextInt(30), 5 + random.nextInt(30),
+                    COLORS[i % COLORS.length]);
+            booth.setPosition(random.nextInt(SIZE) - 20, random.nextInt(SIZE) - 20);
+            booths.add(booth);
+        }
+        plan.addAll(booths.subList(0, 150));
+        plan.compact();
+        plan.addAll(booths.subList(150, 300));
+        return plan;
+    }
+
+    private static BufferedImage draw(FloorPlan plan, Rectangle clip) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, SIZE, SIZE);
+        if (clip != null) {
+            g.clipRect(clip.x, clip.y, clip.width, clip.height);
+        }
+        plan.draw(g);
+        g.dispose();
+        return image;
+    }
+
+    //Repainting a region draws only the booths reaching into it, which must look the same as drawing them all
+    @Test
+    void clippedDrawingMatchesDrawingEverything() {
+        FloorPlan plan = plan();
+        BufferedImage full = draw(plan, null);
+        Random random = new Random(4);
+        for (int i = 0; i < 20; i++) {
+            Rectangle clip = new Rectangle(random.nextInt(SIZE), random.nextInt(SIZE), 1 + random.nextInt(60),
+                    1 + random.nextInt(60));
+            BufferedImage clipped = draw(plan, clip);
+            for (int y = clip.y; y < Math.min(SIZE, clip.y + clip.height); y++) {
+                for (int x = clip.x; x < Math.min(SIZE, clip.x + clip.width); x++) {
+                    assertEquals(full.getRGB(x, y), clipped.getRGB(x, y), x + "," + y + " in " + clip);
+                }
+            }
+        }
+    }
+
+    //A dragged booth's repaint region is its paint bounds before and after, which must hold all it draws
+    @Test
+    void paintBoundsHoldEverythingABoothDraws() {
+        CustomRectangle booth = new CustomRectangle(30, 20, Color.BLUE);
+        booth.setPosition(50, 60);
+        booth.setSelected(true);
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, SIZE, SIZE);
+        booth.draw(g);
+        g.dispose();
+
+        Rectangle bounds = booth.getPaintBounds();
+        Rectangle painted = null;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (image.getRGB(x, y) != BACKGROUND) {
+                    assertTrue(bounds.contains(x, y), x + "," + y + " outside " + bounds);
+                    painted = painted == null ? new Rectangle(x, y, 1, 1) : painted.union(new Rectangle(x, y, 1, 1));
+                }
+            }
+        }
+        assertEquals(bounds, painted);
+    }
+}
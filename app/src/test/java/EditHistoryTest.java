@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import org.junit.jupiter.api.Test;
+
+class EditHistoryTest {
+    private static final int HALL = 100;
+
+    @Test
+    void deletingABoothTwiceLeavesOneEdit() {
+        FloorPlanController controller = new FloorPlanController();
+        controller.addShape(10, 10, Color.RED, HALL, HALL);
+        CustomRectangle booth = controller.getShapeAt(5, 5);
+
+        controller.deleteShape(booth);
+        controller.deleteShape(booth);
+
+        assertTrue(controller.undo());
+        assertEquals(1, controller.getFloorPlan().size());
+        assertTrue(controller.undo());
+        assertEquals(0, controller.getFloorPlan().size());
+        assertFalse(controller.undo());
+    }
+
+    //Past the depth the oldest edits are forgotten, the newer ones still undo in order
+    @Test
+    void oldestEditsAreEvictedPastTheDepth() {
+        FloorPlanController controller = new FloorPlanController();
+        controller.setHistoryDepth(3);
+        for (int i = 0; i < 5; i++) {
+            controller.addShape(10, 10, Color.RED, HALL, HALL);
+        }
+
+        int undone = 0;
+        while (controller.undo()) {
+            undone++;
+        }
+
+        assertEquals(3, undone);
+        assertEquals(2, controller.getFloorPlan().size());
+        while (controller.redo()) {
+            undone--;
+        }
+        assertEquals(0, undone);
+        assertEquals(5, controller.getFloorPlan().size());
+    }
+
+    //Shrinking the depth keeps the latest edits and drops those that were undone
+    @Test
+    void shrinkingTheDepthKeepsTheLatestEdits() {
+        FloorPlanController controller = new FloorPlanController();
+        for (int i = 0; i < 4; i++) {
+            controller.addShape(10, 10, Color.RED, HALL, HALL);
+        }
+        controller.undo();
+
+        controller.setHistoryDepth(2);
+
+        assertFalse(controller.redo());
+        assertTrue(controller.undo());
+        assertTrue(controller.undo());
+        assertFalse(controller.undo());
+        assertEquals(1, controller.getFloorPlan().size());
+    }
+}
@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FloorPlanFormatTest {
+    @TempDir
+    Path directory;
+
+    //Booths of two colors in the plan itself, and two in a zone
+    private static FloorPlan plan() {
+        FloorPlan plan = new FloorPlan();
+        List<CustomRectangle> zoned = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            CustomRectangle booth = new CustomRectangle(10 + i, 10, i % 2 == 0 ? Color.RED : new Color(0, 0, 255, 90));
+            booth.setPosition(i * 30, 5);
+            plan.add(booth);
+            if (i >= 4) {
+                zoned.add(booth);
+            }
+        }
+        Zone zone = new Zone("Hall A");
+        plan.add(zone);
+        zone.addAll(plan.removeAll(zoned));
+        return plan;
+    }
+
+    private static void assertSameBooths(PlanSnapshot expected, PlanSnapshot actual) {
+        assertEquals(expected.size, actual.size);
+        assertArrayEquals(expected.x, actual.x);
+        assertArrayEquals(expected.y, actual.y);
+        assertArrayEquals(expected.width, actual.width);
+        assertArrayEquals(expected.height, actual.height);
+        assertArrayEquals(expected.argb, actual.argb);
+        assertArrayEquals(expected.zoneNames, actual.zoneNames);
+        assertArrayEquals(expected.zoneCount, actual.zoneCount);
+    }
+
+    @Test
+    void binaryPlansReadBackTheSame() throws IOException {
+        FloorPlan plan = plan();
+        Path file = directory.resolve("hall" + FloorPlanFormat.EXTENSION);
+
+        FloorPlanFormat.write(plan, file);
+
+        assertSameBooths(plan.snapshot(), FloorPlanFormat.read(file).snapshot());
+        assertSameBooths(plan.snapshot(), FloorPlanFormat.open(file).snapshot());
+    }
+
+    @Test
+    void legacyPlansMigrateToTheBinaryFormat() throws IOException {
+        FloorPlan plan = plan();
+        Path legacy = directory.resolve("hall" + FloorPlanFormat.LEGACY_EXTENSION);
+        FloorPlanFormat.writeLegacy(plan, legacy);
+
+        Path migrated = FloorPlanFormat.migrate(legacy);
+
+        assertSameBooths(plan.snapshot(), FloorPlanFormat.read(migrated).snapshot());
+    }
+
+    //Anything but the classes a plan is made of is refused before it is built
+    @Test
+    void legacyReadRejectsOtherClasses() throws IOException {
+        Path file = directory.resolve("hall" + FloorPlanFormat.LEGACY_EXTENSION);
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(new Gadget());
+        }
+        Gadget.built = false;
+
+        assertThrows(IOException.class, () -> FloorPlanFormat.readLegacy(file));
+        assertFalse(Gadget.built);
+    }
+
+    //Stands in for a class whose readObject does harm
+    static final class Gadget implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static boolean built;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            built = true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FloorPlanTest {
+    private static CustomRectangle booth(int x, int y) {
+        CustomRectangle shape = new CustomRectangle(10, 10, Color.RED);
+        shape.setPosition(x, y);
+        return shape;
+    }
+
+    @Test
+    void removeAllTakesBoothsOutOfThePlanAndItsZones() {
+        FloorPlan plan = new FloorPlan();
+        List<CustomRectangle> booths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            booths.add(booth(i * 20, 0));
+        }
+        plan.addAll(booths.subList(0, 5));
+        Zone zone = new Zone("Hall A");
+        plan.add(zone);
+        zone.addAll(booths.subList(5, 10));
+        CustomRectangle stranger = booth(500, 500);
+
+        List<CustomRectangle> removed = plan.removeAll(Arrays.asList(booths.get(1), stranger, booths.get(7)));
+
+        assertEquals(Arrays.asList(booths.get(1), booths.get(7)), removed);
+        assertEquals(8, plan.size());
+        assertEquals(4, zone.size());
+        assertNull(plan.shapeAt(25, 5));
+        assertNull(plan.shapeAt(145, 5));
+        assertSame(booths.get(2), plan.shapeAt(45, 5));
+    }
+
+    @Test
+    void groupDeleteIsUndoneInOneStep() {
+        FloorPlanController controller = new FloorPlanController();
+        for (int i = 0; i < 20; i++) {
+            controller.addShape(10, 10, Color.BLUE, 100, 100);
+        }
+        controller.selectArea(0, 0, 100, 20, false);
+        int selected = controller.getSelection().size();
+
+        controller.deleteSelection();
+        assertEquals(20 - selected, controller.getFloorPlan().size());
+        controller.undo();
+        assertEquals(20, controller.getFloorPlan().size());
+    }
+}
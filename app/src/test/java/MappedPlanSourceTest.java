@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedPlanSourceTest {
+    @TempDir
+    Path directory;
+
+    private Path writePlan() throws IOException {
+        FloorPlan plan = new FloorPlan();
+        for (int i = 0; i < 4; i++) {
+            CustomRectangle booth = new CustomRectangle(10, 10, i % 2 == 0 ? Color.RED : Color.BLUE);
+            booth.setPosition(i * 20, 0);
+            plan.add(booth);
+        }
+        Path file = directory.resolve("plan" + FloorPlanFormat.EXTENSION);
+        FloorPlanFormat.writeAtomically(plan.snapshot(), file);
+        return file;
+    }
+
+    //Offset of the payload of the file's section with the tag
+    private static int section(ByteBuffer data, int tag) {
+        int position = 8;
+        while (data.getInt(position) != tag) {
+            position += 12 + (int) data.getLong(position + 4);
+        }
+        return position + 12;
+    }
+
+    private static void patch(Path file, int tag, int offset, int value) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        data.putInt(section(data, tag) + offset, value);
+        Files.write(file, data.array());
+    }
+
+    @Test
+    void mapsAnIntactPlan() throws IOException {
+        assertEquals(4, MappedPlanSource.map(writePlan()).recordCount());
+    }
+
+    //The editor sizes the hall from the extent, which must not read the booths still in the file
+    @Test
+    void extentComesFromTheHeaderWithoutReadingBooths() throws IOException {
+        MappedPlanSource source = MappedPlanSource.map(writePlan());
+        FloorPlan plan = new FloorPlan();
+        plan.setSource(source);
+
+        assertEquals(new Rectangle(0, 0, 70, 10), plan.getExtent());
+        assertEquals(4, source.unloadedCount());
+        assertEquals(plan.getBounds(), plan.getExtent());
+    }
+
+    //Booth records are only checked as they are read, opening stays independent of the booth count
+    @Test
+    void rejectsABoothColorOutsideThePaletteWhenRead() throws IOException {
+        Path file = writePlan();
+        patch(file, FloorPlanFormat.BOTH, 3 * FloorPlanFormat.RECORD_SIZE + 16, 2);
+        MappedPlanSource source = MappedPlanSource.map(file);
+        assertThrows(UncheckedIOException.class, source::loadAll);
+    }
+
+    @Test
+    void rejectsATileRunningPastTheEntries() throws IOException {
+        Path file = writePlan();
+        patch(file, FloorPlanFormat.TILE, 16 + 8, 3); // First entry of the first tile, which holds all four
+        assertThrows(IOException.class, () -> MappedPlanSource.map(file));
+    }
+
+    @Test
+    void rejectsATileTableOfTheWrongLength() throws IOException {
+        Path file = writePlan();
+        patch(file, FloorPlanFormat.TILE, 12, 1 << 28); // Tile count
+        assertThrows(IOException.class, () -> MappedPlanSource.map(file));
+    }
+
+    @Test
+    void rejectsAnEntryOutsideTheBoothTableWhenRead() throws IOException {
+        Path file = writePlan();
+        patch(file, FloorPlanFormat.TILE, 16 + 16, 4); // Entries follow the one tile
+        MappedPlanSource source = MappedPlanSource.map(file);
+        assertThrows(UncheckedIOException.class, () -> source.load(0, 0, 10, 10));
+    }
+
+    @Test
+    void rejectsAPaletteCountThatDoesNotMatchItsSection() throws IOException {
+        Path file = writePlan();
+        patch(file, FloorPlanFormat.PALT, 0, 1 << 20);
+        assertThrows(IOException.class, () -> MappedPlanSource.map(file));
+    }
+
+    //A snapshot reads the booths still in the file straight from it, leaving them unread by the plan
+    @Test
+    void snapshotLeavesBoothsInTheFile() throws IOException {
+        MappedPlanSource source = MappedPlanSource.map(writePlan());
+        FloorPlan plan = new FloorPlan();
+        plan.setSource(source);
+
+        PlanSnapshot snapshot = plan.snapshot();
+
+        assertEquals(4, source.unloadedCount());
+        assertEquals(4, snapshot.size);
+        assertEquals(40, snapshot.x[2]);
+        assertEquals(Color.BLUE.getRGB(), snapshot.argb[3]);
+    }
+
+    //Booths read into objects and moved since take their place in drawing order among the unread ones
+    @Test
+    void snapshotMergesMovedBoothsInDrawingOrder() throws IOException {
+        FloorPlan plan = new FloorPlan();
+        plan.setSource(MappedPlanSource.map(writePlan()));
+        CustomRectangle booth = plan.findBooth(20, 0, 10, 10, Color.BLUE.getRGB());
+        plan.move(booth, 20, 30);
+
+        PlanSnapshot snapshot = plan.snapshot();
+
+        assertEquals(4, snapshot.size);
+        assertEquals(30, snapshot.y[1]);
+        assertEquals(0, snapshot.y[2]);
+        assertEquals(60, snapshot.x[3]);
+    }
+}
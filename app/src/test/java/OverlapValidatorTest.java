@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OverlapValidatorTest {
+    private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE};
+
+    //Booths given as x, y, width and height, four values each
+    private static PlanSnapshot plan(int... booths) {
+        FloorPlan plan = new FloorPlan();
+        List<CustomRectangle> shapes = new ArrayList<>();
+        for (int i = 0; i < booths.length; i += 4) {
+            CustomRectangle shape = new CustomRectangle(booths[i + 2], booths[i + 3], COLORS[i / 4 % COLORS.length]);
+            shape.setPosition(booths[i], booths[i + 1]);
+            shapes.add(shape);
+        }
+        plan.addAll(shapes);
+        return plan.snapshot();
+    }
+
+    private static PlanSnapshot randomPlan(long seed, int booths, int area, int maxSize) {
+        Random random = new Random(seed);
+        int[] values = new int[4 * booths];
+        for (int i = 0; i < values.length; i += 4) {
+            values[i] = random.nextInt(area) - area / 4;
+            values[i + 1] = random.nextInt(area) - area / 4;
+            values[i + 2] = random.nextInt(maxSize + 1);
+            values[i + 3] = random.nextInt(maxSize + 1);
+        }
+        return plan(values);
+    }
+
+    //Compares every pair, the oracle the validator must agree with
+    private static List<String> bruteForce(PlanSnapshot plan) {
+        List<String> pairs = new ArrayList<>();
+        for (int a = 0; a < plan.size; a++) {
+            for (int b = a + 1; b < plan.size; b++) {
+                if (plan.width[a] > 0 && plan.height[a] > 0 && plan.width[b] > 0 && plan.height[b] > 0
+                        && plan.x[a] < plan.x[b] + plan.width[b] && plan.x[b] < plan.x[a] + plan.width[a]
+                        && plan.y[a] < plan.y[b] + plan.height[b] && plan.y[b] < plan.y[a] + plan.height[a]) {
+                    pairs.add(a + "-" + b);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static List<String> validate(PlanSnapshot plan) {
+        OverlapValidator.Conflicts conflicts = OverlapValidator.validate(plan);
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < conflicts.size(); i++) {
+            pairs.add(conflicts.first(i) + "-" + conflicts.second(i));
+        }
+        return pairs;
+    }
+
+    @Test
+    void agreesWithComparingEveryPair() {
+        for (long seed = 0; seed < 50; seed++) {
+            PlanSnapshot plan = randomPlan(seed, 300, 400, 40);
+            assertEquals(bruteForce(plan), validate(plan), "seed " + seed);
+        }
+    }
+
+    //Enough booths that the strips are split between fork-join tasks
+    @Test
+    void agreesWithComparingEveryPairAcrossTasks() {
+        PlanSnapshot plan = randomPlan(7, 20_000, 4000, 30);
+        List<String> expected = bruteForce(plan);
+        assertEquals(expected, validate(plan));
+        assertTrue(expected.size() > 1000);
+    }
+
+    //A tall booth lies in many strips and must still be reported once per booth it overlaps
+    @Test
+    void reportsABoothSpanningStripsOnce() {
+        int[] booths = new int[4 * 101];
+        booths[2] = 10;
+        booths[3] = 2000;
+        for (int i = 1; i <= 100; i++) {
+            booths[4 * i] = 5;
+            booths[4 * i + 1] = (i - 1) * 20 + 3;
+            booths[4 * i + 2] = 10;
+            booths[4 * i + 3] = 10;
+        }
+        List<String> pairs = validate(plan(booths));
+
+        assertEquals(100, pairs.size());
+        assertEquals("0-1", pairs.get(0));
+        assertEquals("0-100", pairs.get(99));
+    }
+
+    //Overlaps starting exactly where a strip starts belong to that strip, and touching edges are no overlap
+    @Test
+    void handlesOverlapsOnStripBoundaries() {
+        PlanSnapshot plan = plan(0, 0, 10, 10, 0, 10, 10, 10, 5, 10, 10, 10, 10, 0, 10, 20, 0, 20, 10, 10);
+        assertEquals(bruteForce(plan), validate(plan));
+        assertEquals(List.of("1-2", "2-3"), validate(plan));
+    }
+
+    @Test
+    void ignoresBoothsWithoutArea() {
+        PlanSnapshot plan = plan(0, 0, 20, 20, 5, 5, 0, 10, 5, 5, 10, 0, 5, 5, 0, 0, 10, 10, 5, 5);
+        assertEquals(List.of("0-4"), validate(plan));
+    }
+
+    @Test
+    void findsNothingInPlansTooSmallToOverlap() {
+        assertEquals(List.of(), validate(plan()));
+        assertEquals(List.of(), validate(plan(0, 0, 10, 10)));
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PlacementEngineTest {
+    private static final int HALL = 100;
+
+    //A delete leaves the free space incomplete, so a batch that runs out of slots rebuilds it in the middle
+    //of placing. The booths placed so far are not in the plan yet and must stay taken.
+    @Test
+    void batchAfterDeleteDoesNotOverlap() {
+        FloorPlanController controller = new FloorPlanController();
+        controller.addShape(10, 10, Color.RED, HALL, HALL);
+        controller.deleteShape(controller.getShapeAt(5, 5));
+        List<BoothRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(new BoothRequest(10, 10, Color.BLUE));
+        }
+
+        FloorPlanController.BatchResult result = controller.addShapes(requests, HALL, HALL);
+
+        assertEquals(0, OverlapValidator.validate(controller.getFloorPlan().snapshot()).size());
+        assertEquals(100, result.getPlaced().size());
+        assertEquals(100, result.getUnplaced().size());
+    }
+
+    //Space handed back by deletes is found again through the free space index, down to the last slot
+    @Test
+    void deletedSlotsAreFilledAgain() {
+        FloorPlanController controller = new FloorPlanController();
+        for (int i = 0; i < 100; i++) {
+            controller.addShape(10, 10, Color.RED, HALL, HALL);
+        }
+        for (int i = 0; i < 100; i += 7) {
+            controller.deleteShape(controller.getShapeAt(i % 10 * 10 + 5, i / 10 * 10 + 5));
+        }
+        int refilled = 0;
+        while (controller.addShape(10, 10, Color.BLUE, HALL, HALL)) {
+            refilled++;
+        }
+
+        assertEquals(15, refilled);
+        assertEquals(100, controller.getFloorPlan().size());
+        assertEquals(0, OverlapValidator.validate(controller.getFloorPlan().snapshot()).size());
+    }
+
+    //A batch turns only its own booths into rows, booths the editor held before stay the plan's objects
+    @Test
+    void batchKeepsEarlierBooths() {
+        FloorPlanController controller = new FloorPlanController();
+        controller.addShape(10, 10, Color.RED, HALL, HALL);
+        CustomRectangle first = controller.getShapeAt(5, 5);
+        List<BoothRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            requests.add(new BoothRequest(10, 10, Color.BLUE));
+        }
+
+        controller.addShapes(requests, HALL, HALL);
+        controller.addShape(10, 10, Color.GREEN, HALL, HALL);
+        controller.addShapes(requests, HALL, HALL);
+
+        assertSame(first, controller.getShapeAt(5, 5));
+        assertEquals(62, controller.getFloorPlan().size());
+        assertEquals(0, OverlapValidator.validate(controller.getFloorPlan().snapshot()).size());
+        assertTrue(controller.undo());
+        assertEquals(32, controller.getFloorPlan().size());
+        assertSame(first, controller.getShapeAt(5, 5));
+    }
+
+    //Rows of many batches are found whether the row index covers them yet or not
+    @Test
+    void boothsOfEveryBatchAreFound() {
+        FloorPlanController controller = new FloorPlanController();
+        List<CustomRectangle> placed = new ArrayList<>();
+        for (int batch = 0; batch < 10; batch++) {
+            List<BoothRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                requests.add(new BoothRequest(10, 10, Color.BLUE));
+            }
+            placed.addAll(controller.addShapes(requests, 2000, 2000).getPlaced());
+        }
+
+        assertEquals(4000, controller.getFloorPlan().size());
+        for (CustomRectangle booth : placed) {
+            CustomRectangle found = controller.getShapeAt(booth.x + 5, booth.y + 5);
+            assertTrue(found != null && found.x == booth.x && found.y == booth.y, booth.x + "," + booth.y);
+        }
+    }
+}
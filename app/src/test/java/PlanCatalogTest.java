@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PlanCatalogTest {
+    private static final List<PlanCatalog.Entry> ENTRIES = List.of(
+            entry("Hall A", 10), entry("hall B north", 250), entry("Expo 2026", 1000), entry("Broken hall", -1));
+
+    private static PlanCatalog.Entry entry(String name, int booths) {
+        return new PlanCatalog.Entry(name, Path.of(name + FloorPlanFormat.EXTENSION), 0, 0, booths, 0, 0, 0, 0,
+                new byte[PlanCatalog.THUMBNAIL_SIZE * PlanCatalog.THUMBNAIL_SIZE]);
+    }
+
+    private static List<String> names(String query) {
+        List<String> names = new ArrayList<>();
+        for (PlanCatalog.Entry entry : PlanCatalog.filter(ENTRIES, query)) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    @Test
+    void namesMatchPartsIgnoringCase() {
+        assertEquals(List.of("Hall A", "hall B north", "Broken hall"), names("HALL"));
+        assertEquals(List.of("hall B north"), names("  north   hall "));
+        assertEquals(List.of(), names("south"));
+    }
+
+    @Test
+    void emptyQueriesMatchEverything() {
+        assertEquals(4, names("").size());
+        assertEquals(4, names("   ").size());
+    }
+
+    //Plans that could not be read have no booth count and never pass a comparison
+    @Test
+    void boothCountsAreCompared() {
+        assertEquals(List.of("hall B north", "Expo 2026"), names("booths>10"));
+        assertEquals(List.of("Hall A", "hall B north"), names("booths<1000"));
+        assertEquals(List.of("Expo 2026"), names("booths=1000"));
+        assertEquals(List.of("hall B north"), names("hall booths>10"));
+    }
+
+    //A word that only looks like a comparison is matched against names like any other
+    @Test
+    void malformedComparisonsAreNameWords() {
+        assertEquals(List.of(), names("booths>many"));
+        assertEquals(List.of(), names("booths>"));
+        assertEquals(List.of(), names("booths!5"));
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlanExporterTest {
+    @TempDir
+    Path directory;
+
+    private static PlanSnapshot grid(int columns, int rows, int spacing) {
+        FloorPlan plan = new FloorPlan();
+        for (int i = 0; i < columns * rows; i++) {
+            CustomRectangle booth = new CustomRectangle(4, 4, i % 2 == 0 ? Color.RED : Color.BLUE);
+            booth.setPosition(i % columns * spacing + 10, i / columns * spacing + 10);
+            plan.add(booth);
+        }
+        return plan.snapshot();
+    }
+
+    private static long uses(Path page) throws IOException {
+        try (Stream<String> lines = Files.lines(page)) {
+            return lines.filter(line -> line.startsWith("<use")).count();
+        }
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    //More booths than are held in memory, so the page is written from the spooled bucket and what is left
+    @Test
+    void spooledBoothsAllReachTheirPage() throws IOException {
+        Path target = directory.resolve("hall.svg");
+
+        assertEquals(1, PlanExporter.export(grid(300, 250, 8), target, 0, 0));
+
+        assertEquals(List.of(target), files());
+        assertEquals(300 * 250, uses(target));
+        assertTrue(Files.readString(target).endsWith("</svg>\n"));
+    }
+
+    @Test
+    void eachPageHoldsTheBoothsOnIt() throws IOException {
+        Path target = directory.resolve("hall.svg");
+
+        assertEquals(4, PlanExporter.export(grid(2, 2, 100), target, 100, 100));
+
+        List<Path> pages = files();
+        assertEquals(4, pages.size());
+        for (Path page : pages) {
+            assertEquals(1, uses(page), page.toString());
+            assertTrue(Files.readString(page).endsWith("</svg>\n"));
+        }
+    }
+}
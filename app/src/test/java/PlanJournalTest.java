@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlanJournalTest {
+    private static final String NAME = "hall";
+
+    @TempDir
+    Path directory;
+
+    private static void addBooth(FloorPlan plan, PlanJournal journal, int i) {
+        CustomRectangle booth = new CustomRectangle(10, 10, Color.RED);
+        booth.setPosition(i % 1000 * 10, i / 1000 * 10);
+        synchronized (plan) { // Edits journal themselves under the plan's lock
+            plan.add(booth);
+            journal.recordAdd(booth);
+        }
+    }
+
+    //A directory where the journal file should be makes opening it fail on the plan-io thread
+    @Test
+    void failedWriteIsReportedOnTheEventThread() throws Exception {
+        Files.createDirectories(PlanJournal.journalFile(directory, NAME));
+        CountDownLatch opened = new CountDownLatch(1);
+        PlanSaver.execute(() -> {
+            try {
+                opened.await(); // Holds the plan-io thread until the callback is in place
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        PlanJournal journal = PlanJournal.create(directory, NAME, new FloorPlan());
+        try {
+            CompletableFuture<Boolean> reported = new CompletableFuture<>();
+            journal.setOnFailure(error -> reported.complete(SwingUtilities.isEventDispatchThread()));
+            opened.countDown();
+            assertTrue(reported.get(10, TimeUnit.SECONDS));
+        } finally {
+            journal.close();
+        }
+    }
+
+    //Past the compaction threshold autosave takes a checkpoint; the saved plan only changes on a save, and
+    //declining to save drops the checkpoint with the journal
+    @Test
+    void compactionNeverWritesUnsavedEditsIntoThePlanFile() throws Exception {
+        FloorPlan plan = new FloorPlan();
+        PlanJournal journal = PlanJournal.create(directory, NAME, plan);
+        addBooth(plan, journal, 0);
+        CompletableFuture<IOException> saved = new CompletableFuture<>();
+        journal.compact(saved::complete);
+        assertNull(saved.get(10, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= PlanJournal.COMPACT_THRESHOLD; i++) {
+            addBooth(plan, journal, i);
+        }
+        Path checkpoint = PlanJournal.checkpointFile(directory, NAME);
+        for (long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); !Files.exists(checkpoint)
+                && System.nanoTime() < end; ) {
+            Thread.sleep(20);
+        }
+        journal.close();
+        assertTrue(Files.exists(checkpoint));
+        assertEquals(1, FloorPlanFormat.load(directory, NAME).size());
+
+        FloorPlan reopened = PlanJournal.load(directory, NAME);
+        journal = PlanJournal.open(directory, NAME, reopened);
+        assertEquals(plan.size(), reopened.size());
+        journal.discard();
+        journal.close();
+
+        assertFalse(Files.exists(checkpoint));
+        FloorPlan declined = PlanJournal.load(directory, NAME);
+        PlanJournal.open(directory, NAME, declined).close();
+        assertEquals(1, declined.size());
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PlanMetricsTest {
+    private static final long MICROS = 1000;
+
+    @AfterEach
+    void turnOff() {
+        PlanMetrics.setEnabled(false);
+        PlanMetrics.reset();
+    }
+
+    //Records a call that took at least the given time, only while metrics are on
+    private static void call(PlanMetrics.Operation operation, long nanos) {
+        operation.stop(PlanMetrics.start() - nanos);
+    }
+
+    @Test
+    void nothingIsCountedWhileOff() {
+        PlanMetrics.setEnabled(false);
+        PlanMetrics.reset();
+        long start = PlanMetrics.start();
+        PlanMetrics.setEnabled(true);
+        PlanMetrics.DRAW.stop(start); // Started while off, so not a call to record
+        PlanMetrics.setEnabled(false);
+        PlanMetrics.DRAW.stop(PlanMetrics.start());
+        PlanMetrics.countPlacementAttempt();
+
+        assertEquals(0, PlanMetrics.DRAW.getCount());
+        assertEquals(0, PlanMetrics.DRAW.getMaxMicros());
+        assertEquals(0, PlanMetrics.getPlacementAttempts());
+    }
+
+    @Test
+    void callsAreCountedAndTimed() {
+        PlanMetrics.setEnabled(true);
+        call(PlanMetrics.SAVE, 200 * MICROS);
+        call(PlanMetrics.SAVE, 400 * MICROS);
+
+        assertEquals(2, PlanMetrics.SAVE.getCount());
+        assertTrue(PlanMetrics.SAVE.getMaxMicros() >= 400);
+        assertTrue(PlanMetrics.SAVE.getLastMicros() >= 400);
+        assertTrue(PlanMetrics.SAVE.getTotalMillis() >= 0.6);
+        double mean = PlanMetrics.SAVE.getMeanMicros();
+        assertTrue(mean >= 300 && mean <= PlanMetrics.SAVE.getMaxMicros(), String.valueOf(mean));
+        assertEquals(0, PlanMetrics.LOAD.getCount());
+    }
+
+    //Buckets are a quarter of a power of two wide, so percentiles are within a quarter of the true value
+    @Test
+    void percentilesComeFromTheHistogram() {
+        PlanMetrics.setEnabled(true);
+        for (int i = 0; i < 90; i++) {
+            call(PlanMetrics.HIT_TEST, 100 * MICROS);
+        }
+        for (int i = 0; i < 10; i++) {
+            call(PlanMetrics.HIT_TEST, 10_000 * MICROS);
+        }
+
+        double p50 = PlanMetrics.HIT_TEST.getP50Micros();
+        double p90 = PlanMetrics.HIT_TEST.getP90Micros();
+        double p99 = PlanMetrics.HIT_TEST.getP99Micros();
+        assertTrue(p50 >= 100 && p50 < 150, String.valueOf(p50));
+        assertTrue(p90 >= 100 && p90 < 150, String.valueOf(p90));
+        assertTrue(p99 >= 10_000 && p99 <= PlanMetrics.HIT_TEST.getMaxMicros(), String.valueOf(p99));
+    }
+
+    @Test
+    void resetClearsEveryOperation() {
+        PlanMetrics.setEnabled(true);
+        call(PlanMetrics.FRAME, MICROS);
+        PlanMetrics.countPlacementAttempt();
+
+        PlanMetrics.reset();
+
+        assertEquals(0, PlanMetrics.FRAME.getCount());
+        assertEquals(0, PlanMetrics.FRAME.getP99Micros());
+        assertEquals(0, PlanMetrics.FRAME.getMeanMicros());
+        assertEquals(0, PlanMetrics.getPlacementAttempts());
+        assertTrue(PlanMetrics.isEnabled());
+    }
+
+    //The editor's placement is timed, and counts the free spots it tried
+    @Test
+    void placementIsMeasured() {
+        PlanMetrics.setEnabled(true);
+        FloorPlanController controller = new FloorPlanController();
+        for (int i = 0; i < 5; i++) {
+            controller.addShape(10, 10, Color.RED, 100, 100);
+        }
+
+        assertEquals(5, PlanMetrics.PLACEMENT.getCount());
+        assertTrue(PlanMetrics.getPlacementAttempts() >= 5);
+    }
+
+    @Test
+    void metricsAreSwitchedOverJmx() throws JMException {
+        PlanMetrics.setEnabled(true);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName control = new ObjectName(PlanMetrics.DOMAIN + ":type=Metrics");
+        call(PlanMetrics.LOAD, MICROS);
+
+        assertEquals(1L, server.getAttribute(new ObjectName(PlanMetrics.DOMAIN + ":type=Operation,name=load"),
+                "Count"));
+        server.setAttribute(control, new Attribute("Enabled", false));
+        assertFalse(PlanMetrics.isEnabled());
+    }
+}
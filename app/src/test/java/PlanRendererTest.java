@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PlanRendererTest {
+    private static final int SIZE = 100;
+    private static final int WHITE = Color.WHITE.getRGB();
+
+    private static CustomRectangle booth(FloorPlan plan, int x, int y, Color color) {
+        CustomRectangle booth = new CustomRectangle(20, 20, color);
+        booth.setPosition(x, y);
+        plan.add(booth);
+        return booth;
+    }
+
+    private static BufferedImage frame(PlanRenderer renderer, FloorPlan plan, Set<CustomRectangle> selection,
+                                       Viewport viewport) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        renderer.render(g, plan, selection, viewport, SIZE, SIZE, Color.WHITE, null);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void drawsBoothsThroughTheViewport() {
+        FloorPlan plan = new FloorPlan();
+        booth(plan, 10, 10, Color.RED);
+        Viewport viewport = new Viewport();
+        PlanRenderer renderer = new PlanRenderer();
+
+        assertEquals(Color.RED.getRGB(), frame(renderer, plan, Collections.emptySet(), viewport).getRGB(15, 15));
+        viewport.zoomAt(0, 0, 2);
+        BufferedImage zoomed = frame(renderer, plan, Collections.emptySet(), viewport);
+        assertEquals(Color.RED.getRGB(), zoomed.getRGB(45, 45));
+        viewport.pan(-40, 0);
+        assertEquals(WHITE, frame(renderer, plan, Collections.emptySet(), viewport).getRGB(25, 25));
+    }
+
+    //Selected booths are drawn over the layer every frame, so dragging one needs no redraw of the others
+    @Test
+    void movingTheSelectionKeepsTheLayer() {
+        FloorPlan plan = new FloorPlan();
+        CustomRectangle still = booth(plan, 0, 0, Color.RED);
+        CustomRectangle moving = booth(plan, 40, 40, Color.BLUE);
+        moving.setSelected(true);
+        Set<CustomRectangle> selection = Set.of(moving);
+        Viewport viewport = new Viewport();
+        PlanRenderer renderer = new PlanRenderer();
+        frame(renderer, plan, selection, viewport);
+
+        plan.move(moving, 70, 70);
+        BufferedImage moved = frame(renderer, plan, selection, viewport);
+
+        assertEquals(WHITE, moved.getRGB(45, 45));
+        assertEquals(Color.BLUE.getRGB(), moved.getRGB(75, 75));
+        assertEquals(Color.RED.getRGB(), moved.getRGB(5, 5));
+
+        //A booth outside the selection is part of the layer, which is redrawn once it moves
+        plan.move(still, 0, 40);
+        BufferedImage redrawn = frame(renderer, plan, selection, viewport);
+        assertEquals(WHITE, redrawn.getRGB(5, 5));
+        assertEquals(Color.RED.getRGB(), redrawn.getRGB(5, 45));
+    }
+
+    //Booths taken out of the selection go back into the layer
+    @Test
+    void changingTheSelectionRedrawsTheLayer() {
+        FloorPlan plan = new FloorPlan();
+        CustomRectangle booth = booth(plan, 40, 40, Color.BLUE);
+        Viewport viewport = new Viewport();
+        PlanRenderer renderer = new PlanRenderer();
+        frame(renderer, plan, Set.of(booth), viewport);
+
+        BufferedImage image = frame(renderer, plan, Collections.emptySet(), viewport);
+
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(45, 45));
+    }
+
+    //Far out, booths are too small to draw one by one and the layer shows their density instead
+    @Test
+    void zoomedFarOutDrawsDensity() {
+        FloorPlan plan = new FloorPlan();
+        for (int x = 0; x < 2000; x += 20) {
+            for (int y = 0; y < 2000; y += 20) {
+                booth(plan, x, y, Color.RED);
+            }
+        }
+        Viewport viewport = new Viewport();
+        viewport.zoomAt(0, 0, Viewport.DETAIL_SCALE / 2);
+        BufferedImage image = frame(new PlanRenderer(), plan, Collections.emptySet(), viewport);
+
+        assertNotEquals(WHITE, image.getRGB(5, 5));
+        assertNotEquals(Color.RED.getRGB(), image.getRGB(5, 5));
+    }
+}
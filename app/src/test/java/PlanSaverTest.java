@@ -0,0 +1,37 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlanSaverTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void saveReportsSuccess() throws Exception {
+        CompletableFuture<IOException> done = new CompletableFuture<>();
+        PlanSaver.saveAsync(new FloorPlan().snapshot(), directory, "hall", null, done::complete);
+
+        assertNull(done.get(10, TimeUnit.SECONDS));
+        assertTrue(Files.exists(FloorPlanFormat.planFile(directory, "hall")));
+    }
+
+    //The editor waits on the callback to leave "Saving..." and go back to the landing page
+    @Test
+    void uncheckedFailureStillReachesTheCallback() throws Exception {
+        IllegalStateException thrown = new IllegalStateException("bad snapshot");
+        CompletableFuture<IOException> done = new CompletableFuture<>();
+        PlanSaver.saveAsync(new FloorPlan().snapshot(), directory, "hall", () -> {
+            throw thrown;
+        }, done::complete);
+
+        assertEquals(thrown, done.get(10, TimeUnit.SECONDS).getCause());
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlanToolTest {
+    @TempDir
+    Path directory;
+
+    private static boolean run(String... args) {
+        return PlanTool.parse(args).run();
+    }
+
+    private Path plan(String name, int... booths) throws IOException {
+        FloorPlan plan = new FloorPlan();
+        for (int i = 0; i < booths.length; i += 2) {
+            CustomRectangle booth = new CustomRectangle(20, 20, Color.RED);
+            booth.setPosition(booths[i], booths[i + 1]);
+            plan.add(booth);
+        }
+        Path file = directory.resolve(name + FloorPlanFormat.EXTENSION);
+        FloorPlanFormat.writeAtomically(plan.snapshot(), file);
+        return file;
+    }
+
+    //Every plan is a separate job, and the same seed packs the same plans whatever the number of threads
+    @Test
+    void generatedPlansAreRepeatable() throws IOException {
+        Path first = directory.resolve("first"), second = directory.resolve("second");
+        assertTrue(run("generate", "--count", "3", "--booths", "200", "--seed", "7", "-o", first.toString()));
+        assertTrue(run("generate", "--count", "3", "--booths", "200", "--seed", "7", "--threads", "1",
+                "-o", second.toString()));
+
+        for (String name : List.of("plan-0", "plan-1", "plan-2")) {
+            Path file = first.resolve(name + FloorPlanFormat.EXTENSION);
+            assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(second.resolve(file.getFileName())));
+            assertEquals(200, FloorPlanFormat.read(file).size());
+        }
+        assertTrue(run("validate", first.toString()));
+    }
+
+    //A booth list that does not fit the hall fails its job, the booths that fit are still saved
+    @Test
+    void packedListsMustFit() throws IOException {
+        Path csv = Files.write(directory.resolve("hall.csv"), List.of("# width,height,color", "50,50,#FF0000",
+                "50,50,#00FF00", "50,50,#0000FF"));
+        Path output = directory.resolve("out");
+        assertTrue(run("pack", "--hall", "100x100", "-o", output.toString(), csv.toString()));
+        assertEquals(3, FloorPlanFormat.read(output.resolve("hall" + FloorPlanFormat.EXTENSION)).size());
+
+        assertFalse(run("pack", "--hall", "100x50", "-o", output.toString(), csv.toString()));
+        assertEquals(2, FloorPlanFormat.read(output.resolve("hall" + FloorPlanFormat.EXTENSION)).size());
+    }
+
+    @Test
+    void validationFailsOnOverlaps() throws IOException {
+        assertTrue(run("validate", plan("apart", 0, 0, 20, 0).toString()));
+        assertFalse(run("validate", plan("apart", 0, 0, 20, 0).toString(), plan("over", 0, 0, 10, 10).toString()));
+    }
+
+    @Test
+    void convertedPlansKeepTheirBooths() throws IOException {
+        Path original = plan("hall", 0, 0, 40, 0, 0, 40);
+        Path legacy = directory.resolve("legacy"), binary = directory.resolve("binary");
+        assertTrue(run("convert", "--to", "ser", "-o", legacy.toString(), original.toString()));
+        assertTrue(run("convert", "--to", "bfp", "-o", binary.toString(), legacy.toString()));
+
+        FloorPlan plan = FloorPlanFormat.read(binary.resolve("hall" + FloorPlanFormat.EXTENSION));
+        assertEquals(3, plan.size());
+        assertNotNull(plan.shapeAt(45, 5));
+        assertNotNull(plan.shapeAt(5, 45));
+    }
+
+    //Directories are expanded to their plans, each fitted into an image of the asked size
+    @Test
+    void thumbnailsAreRenderedForEveryPlan() throws IOException {
+        plan("single", 0, 0);
+        plan("spread", 0, 0, 500, 500);
+        Path output = directory.resolve("thumbnails");
+        assertTrue(run("thumbnail", "--size", "64", "-o", output.toString(), directory.toString()));
+
+        BufferedImage single = ImageIO.read(output.resolve("single.png").toFile());
+        assertEquals(64, single.getWidth());
+        assertEquals(Color.RED.getRGB(), single.getRGB(32, 32));
+        //Zoomed this far out the booths are drawn as blocks of density, top left and bottom right
+        BufferedImage spread = ImageIO.read(output.resolve("spread.png").toFile());
+        assertEquals(64, spread.getHeight());
+        assertNotEquals(Color.WHITE.getRGB(), spread.getRGB(8, 8));
+        assertNotEquals(Color.WHITE.getRGB(), spread.getRGB(48, 48));
+        assertEquals(Color.WHITE.getRGB(), spread.getRGB(56, 8));
+        assertEquals(Color.WHITE.getRGB(), spread.getRGB(8, 56));
+    }
+
+    @Test
+    void unreadableFilesFailTheirJob() throws IOException {
+        Path broken = Files.write(directory.resolve("broken" + FloorPlanFormat.EXTENSION), new byte[] {1, 2, 3});
+        assertFalse(run("validate", plan("fine", 0, 0).toString(), broken.toString()));
+    }
+
+    @Test
+    void badArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PlanTool.parse(new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> PlanTool.parse(new String[] {"shred", "a.bfp"}));
+        assertThrows(IllegalArgumentException.class, () -> PlanTool.parse(new String[] {"generate", "-o", "x"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlanTool.parse(new String[] {"convert", "--to", "xml", "-o", "x", "a.bfp"}));
+        assertThrows(IllegalArgumentException.class, () -> PlanTool.parse(new String[] {"thumbnail", "a.bfp"}));
+        assertThrows(IllegalArgumentException.class, () -> PlanTool.parse(new String[] {"validate"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlanTool.parse(new String[] {"pack", "--hall", "100", "-o", "x", "a.csv"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlanTool.parse(new String[] {"thumbnail", "--size", "-3", "-o", "x", "a.bfp"}));
+    }
+}
@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class RectangleFactoryTest {
+    //Types are global, so each test uses sizes no other test asks for
+    @Test
+    void sameLooksShareOneType() {
+        BoothType type = RectangleFactory.getType(1001, 7, new Color(10, 20, 30));
+
+        assertSame(type, RectangleFactory.getType(1001, 7, new Color(10, 20, 30)));
+        assertSame(type, RectangleFactory.getType(type.id));
+        assertNotSame(type, RectangleFactory.getType(1001, 7, new Color(10, 20, 31)));
+        assertNotSame(type, RectangleFactory.getType(7, 1001, new Color(10, 20, 30)));
+        assertNotSame(type, RectangleFactory.getType(1001, 7, new Color(10, 20, 30, 128)));
+    }
+
+    //Enough types to grow the table several times, each still found by its key and by its id
+    @Test
+    void typesSurviveTheTableGrowing() {
+        List<BoothType> types = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            types.add(RectangleFactory.getType(2000 + i, 3, Color.GREEN));
+        }
+        for (int i = 0; i < types.size(); i++) {
+            BoothType type = types.get(i);
+            assertSame(type, RectangleFactory.getType(2000 + i, 3, Color.GREEN));
+            assertSame(type, RectangleFactory.getType(type.id));
+            assertEquals(2000 + i, type.width);
+        }
+    }
+
+    //Threads racing to intern the same new types must all get the same instances
+    @Test
+    void concurrentCallersGetOneTypePerLook() throws Exception {
+        int threads = 8, looks = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BoothType[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                Callable<BoothType[]> intern = () -> {
+                    BoothType[] types = new BoothType[looks];
+                    for (int i = 0; i < looks; i++) {
+                        int look = (i + offset * 61) % looks; // Each thread starts somewhere else
+                        types[look] = RectangleFactory.getType(5000 + look, 5, Color.ORANGE);
+                    }
+                    return types;
+                };
+                results.add(pool.submit(intern));
+            }
+            BoothType[] first = results.get(0).get();
+            for (Future<BoothType[]> result : results) {
+                BoothType[] types = result.get();
+                for (int i = 0; i < looks; i++) {
+                    assertSame(first[i], types[i]);
+                    assertSame(first[i], RectangleFactory.getType(first[i].id));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
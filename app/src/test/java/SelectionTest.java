@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class SelectionTest {
+    private static final int HALL = 100;
+
+    //A 10 by 10 grid of 10 by 10 booths filling the hall, packed as an import packs them
+    private static FloorPlanController fullHall() {
+        FloorPlanController controller = new FloorPlanController();
+        List<BoothRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requests.add(new BoothRequest(10, 10, Color.BLUE));
+        }
+        controller.addShapes(requests, HALL, HALL);
+        return controller;
+    }
+
+    private static Set<String> positions(Set<CustomRectangle> booths) {
+        Set<String> positions = new TreeSet<>();
+        for (CustomRectangle booth : booths) {
+            positions.add(booth.x + "," + booth.y);
+        }
+        return positions;
+    }
+
+    //The marquee picks booths it overlaps, read from compact rows as needed; booths it only touches stay out
+    @Test
+    void areaSelectsTheBoothsItOverlaps() {
+        FloorPlanController controller = fullHall();
+
+        controller.selectArea(15, 15, 20, 10, false);
+
+        assertEquals(Set.of("10,10", "20,10", "30,10", "10,20", "20,20", "30,20"),
+                positions(controller.getSelection()));
+        for (CustomRectangle booth : controller.getSelection()) {
+            assertTrue(booth.isSelected());
+        }
+        controller.selectArea(20, 20, 10, 10, false);
+        assertEquals(Set.of("20,20"), positions(controller.getSelection()));
+    }
+
+    @Test
+    void areaReplacesOrAddsToTheSelection() {
+        FloorPlanController controller = fullHall();
+        controller.selectArea(0, 0, 10, 10, false);
+        CustomRectangle first = controller.getSelectedShape();
+
+        controller.selectArea(50, 50, 10, 10, true);
+        assertEquals(Set.of("0,0", "50,50"), positions(controller.getSelection()));
+        assertEquals(50, controller.getSelectedShape().x);
+
+        controller.selectArea(90, 90, 10, 10, false);
+        assertEquals(Set.of("90,90"), positions(controller.getSelection()));
+        assertFalse(first.isSelected());
+    }
+
+    @Test
+    void toggleTakesBoothsInAndOut() {
+        FloorPlanController controller = fullHall();
+        CustomRectangle a = controller.getShapeAt(5, 5);
+        CustomRectangle b = controller.getShapeAt(15, 5);
+
+        controller.toggleSelection(a);
+        controller.toggleSelection(b);
+        assertSame(b, controller.getSelectedShape());
+        assertEquals(a.getPaintBounds().union(b.getPaintBounds()), controller.getSelectionBounds());
+
+        controller.toggleSelection(b);
+        assertSame(a, controller.getSelectedShape());
+        assertFalse(b.isSelected());
+        controller.toggleSelection(a);
+        assertNull(controller.getSelectedShape());
+        assertNull(controller.getSelectionBounds());
+    }
+
+    //A dragged selection moves as one and is undone in one step
+    @Test
+    void selectionMovesAsAGroup() {
+        FloorPlanController controller = new FloorPlanController();
+        for (int i = 0; i < 3; i++) {
+            controller.addShape(10, 10, Color.RED, HALL, HALL);
+        }
+        controller.selectArea(0, 0, 30, 10, false);
+        CustomRectangle handle = controller.getShapeAt(15, 5);
+
+        controller.beginDrag(handle);
+        assertTrue(controller.dragShapeTo(handle, 10, 50));
+        controller.endDrag(handle);
+
+        assertEquals(Set.of("0,50", "10,50", "20,50"), positions(controller.getSelection()));
+        assertNull(controller.getShapeAt(5, 5));
+        assertTrue(controller.undo());
+        assertEquals(3, controller.getFloorPlan().size());
+        for (int x = 5; x < 30; x += 10) {
+            assertTrue(controller.getShapeAt(x, 5) != null);
+            assertNull(controller.getShapeAt(x, 55));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SlideTest {
+    private static CustomRectangle booth(FloorPlan plan, int x, int y, int width, int height) {
+        CustomRectangle shape = new CustomRectangle(width, height, Color.RED);
+        shape.setPosition(x, y);
+        plan.add(shape);
+        return shape;
+    }
+
+    @Test
+    void boothOverlappingAtTheStartCanBePulledApart() {
+        FloorPlan plan = new FloorPlan();
+        booth(plan, 0, 0, 20, 20);
+        CustomRectangle stuck = booth(plan, 10, 0, 20, 20);
+
+        assertEquals(new Point(30, 0), plan.slideAll(List.of(stuck), 30, 0));
+        assertEquals(40, stuck.x);
+        assertEquals(0, OverlapValidator.validate(plan.snapshot()).size());
+    }
+
+    //Only the overlap it starts with is let through, a booth it would newly run into still stops it
+    @Test
+    void boothOverlappingAtTheStartStopsAtOtherBooths() {
+        FloorPlan plan = new FloorPlan();
+        booth(plan, 0, 0, 20, 20);
+        CustomRectangle stuck = booth(plan, 10, 0, 20, 20);
+        booth(plan, 50, 0, 20, 20);
+
+        assertEquals(new Point(20, 0), plan.slideAll(List.of(stuck), 40, 0));
+    }
+
+    @Test
+    void blockedBoothSlidesAlongTheOtherAxis() {
+        FloorPlan plan = new FloorPlan();
+        CustomRectangle moving = booth(plan, 0, 0, 10, 10);
+        booth(plan, 30, 0, 10, 10);
+
+        assertEquals(new Point(20, 5), plan.slideAll(List.of(moving), 25, 5));
+        assertEquals(new Point(0, 30), plan.slideAll(List.of(moving), 0, 30));
+    }
+
+    @Test
+    void draggedBoothsSnapToTheGrid() {
+        FloorPlanController controller = new FloorPlanController();
+        controller.addShape(10, 10, Color.RED, 200, 200);
+        CustomRectangle shape = controller.getShapeAt(5, 5);
+        controller.beginDrag(shape);
+
+        controller.dragShapeTo(shape, 44, 76);
+        controller.endDrag(shape);
+
+        assertEquals(new Point(40, 80), new Point(shape.x, shape.y));
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpatialGridTest {
+    private static CustomRectangle booth(int x, int y, int width, int height, int order) {
+        CustomRectangle booth = new CustomRectangle(width, height, Color.RED);
+        booth.setPosition(x, y);
+        booth.order = order;
+        return booth;
+    }
+
+    //Booths of up to four cells across, around the origin so negative cells are used too
+    private static List<CustomRectangle> randomBooths(Random random, int count) {
+        List<CustomRectangle> booths = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            booths.add(booth(random.nextInt(400) - 200, random.nextInt(400) - 200, 1 + random.nextInt(60),
+                    1 + random.nextInt(60), i));
+        }
+        return booths;
+    }
+
+    private static boolean overlaps(CustomRectangle booth, int x, int y, int width, int height) {
+        return booth.x < x + width && x < booth.x + booth.getWidth()
+                && booth.y < y + height && y < booth.y + booth.getHeight();
+    }
+
+    private static CustomRectangle topmost(List<CustomRectangle> booths, int x, int y) {
+        CustomRectangle top = null;
+        for (CustomRectangle booth : booths) {
+            if (x >= booth.x && x <= booth.x + booth.getWidth() && y >= booth.y && y <= booth.y + booth.getHeight()) {
+                top = booth;
+            }
+        }
+        return top;
+    }
+
+    //Every query is checked against looking at every booth
+    private static void assertMatches(SpatialGrid grid, List<CustomRectangle> booths, Random random) {
+        for (int q = 0; q < 300; q++) {
+            int x = random.nextInt(500) - 250, y = random.nextInt(500) - 250;
+            int width = random.nextInt(120), height = random.nextInt(120);
+            List<CustomRectangle> expected = new ArrayList<>();
+            for (CustomRectangle booth : booths) {
+                if (overlaps(booth, x, y, width, height)) {
+                    expected.add(booth);
+                }
+            }
+            List<CustomRectangle> found = new ArrayList<>();
+            grid.query(x, y, width, height, found::add);
+            found.sort((a, b) -> Integer.compare(a.order, b.order));
+
+            assertEquals(expected, found);
+            assertEquals(!expected.isEmpty(), grid.intersects(x, y, width, height, null));
+            assertSame(topmost(booths, x, y), grid.topmostAt(x, y));
+        }
+    }
+
+    @Test
+    void queriesMatchCheckingEveryBooth() {
+        Random random = new Random(1);
+        SpatialGrid grid = new SpatialGrid(16);
+        List<CustomRectangle> booths = randomBooths(random, 500);
+        booths.forEach(grid::insert);
+
+        assertEquals(500, grid.size());
+        assertMatches(grid, booths, random);
+    }
+
+    @Test
+    void removedBoothsAreNoLongerFound() {
+        Random random = new Random(2);
+        SpatialGrid grid = new SpatialGrid(16);
+        List<CustomRectangle> booths = randomBooths(random, 500);
+        booths.forEach(grid::insert);
+        List<CustomRectangle> kept = new ArrayList<>();
+        for (CustomRectangle booth : booths) {
+            if (booth.order % 3 == 0) {
+                assertTrue(grid.remove(booth));
+            } else {
+                kept.add(booth);
+            }
+        }
+
+        assertFalse(grid.remove(booths.get(0)));
+        assertEquals(kept.size(), grid.size());
+        assertMatches(grid, kept, random);
+    }
+
+    //Edges count for hit testing but not for overlaps, and the booth to ignore is skipped
+    @Test
+    void edgesAndIgnoredBooths() {
+        SpatialGrid grid = new SpatialGrid(64);
+        CustomRectangle booth = booth(0, 0, 64, 64, 0);
+        grid.insert(booth);
+
+        assertSame(booth, grid.topmostAt(64, 64));
+        assertFalse(grid.intersects(64, 0, 10, 10, null));
+        assertTrue(grid.intersects(63, 63, 10, 10, null));
+        assertFalse(grid.intersects(63, 63, 10, 10, booth));
+    }
+
+    @Test
+    void rejectsCellsWithoutSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid(0));
+    }
+}
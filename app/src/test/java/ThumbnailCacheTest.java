@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailCacheTest {
+    @TempDir
+    Path directory;
+
+    //A plan of one red booth covering its whole bounds
+    private PlanCatalog.Entry plan(String name, long modified) throws IOException {
+        FloorPlan plan = new FloorPlan();
+        CustomRectangle booth = new CustomRectangle(40, 40, Color.RED);
+        booth.setPosition(0, 0);
+        plan.add(booth);
+        FloorPlanFormat.save(plan.snapshot(), directory, name);
+        return new PlanCatalog.Entry(name, FloorPlanFormat.planFile(directory, name), modified, 0, 1, 0, 0, 40, 40,
+                new byte[PlanCatalog.THUMBNAIL_SIZE * PlanCatalog.THUMBNAIL_SIZE]);
+    }
+
+    //Asks for the preview and waits for it to be made when it is not in memory
+    private static BufferedImage load(ThumbnailCache cache, PlanCatalog.Entry entry) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        BufferedImage image = cache.get(entry, ready::countDown);
+        if (image != null) {
+            return image;
+        }
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        return cache.get(entry, () -> { });
+    }
+
+    @Test
+    void rendersBoothsInTheirColor() throws IOException {
+        BufferedImage image = ThumbnailCache.render(plan("Hall", 1));
+        assertEquals(Color.RED.getRGB(), image.getRGB(ThumbnailCache.SIZE / 2, ThumbnailCache.SIZE / 2));
+    }
+
+    //Only the most recently shown previews stay in memory, the others are read back from disk when asked for
+    @Test
+    void evictsTheLeastRecentlyShownPreview() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(directory.resolve(ThumbnailCache.DIRECTORY), 2);
+        PlanCatalog.Entry a = plan("A", 1), b = plan("B", 1), c = plan("C", 1);
+        assertNotNull(load(cache, a));
+        assertNotNull(load(cache, b));
+        assertNotNull(cache.get(a, () -> { })); // A is now more recent than B
+
+        assertNotNull(load(cache, c));
+
+        assertNotNull(cache.get(a, () -> { }));
+        assertNotNull(cache.get(c, () -> { }));
+        assertNull(cache.get(b, () -> { }));
+        assertNotNull(load(cache, b));
+        assertTrue(Files.exists(directory.resolve(ThumbnailCache.DIRECTORY).resolve("B@1.png")));
+    }
+
+    //A saved plan gets a new preview, and the one for the earlier save is deleted
+    @Test
+    void replacesThePreviewOfAnEarlierSave() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(directory.resolve(ThumbnailCache.DIRECTORY), 2);
+        Path previews = directory.resolve(ThumbnailCache.DIRECTORY);
+        load(cache, plan("Hall", 1));
+        assertTrue(Files.exists(previews.resolve("Hall@1.png")));
+
+        load(cache, plan("Hall", 2));
+
+        assertTrue(Files.exists(previews.resolve("Hall@2.png")));
+        assertFalse(Files.exists(previews.resolve("Hall@1.png")));
+    }
+
+    @Test
+    void unreadablePlansHaveNoPreview() {
+        ThumbnailCache cache = new ThumbnailCache(directory.resolve(ThumbnailCache.DIRECTORY), 2);
+        Path file = FloorPlanFormat.planFile(directory, "Broken");
+        PlanCatalog.Entry broken = new PlanCatalog.Entry("Broken", file, 1, 0, -1, 0, 0, 0, 0,
+                new byte[PlanCatalog.THUMBNAIL_SIZE * PlanCatalog.THUMBNAIL_SIZE]);
+        assertNull(cache.get(broken, () -> { }));
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import org.junit.jupiter.api.Test;
+
+class ViewportTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void screenAndWorldAreInverse() {
+        Viewport viewport = new Viewport();
+        viewport.zoomAt(30, 40, 3);
+        viewport.pan(-17, 5);
+        for (double x = -100; x <= 100; x += 25) {
+            assertEquals(x, viewport.toWorldX(viewport.toScreenX(x)), EPSILON);
+            assertEquals(x, viewport.toWorldY(viewport.toScreenY(x)), EPSILON);
+        }
+    }
+
+    @Test
+    void zoomKeepsThePointUnderTheCursor() {
+        Viewport viewport = new Viewport();
+        viewport.pan(12, -7);
+        double worldX = viewport.toWorldX(250);
+        double worldY = viewport.toWorldY(130);
+
+        viewport.zoomAt(250, 130, 1.7);
+        assertEquals(worldX, viewport.toWorldX(250), EPSILON);
+        assertEquals(worldY, viewport.toWorldY(130), EPSILON);
+        viewport.zoomAt(250, 130, 0.2);
+        assertEquals(worldX, viewport.toWorldX(250), EPSILON);
+        assertEquals(worldY, viewport.toWorldY(130), EPSILON);
+    }
+
+    //The cursor point also stays put when the zoom stops at a limit
+    @Test
+    void scaleStaysWithinLimits() {
+        Viewport viewport = new Viewport();
+        double worldX = viewport.toWorldX(80);
+        for (int i = 0; i < 20; i++) {
+            viewport.zoomAt(80, 0, 10);
+        }
+        assertEquals(Viewport.MAX_SCALE, viewport.getScale());
+        assertEquals(worldX, viewport.toWorldX(80), EPSILON);
+        for (int i = 0; i < 20; i++) {
+            viewport.zoomAt(80, 0, 0.1);
+        }
+        assertEquals(Viewport.MIN_SCALE, viewport.getScale());
+        assertEquals(worldX, viewport.toWorldX(80), EPSILON);
+    }
+
+    @Test
+    void detailStopsBelowTheDetailScale() {
+        Viewport viewport = new Viewport();
+        assertTrue(viewport.isDetailed());
+        viewport.zoomAt(0, 0, Viewport.DETAIL_SCALE);
+        assertTrue(viewport.isDetailed());
+        viewport.zoomAt(0, 0, 0.99);
+        assertFalse(viewport.isDetailed());
+    }
+
+    //Rounding must never leave a booth on the edge of the view out of what is drawn or repainted
+    @Test
+    void roundedAreasCoverTheExactOnes() {
+        Viewport viewport = new Viewport();
+        viewport.zoomAt(0, 0, 0.37);
+        viewport.pan(13.3, -8.6);
+
+        Rectangle visible = viewport.visibleWorld(640, 480);
+        assertTrue(visible.x <= viewport.toWorldX(0) && visible.y <= viewport.toWorldY(0));
+        assertTrue(visible.x + visible.width >= viewport.toWorldX(640));
+        assertTrue(visible.y + visible.height >= viewport.toWorldY(480));
+
+        Rectangle world = new Rectangle(101, 57, 33, 19);
+        Rectangle screen = viewport.toScreen(world);
+        assertTrue(screen.x <= viewport.toScreenX(world.x) && screen.y <= viewport.toScreenY(world.y));
+        assertTrue(screen.x + screen.width >= viewport.toScreenX(world.x + world.width));
+        assertTrue(screen.y + screen.height >= viewport.toScreenY(world.y + world.height));
+    }
+
+    @Test
+    void everyChangeBumpsTheVersion() {
+        Viewport viewport = new Viewport();
+        int start = viewport.getVersion();
+        viewport.pan(1, 0);
+        int panned = viewport.getVersion();
+        viewport.zoomAt(0, 0, 2);
+        int zoomed = viewport.getVersion();
+        viewport.reset();
+
+        assertNotEquals(start, panned);
+        assertNotEquals(panned, zoomed);
+        assertNotEquals(zoomed, viewport.getVersion());
+        assertEquals(1.0, viewport.getScale());
+        assertEquals(0, viewport.toWorldX(0), EPSILON);
+    }
+}
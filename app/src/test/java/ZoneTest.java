@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZoneTest {
+    private static final int HALL = 200;
+
+    private static FloorPlanController sixBooths() {
+        return addSixBooths(new FloorPlanController());
+    }
+
+    private static FloorPlanController addSixBooths(FloorPlanController controller) {
+        for (int i = 0; i < 6; i++) {
+            controller.addShape(20, 20, Color.RED, HALL, HALL);
+        }
+        return controller;
+    }
+
+    //Zone names and sizes in the order the journal counts zones
+    private static List<String> zones(FloorPlan plan) {
+        List<String> zones = new ArrayList<>();
+        for (Zone zone : plan.zones()) {
+            zones.add(zone.getName() + ":" + zone.size());
+        }
+        return zones;
+    }
+
+    @Test
+    void sizeCountsTheBoothsInsideZones() {
+        FloorPlanController controller = sixBooths();
+        controller.selectArea(0, 0, HALL, HALL, false);
+        controller.createZone("Hall A");
+
+        FloorPlan plan = controller.getFloorPlan();
+        assertEquals(6, plan.size());
+        assertEquals(plan.snapshot().size, plan.size());
+    }
+
+    //Plans with zones keep their snapshot too, until a booth inside a zone changes
+    @Test
+    void snapshotIsKeptUntilAZoneChanges() {
+        FloorPlanController controller = sixBooths();
+        controller.selectArea(0, 0, HALL, HALL, false);
+        controller.createZone("Hall A");
+        FloorPlan plan = controller.getFloorPlan();
+        PlanSnapshot before = plan.snapshot();
+        assertSame(before, plan.snapshot());
+
+        controller.deleteShape(controller.getShapeAt(10, 10));
+
+        PlanSnapshot after = plan.snapshot();
+        assertNotSame(before, after);
+        assertEquals(5, after.size);
+        assertEquals(5, after.zoneCount[0]);
+    }
+
+    @Test
+    void groupingDropsEmptiedZonesAndIsUndoneInOneStep() {
+        FloorPlanController controller = sixBooths();
+        FloorPlan plan = controller.getFloorPlan();
+        controller.selectArea(0, 0, 50, 10, false);
+        controller.createZone("Hall A");
+        controller.selectArea(0, 0, HALL, HALL, false);
+        controller.createZone("Hall B");
+        assertEquals(List.of("Hall B:6"), zones(plan));
+
+        controller.undo();
+        assertEquals(List.of("Hall A:3"), zones(plan));
+        assertEquals(6, plan.size());
+        controller.undo();
+        assertEquals(List.of(), zones(plan));
+        controller.redo();
+        controller.redo();
+        assertEquals(List.of("Hall B:6"), zones(plan));
+    }
+
+    @Test
+    void undoingADeletePutsTheBoothBackInItsZone() {
+        FloorPlanController controller = sixBooths();
+        controller.selectArea(0, 0, 50, 10, false);
+        Zone zone = controller.createZone("Hall A");
+
+        controller.deleteShape(controller.getShapeAt(5, 5));
+        controller.undo();
+        assertSame(zone, controller.getFloorPlan().zoneOf(controller.getShapeAt(5, 5)));
+
+        controller.selectArea(0, 0, 50, 10, false);
+        controller.deleteSelection();
+        controller.undo();
+        assertEquals(List.of("Hall A:3"), zones(controller.getFloorPlan()));
+    }
+
+    @Test
+    void journalReplaysZones(@TempDir Path directory) throws Exception {
+        FloorPlanController controller = new FloorPlanController();
+        PlanJournal journal = PlanJournal.create(directory, "zones", controller.getFloorPlan());
+        controller.setJournal(journal);
+        addSixBooths(controller);
+        controller.selectArea(0, 0, 50, 10, false);
+        controller.createZone("Hall A");
+        controller.selectArea(0, 0, HALL, HALL, false);
+        controller.createZone("Hall É");
+        controller.undo();
+        controller.deleteShape(controller.getShapeAt(5, 5));
+        controller.undo();
+        controller.clearFloorPlan();
+        controller.undo();
+        journal.close();
+
+        FloorPlan replayed = new FloorPlan();
+        PlanJournal.open(directory, "zones", replayed).close();
+        FloorPlan plan = controller.getFloorPlan();
+        assertEquals(List.of("Hall A:3"), zones(plan));
+        assertEquals(zones(plan), zones(replayed));
+        assertEquals(6, replayed.size());
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//One drag event at a time on the top right booth of the plan: out into free space, then back at a spot
+//overlapping its neighbors, where the booth slides along them into the gap it left
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class DragBenchmark {
+    private Object controller;
+    private Object booth;
+    private int side;
+    private boolean out;
+
+    @Setup
+    public void setUp(PlanState state) throws Throwable {
+        controller = (Object) Plans.NEW_CONTROLLER.invokeExact();
+        Plans.SET_FLOOR_PLAN.invokeExact(controller, state.plan);
+        side = state.side;
+        booth = (Object) Plans.GET_SHAPE_AT.invokeExact(controller, side - Plans.BOOTH_SIZE / 2, Plans.BOOTH_SIZE / 2);
+        Plans.BEGIN_DRAG.invokeExact(controller, booth);
+    }
+
+    @Benchmark
+    public boolean drag() throws Throwable {
+        out = !out;
+        return out
+                ? (boolean) Plans.DRAG_SHAPE_TO.invokeExact(controller, booth, side + 15, 7)
+                : (boolean) Plans.DRAG_SHAPE_TO.invokeExact(controller, booth, side - 45, 0);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Point hit-tests and area overlap checks at random spots of the hall, about half of them inside the booths
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class HitTestBenchmark {
+    private static final int POINTS = 4096; // Power of two
+
+    private Object controller;
+    private final int[] xs = new int[POINTS];
+    private final int[] ys = new int[POINTS];
+    private int next;
+
+    @Setup
+    public void setUp(PlanState state) throws Throwable {
+        controller = (Object) Plans.NEW_CONTROLLER.invokeExact();
+        Plans.SET_FLOOR_PLAN.invokeExact(controller, state.plan);
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextInt(state.side);
+            ys[i] = random.nextInt(2 * state.side);
+        }
+    }
+
+    @Benchmark
+    public Object getShapeAt() throws Throwable {
+        int i = next++ & (POINTS - 1);
+        return (Object) Plans.GET_SHAPE_AT.invokeExact(controller, xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public boolean intersects(PlanState state) throws Throwable {
+        int i = next++ & (POINTS - 1);
+        return (boolean) Plans.INTERSECTS.invokeExact(state.plan, xs[i], ys[i], 40, 40);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//The serialized .ser format plans were saved in before the binary format, as a baseline for
+//PersistenceBenchmark. Serializing turns compact rows back into objects, so only object storage is measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class LegacyFormatBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int booths;
+
+    private Object plan;
+    private Path directory;
+    private Path saved;
+    private Path target;
+
+    @Setup
+    public void setUp() throws Throwable {
+        plan = Plans.build(booths, false);
+        directory = Files.createTempDirectory("plan-bench");
+        saved = directory.resolve("saved.ser");
+        target = directory.resolve("target.ser");
+        write(saved);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saved);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        write(target);
+    }
+
+    @Benchmark
+    public Object load() throws Throwable {
+        return (Object) Plans.READ_LEGACY.invokeExact(saved);
+    }
+
+    //Buffered, unlike the old save in the editor, so the format rather than tiny writes is measured
+    private void write(Path file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(plan);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Saving a plan to the binary format, reading it back in full, and opening it lazily and touching one spot
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+    private Path directory;
+    private Path saved; // Written once in setup, read by the load benchmarks
+    private Path target; // Overwritten by the save benchmark
+
+    @Setup
+    public void setUp(PlanState state) throws Throwable {
+        directory = Files.createTempDirectory("plan-bench");
+        saved = directory.resolve("saved.bfp");
+        target = directory.resolve("target.bfp");
+        Plans.WRITE.invokeExact(state.plan, saved);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saved);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void save(PlanState state) throws Throwable {
+        Plans.WRITE.invokeExact(state.plan, target);
+    }
+
+    @Benchmark
+    public Object load() throws Throwable {
+        return (Object) Plans.READ.invokeExact(saved);
+    }
+
+    @Benchmark
+    public boolean openAndHitTest() throws Throwable {
+        Object plan = (Object) Plans.OPEN.invokeExact(saved);
+        return (boolean) Plans.INTERSECTS.invokeExact(plan, 0, 0, 40, 40);
+    }
+}
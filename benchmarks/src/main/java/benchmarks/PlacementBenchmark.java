@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Adds booths one at a time into the empty half of a hall whose other half is full. Each placement changes
+//the plan, so every iteration starts from a freshly built plan and times a fixed batch of additions.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = PlacementBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = PlacementBenchmark.BATCH)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class PlacementBenchmark {
+    static final int BATCH = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int booths;
+
+    @Param({"objects", "compact", "zones"})
+    public String storage;
+
+    private Object controller;
+    private int side;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Throwable {
+        side = Plans.blockSide(booths);
+        controller = (Object) Plans.NEW_CONTROLLER.invokeExact();
+        Plans.SET_FLOOR_PLAN.invokeExact(controller, Plans.build(booths, storage));
+        //The first placement computes the free space from the whole plan, keep that out of the timing
+        boolean added = (boolean) Plans.ADD_SHAPE.invokeExact(controller, 20, 20, Plans.COLORS[0], side, 2 * side);
+        if (!added) {
+            throw new IllegalStateException("No room for booths in the benchmark hall");
+        }
+    }
+
+    @Benchmark
+    public boolean addShape() throws Throwable {
+        return (boolean) Plans.ADD_SHAPE.invokeExact(controller, 20, 20, Plans.COLORS[1], side, 2 * side);
+    }
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//A plan of the given size and booth storage, shared by the benchmarks of one run
+@State(Scope.Benchmark)
+public class PlanState {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int booths;
+
+    //objects: one CustomRectangle per booth, compact: BoothTable rows, zones: compact rows split into 16 halls
+    @Param({"objects", "compact", "zones"})
+    public String storage;
+
+    Object plan;
+    int side; // Side of the block the booths fill, the hall is twice as tall
+
+    @Setup
+    public void buildPlan() throws Throwable {
+        plan = Plans.build(booths, storage);
+        side = Plans.blockSide(booths);
+    }
+}
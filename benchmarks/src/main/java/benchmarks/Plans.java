@@ -0,0 +1,153 @@
+package benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collection;
+
+//Method handles to the editor's classes. The editor lives in the unnamed package, which named packages
+//cannot import, and JMH does not accept benchmarks in the unnamed package, so benchmarks call the editor
+//through handles with its types erased to Object. Being static final, the handles are constants to the JIT
+//and inline like direct calls.
+final class Plans {
+    static final Color[] COLORS = {Color.BLUE, Color.GREEN, new Color(128, 0, 128)};
+    static final int BOOTH_SIZE = 30;
+    static final int ZONE_GRID = 4; // Zoned plans are split into 4 x 4 halls
+
+    static final MethodHandle NEW_CONTROLLER = constructor("FloorPlanController");
+    static final MethodHandle GET_FLOOR_PLAN = method("FloorPlanController", "getFloorPlan");
+    static final MethodHandle SET_FLOOR_PLAN = method("FloorPlanController", "setFloorPlan", type("FloorPlan"));
+    static final MethodHandle ADD_SHAPE = method("FloorPlanController", "addShape",
+            int.class, int.class, Color.class, int.class, int.class);
+    static final MethodHandle GET_SHAPE_AT = method("FloorPlanController", "getShapeAt", int.class, int.class);
+    static final MethodHandle SELECT_AREA = method("FloorPlanController", "selectArea",
+            int.class, int.class, int.class, int.class, boolean.class);
+    static final MethodHandle GET_SELECTION = method("FloorPlanController", "getSelection");
+    static final MethodHandle BEGIN_DRAG = method("FloorPlanController", "beginDrag", type("CustomRectangle"));
+    static final MethodHandle DRAG_SHAPE_TO = method("FloorPlanController", "dragShapeTo",
+            type("CustomRectangle"), int.class, int.class);
+
+    static final MethodHandle NEW_PLAN = constructor("FloorPlan");
+    static final MethodHandle NEW_ZONE = constructor("Zone", String.class);
+    static final MethodHandle NEW_BOOTH = constructor("CustomRectangle", int.class, int.class, Color.class);
+    static final MethodHandle SET_POSITION = method("CustomRectangle", "setPosition", int.class, int.class);
+    static final MethodHandle ADD = method("FloorPlan", "add", type("Shape"));
+    static final MethodHandle COMPACT = method("FloorPlan", "compact");
+    static final MethodHandle SIZE = method("FloorPlan", "size");
+    static final MethodHandle INTERSECTS = method("FloorPlan", "intersects", int.class, int.class, int.class, int.class);
+    static final MethodHandle MOVE_ALL = method("FloorPlan", "moveAll", Collection.class, int.class, int.class);
+    static final MethodHandle DRAW = method("FloorPlan", "draw", Graphics.class);
+
+    static final MethodHandle SNAPSHOT = method("PlanSnapshot", "of", type("FloorPlan"));
+    static final MethodHandle VALIDATE = method("OverlapValidator", "validate", type("PlanSnapshot"));
+
+    static final MethodHandle WRITE = method("FloorPlanFormat", "write", type("FloorPlan"), Path.class);
+    static final MethodHandle READ = method("FloorPlanFormat", "read", Path.class);
+    static final MethodHandle OPEN = method("FloorPlanFormat", "open", Path.class);
+    static final MethodHandle READ_LEGACY = method("FloorPlanFormat", "readLegacy", Path.class);
+
+    private Plans() {
+    }
+
+    //Side of the square block of booths a plan of the given size is built from
+    static int blockSide(int booths) {
+        return (int) Math.ceil(Math.sqrt(booths)) * BOOTH_SIZE;
+    }
+
+    //Builds a plan of booths tiled edge to edge in a square block at the origin. Tiling keeps the placement
+    //engine's free space small, so a plan of any size can be set up quickly.
+    static Object build(int booths, String storage) throws Throwable {
+        return storage.equals("zones") ? buildZoned(booths) : build(booths, storage.equals("compact"));
+    }
+
+    static Object build(int booths, boolean compact) throws Throwable {
+        Object plan = (Object) NEW_PLAN.invokeExact();
+        int columns = blockSide(booths) / BOOTH_SIZE;
+        for (int i = 0; i < booths; i++) {
+            Object booth = (Object) NEW_BOOTH.invokeExact(BOOTH_SIZE, BOOTH_SIZE, COLORS[i % COLORS.length]);
+            SET_POSITION.invokeExact(booth, i % columns * BOOTH_SIZE, i / columns * BOOTH_SIZE);
+            ADD.invokeExact(plan, booth);
+        }
+        if (compact) {
+            COMPACT.invokeExact(plan);
+        }
+        return plan;
+    }
+
+    //Builds the same block split into a grid of zones, each holding its booths in compact rows
+    static Object buildZoned(int booths) throws Throwable {
+        Object plan = (Object) NEW_PLAN.invokeExact();
+        Object[] zones = new Object[ZONE_GRID * ZONE_GRID];
+        for (int z = 0; z < zones.length; z++) {
+            zones[z] = (Object) NEW_ZONE.invokeExact("Hall " + (z + 1));
+        }
+        int columns = blockSide(booths) / BOOTH_SIZE;
+        int zoneColumns = (columns + ZONE_GRID - 1) / ZONE_GRID;
+        for (int i = 0; i < booths; i++) {
+            int column = i % columns, row = i / columns;
+            Object booth = (Object) NEW_BOOTH.invokeExact(BOOTH_SIZE, BOOTH_SIZE, COLORS[i % COLORS.length]);
+            SET_POSITION.invokeExact(booth, column * BOOTH_SIZE, row * BOOTH_SIZE);
+            ADD.invokeExact(zones[row / zoneColumns * ZONE_GRID + column / zoneColumns], booth);
+        }
+        for (Object zone : zones) {
+            COMPACT.invokeExact(zone);
+            ADD.invokeExact(plan, zone);
+        }
+        return plan;
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Editor class not on the class path: " + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(String className, Class<?>... parameters) {
+        try {
+            Constructor<?> constructor = type(className).getDeclaredConstructor(parameters);
+            return erase(MethodHandles.lookup().unreflectConstructor(accessible(constructor)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Editor constructor not found: " + className, e);
+        }
+    }
+
+    private static MethodHandle method(String className, String name, Class<?>... parameters) {
+        try {
+            Method method = type(className).getDeclaredMethod(name, parameters);
+            return erase(MethodHandles.lookup().unreflect(accessible(method)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Editor method not found: " + className + "." + name, e);
+        }
+    }
+
+    private static <T extends Executable> T accessible(T executable) {
+        executable.setAccessible(true);
+        return executable;
+    }
+
+    //Replaces editor types, which the benchmarks cannot name, with Object
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isEditorType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isEditorType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isEditorType(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Marquee selection of a 10 x 10 block of booths at the right edge of the plan, and moving that block one
+//booth width out and back as a group, each move checked against the booths around it
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class SelectionBenchmark {
+    private static final int BLOCK = 10 * Plans.BOOTH_SIZE;
+
+    private Object controller;
+    private Collection<?> selection;
+    private int areaX;
+    private int step = -Plans.BOOTH_SIZE;
+
+    @Setup
+    public void setUp(PlanState state) throws Throwable {
+        controller = (Object) Plans.NEW_CONTROLLER.invokeExact();
+        Plans.SET_FLOOR_PLAN.invokeExact(controller, state.plan);
+        areaX = state.side - BLOCK;
+        Plans.SELECT_AREA.invokeExact(controller, areaX, 0, BLOCK, BLOCK, false);
+        selection = (Set<?>) Plans.GET_SELECTION.invokeExact(controller);
+    }
+
+    @Benchmark
+    public void selectArea() throws Throwable {
+        Plans.SELECT_AREA.invokeExact(controller, areaX, 0, BLOCK, BLOCK, false);
+    }
+
+    @Benchmark
+    public boolean moveSelection(PlanState state) throws Throwable {
+        step = -step;
+        return (boolean) Plans.MOVE_ALL.invokeExact(state.plan, selection, step, 0);
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Listing every overlapping pair of a plan, on its own and including the snapshot a caller takes first
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class ValidationBenchmark {
+    private Object snapshot;
+
+    @Setup
+    public void setUp(PlanState state) throws Throwable {
+        snapshot = (Object) Plans.SNAPSHOT.invokeExact(state.plan);
+    }
+
+    @Benchmark
+    public Object validate() throws Throwable {
+        return (Object) Plans.VALIDATE.invokeExact(snapshot);
+    }
+
+    @Benchmark
+    public Object snapshotAndValidate(PlanState state) throws Throwable {
+        Object planSnapshot = (Object) Plans.SNAPSHOT.invokeExact(state.plan);
+        return (Object) Plans.VALIDATE.invokeExact(planSnapshot);
+    }
+}